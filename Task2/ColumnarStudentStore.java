@@ -0,0 +1,372 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compact, column-oriented student store for very large rosters.
+ * <p>
+ * Instead of one {@link Student} object (plus four {@code String}s) per record,
+ * every field lives in a primitive column indexed by row:
+ * <ul>
+ *   <li>IDs in a sorted {@code int[]}, so a row is found by binary search;</li>
+ *   <li>grades as {@code int} codes into a dictionary, since a roster only has a
+ *       handful of distinct grades;</li>
+ *   <li>names and emails as UTF-8 bytes in one shared {@code byte[]} arena,
+ *       addressed by {@code int} offset and length columns.</li>
+ * </ul>
+ * The whole table is a few large arrays, so the garbage collector has almost nothing
+ * to trace. {@code Student} objects are only created when a record is read.
+ * <p>
+ * Deletes mark the row and updates append fresh bytes to the arena; both are
+ * reclaimed by compaction when the arrays need to grow. This store is not
+ * thread-safe, and its iterators fail fast if the store changes under them.
+ */
+class ColumnarStudentStore implements StudentStore {
+    private static final int NULL_LENGTH = -1; // Length marking a null name or email.
+    private static final int NULL_GRADE = -1;  // Grade code for a null grade.
+    private static final int REMOVED = -2;     // Grade code marking a deleted row.
+    private static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 8;
+
+    private int[] ids = new int[16];
+    private int[] gradeCodes = new int[16];
+    private int[] nameOffsets = new int[16];
+    private int[] nameLengths = new int[16];
+    private int[] emailOffsets = new int[16];
+    private int[] emailLengths = new int[16];
+    private byte[] text = new byte[1024];
+    private int textLength;   // Bytes of the arena in use.
+    private int textGarbage;  // Bytes of the arena no longer referenced by any row.
+    private int rows;         // Rows in use, including deleted ones.
+    private int size;         // Live rows.
+    private int nextId = 1;
+    private int modCount;
+
+    private final Map<String, Integer> gradeCodesByValue = new HashMap<>();
+    private final List<String> gradeValues = new ArrayList<>();
+
+    @Override
+    public int nextId() {
+        return nextId++;
+    }
+
+    @Override
+    public void insert(Student student) {
+        int id = student.getId();
+        nextId = Math.max(nextId, id + 1);
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        if (row >= 0) {
+            if (gradeCodes[row] != REMOVED) {
+                throw new IllegalArgumentException("Student ID " + id + " is already stored.");
+            }
+        } else {
+            if (rows == ids.length) {
+                growRows();
+            }
+            row = -Arrays.binarySearch(ids, 0, rows, id) - 1;
+            if (row < rows) {
+                // IDs normally arrive in increasing order; shift the columns if not.
+                shiftRowsRight(row);
+            }
+            rows++;
+            ids[row] = id;
+        }
+        writeRow(row, student, false);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Student get(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : materialize(row);
+    }
+
+    @Override
+    public boolean update(Student student) {
+        int row = rowOf(student.getId());
+        if (row < 0) {
+            return false;
+        }
+        writeRow(row, student, true);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return false;
+        }
+        releaseText(row);
+        gradeCodes[row] = REMOVED;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        forEachRowFrom(0, Integer.MAX_VALUE, action);
+    }
+
+    @Override
+    public void forEachInPage(int offset, int limit, Consumer<? super Student> action) {
+        int row = 0;
+        for (int skipped = 0; row < rows && skipped < offset; row++) {
+            if (gradeCodes[row] != REMOVED) {
+                skipped++;
+            }
+        }
+        forEachRowFrom(row, limit, action);
+    }
+
+    @Override
+    public void forEachFromId(int fromId, int limit, Consumer<? super Student> action) {
+        int row = Arrays.binarySearch(ids, 0, rows, fromId);
+        forEachRowFrom(row < 0 ? -row - 1 : row, limit, action);
+    }
+
+    @Override
+    public Stream<Student> stream() {
+        return StreamSupport.stream(new RowSpliterator(), false);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Returns the number of bytes held by the columns and the text arena, which is
+     * essentially the whole footprint of the store.
+     *
+     * @return The approximate size of the store in bytes.
+     */
+    long footprintBytes() {
+        long columns = 6L * 4 * ids.length;
+        long dictionary = 0;
+        for (String grade : gradeValues) {
+            dictionary += 56 + 2L * grade.length();
+        }
+        return columns + text.length + dictionary;
+    }
+
+    private void forEachRowFrom(int row, int limit, Consumer<? super Student> action) {
+        int expectedModCount = modCount;
+        for (int passed = 0; row < rows && passed < limit; row++) {
+            if (gradeCodes[row] != REMOVED) {
+                action.accept(materialize(row));
+                passed++;
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    private int rowOf(int id) {
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        return row >= 0 && gradeCodes[row] != REMOVED ? row : -1;
+    }
+
+    private Student materialize(int row) {
+        int code = gradeCodes[row];
+        return new Student(ids[row],
+                readText(nameOffsets[row], nameLengths[row]),
+                code == NULL_GRADE ? null : gradeValues.get(code),
+                readText(emailOffsets[row], emailLengths[row]));
+    }
+
+    /**
+     * Writes a student into a row. The row's old text, if it is a live row being
+     * updated, becomes garbage; the row itself is left out of any compaction this
+     * triggers, since its old text is about to be replaced.
+     */
+    private void writeRow(int row, Student student, boolean live) {
+        int grade = gradeCode(student.getGrade());
+        byte[] name = utf8(student.getName());
+        byte[] email = utf8(student.getEmail());
+        int released = live ? Math.max(0, nameLengths[row]) + Math.max(0, emailLengths[row]) : 0;
+        if (!ensureText((name == null ? 0 : name.length) + (email == null ? 0 : email.length), row)) {
+            textGarbage += released;
+        }
+        gradeCodes[row] = grade;
+        nameOffsets[row] = textLength;
+        nameLengths[row] = appendText(name);
+        emailOffsets[row] = textLength;
+        emailLengths[row] = appendText(email);
+    }
+
+    private int gradeCode(String grade) {
+        if (grade == null) {
+            return NULL_GRADE;
+        }
+        Integer code = gradeCodesByValue.get(grade);
+        if (code == null) {
+            code = gradeValues.size();
+            gradeValues.add(grade);
+            gradeCodesByValue.put(grade, code);
+        }
+        return code;
+    }
+
+    private int appendText(byte[] bytes) {
+        if (bytes == null) {
+            return NULL_LENGTH;
+        }
+        System.arraycopy(bytes, 0, text, textLength, bytes.length);
+        textLength += bytes.length;
+        return bytes.length;
+    }
+
+    private String readText(int offset, int length) {
+        return length == NULL_LENGTH ? null : new String(text, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private void releaseText(int row) {
+        textGarbage += Math.max(0, nameLengths[row]) + Math.max(0, emailLengths[row]);
+    }
+
+    /**
+     * Makes room for {@code bytes} more arena bytes, compacting the arena instead of
+     * growing it when at least half of it is garbage.
+     *
+     * @param bytes The bytes about to be appended.
+     * @param rewriting A row about to be rewritten, whose text is not kept.
+     * @return Whether the arena was compacted, dropping all garbage.
+     */
+    private boolean ensureText(int bytes, int rewriting) {
+        if (textLength + bytes <= text.length) {
+            return false;
+        }
+        int live = textLength - textGarbage;
+        long needed = (long) live + bytes;
+        if (needed > MAX_ARENA_BYTES) {
+            throw new IllegalStateException("Student text arena is full.");
+        }
+        int capacity = text.length;
+        if (live > capacity / 2 || needed > capacity) {
+            capacity = (int) Math.min(MAX_ARENA_BYTES, Math.max(capacity * 2L, needed));
+        }
+        byte[] compacted = new byte[capacity];
+        int length = 0;
+        for (int row = 0; row < rows; row++) {
+            if (gradeCodes[row] == REMOVED || row == rewriting) {
+                continue;
+            }
+            if (nameLengths[row] > 0) {
+                System.arraycopy(text, nameOffsets[row], compacted, length, nameLengths[row]);
+            }
+            nameOffsets[row] = length;
+            length += Math.max(0, nameLengths[row]);
+            if (emailLengths[row] > 0) {
+                System.arraycopy(text, emailOffsets[row], compacted, length, emailLengths[row]);
+            }
+            emailOffsets[row] = length;
+            length += Math.max(0, emailLengths[row]);
+        }
+        text = compacted;
+        textLength = length;
+        textGarbage = 0;
+        return true;
+    }
+
+    /**
+     * Makes room for one more row, dropping deleted rows instead of growing when at
+     * least half of the rows are deleted.
+     */
+    private void growRows() {
+        int capacity = size < rows / 2 ? ids.length : ids.length * 2;
+        int[] newIds = new int[capacity];
+        int[] newGrades = new int[capacity];
+        int[] newNameOffsets = new int[capacity];
+        int[] newNameLengths = new int[capacity];
+        int[] newEmailOffsets = new int[capacity];
+        int[] newEmailLengths = new int[capacity];
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (gradeCodes[row] != REMOVED) {
+                newIds[live] = ids[row];
+                newGrades[live] = gradeCodes[row];
+                newNameOffsets[live] = nameOffsets[row];
+                newNameLengths[live] = nameLengths[row];
+                newEmailOffsets[live] = emailOffsets[row];
+                newEmailLengths[live] = emailLengths[row];
+                live++;
+            }
+        }
+        ids = newIds;
+        gradeCodes = newGrades;
+        nameOffsets = newNameOffsets;
+        nameLengths = newNameLengths;
+        emailOffsets = newEmailOffsets;
+        emailLengths = newEmailLengths;
+        rows = live;
+    }
+
+    private void shiftRowsRight(int from) {
+        int moved = rows - from;
+        System.arraycopy(ids, from, ids, from + 1, moved);
+        System.arraycopy(gradeCodes, from, gradeCodes, from + 1, moved);
+        System.arraycopy(nameOffsets, from, nameOffsets, from + 1, moved);
+        System.arraycopy(nameLengths, from, nameLengths, from + 1, moved);
+        System.arraycopy(emailOffsets, from, emailOffsets, from + 1, moved);
+        System.arraycopy(emailLengths, from, emailLengths, from + 1, moved);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materializes live rows one at a time as the stream is consumed.
+     */
+    private final class RowSpliterator implements Spliterator<Student> {
+        private final int expectedModCount = modCount;
+        private int row;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Student> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (row < rows) {
+                int current = row++;
+                if (gradeCodes[current] != REMOVED) {
+                    action.accept(materialize(current));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Student> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return rows - row;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
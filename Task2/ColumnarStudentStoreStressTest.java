@@ -0,0 +1,125 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Checks the {@link ColumnarStudentStore} against a plain map through a long run of
+ * random inserts, updates and deletes with names and emails of very different sizes,
+ * so the text arena keeps filling up and compacting in the middle of writes.
+ * <p>
+ * It starts with the case that once broke compaction: a student with a 600-byte name
+ * updated to another 600-byte name in a fresh store. Then every operation is applied
+ * to both the store and the map, and every student is compared after each round. The
+ * arena must also stay within a small multiple of the text actually live, which it
+ * would not if deleted or replaced bytes were miscounted.
+ * <p>
+ * Usage: {@code java ColumnarStudentStoreStressTest [operations] [seed]}; exits with
+ * status 1 if any check fails.
+ */
+public class ColumnarStudentStoreStressTest {
+    private static final String[] GRADES = {"9th", "10th", "11th", "12th", null};
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        ColumnarStudentStore first = new ColumnarStudentStore();
+        first.insert(new Student(first.nextId(), repeat('a', 600), "10th", "a@example.com"));
+        first.update(new Student(1, repeat('b', 600), "10th", "b@example.com"));
+        Student updated = first.get(1);
+        if (!updated.getName().equals(repeat('b', 600)) || !updated.getEmail().equals("b@example.com")) {
+            fail("a 600-byte name updated to another 600-byte name came back wrong");
+        }
+
+        Random random = new Random(seed);
+        ColumnarStudentStore store = new ColumnarStudentStore();
+        Map<Integer, Student> expected = new HashMap<>();
+        int maxId = 2_000;
+        for (int op = 1; op <= operations; op++) {
+            int id = 1 + random.nextInt(maxId);
+            Student student = new Student(id, text(random), GRADES[random.nextInt(GRADES.length)], text(random));
+            int action = random.nextInt(10);
+            if (action < 3) {
+                if (!expected.containsKey(id)) {
+                    store.insert(student);
+                    expected.put(id, student);
+                }
+            } else if (action < 8) {
+                if (store.update(student) != expected.containsKey(id)) {
+                    fail("update of student " + id + " disagreed on whether it exists");
+                }
+                expected.replace(id, student);
+            } else if (store.delete(id) != (expected.remove(id) != null)) {
+                fail("delete of student " + id + " disagreed on whether it exists");
+            }
+            if (op % 10_000 == 0) {
+                verify(store, expected, op);
+            }
+        }
+        verify(store, expected, operations);
+        System.out.printf("PASSED: %,d operations on up to %,d students; arena %,d bytes.%n",
+                operations, maxId, store.footprintBytes());
+    }
+
+    /**
+     * A name or email: usually short, sometimes hundreds of bytes, sometimes null or
+     * not ASCII.
+     */
+    private static String text(Random random) {
+        int kind = random.nextInt(20);
+        if (kind == 0) {
+            return null;
+        }
+        if (kind == 1) {
+            return "";
+        }
+        int length = kind < 4 ? 200 + random.nextInt(1_000) : 1 + random.nextInt(24);
+        char base = kind == 4 ? '\u00e9' : 'a';
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) (base + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+
+    private static void verify(ColumnarStudentStore store, Map<Integer, Student> expected, int op) {
+        if (store.size() != expected.size()) {
+            fail("after " + op + " operations the store holds " + store.size() + " students instead of "
+                    + expected.size());
+        }
+        long liveBytes = 0;
+        for (Student want : expected.values()) {
+            Student got = store.get(want.getId());
+            if (got == null || !Objects.equals(got.getName(), want.getName())
+                    || !Objects.equals(got.getGrade(), want.getGrade())
+                    || !Objects.equals(got.getEmail(), want.getEmail())) {
+                fail("after " + op + " operations student " + want.getId() + " came back as " + got);
+            }
+            liveBytes += bytes(want.getName()) + bytes(want.getEmail());
+        }
+        // Columns for at most twice the rows, and an arena at most about four times the live text.
+        long bound = 2 * 6L * 4 * 4_096 + 4 * liveBytes + 64 * 1_024;
+        if (store.footprintBytes() > bound) {
+            fail("after " + op + " operations the store takes " + store.footprintBytes() + " bytes for "
+                    + liveBytes + " bytes of live text");
+        }
+    }
+
+    private static long bytes(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static void fail(String message) {
+        System.out.println("FAILED: " + message + ".");
+        System.exit(1);
+    }
+}
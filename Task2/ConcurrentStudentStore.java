@@ -0,0 +1,103 @@
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe student store for DAOs shared by many worker threads.
+ * <p>
+ * Records live in a {@link ConcurrentHashMap}, which locks individual hash bins
+ * on write (so writers to different students rarely contend) and never locks on
+ * read. IDs come from an {@link AtomicInteger}. Stored records are never mutated:
+ * an update swaps in a fresh copy, so a reader always sees either the old or the
+ * new values of a student, never a mix. Records handed out by {@link #get(int)}
+ * are shared and must be treated as read-only.
+ * <p>
+ * Because IDs are handed out sequentially, ordered scans simply probe the IDs in
+ * order instead of sorting the map. Scans are weakly consistent: records added or
+ * removed while a scan runs may or may not be seen.
+ */
+class ConcurrentStudentStore implements StudentStore {
+    private final ConcurrentHashMap<Integer, Student> students = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    @Override
+    public int nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    @Override
+    public void insert(Student student) {
+        // Records restored from disk arrive with their IDs already set.
+        nextId.accumulateAndGet(student.getId() + 1, Math::max);
+        students.put(student.getId(), copyOf(student));
+    }
+
+    @Override
+    public Student get(int id) {
+        return students.get(id);
+    }
+
+    @Override
+    public boolean update(Student updatedStudent) {
+        Student copy = copyOf(updatedStudent);
+        return students.computeIfPresent(copy.getId(), (id, existing) -> copy) != null;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return students.remove(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return students.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        int end = nextId.get();
+        for (int id = 1; id < end; id++) {
+            Student student = students.get(id);
+            if (student != null) {
+                action.accept(student);
+            }
+        }
+    }
+
+    @Override
+    public void forEachFromId(int fromId, int limit, Consumer<? super Student> action) {
+        int end = nextId.get();
+        int passed = 0;
+        for (int id = Math.max(fromId, 1); id < end && passed < limit; id++) {
+            Student student = students.get(id);
+            if (student != null) {
+                action.accept(student);
+                passed++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The stream covers the IDs allocated when it was opened. Each record it yields
+     * is an immutable version, but deletes made while it is consumed may be seen.
+     */
+    @Override
+    public Stream<Student> stream() {
+        return IntStream.range(1, nextId.get())
+                .mapToObj(students::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    private static Student copyOf(Student student) {
+        return new Student(student.getId(), student.getName(), student.getGrade(), student.getEmail());
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A student store that survives restarts.
+ * <p>
+ * Records are held by an in-memory delegate store; every change is first appended to
+ * a {@link StudentLog} and only then applied, so an acknowledged write is never lost
+ * (subject to the log's {@link FsyncPolicy}). Every {@code checkpointEvery} writes the
+ * store takes a compacted {@link StudentSnapshot} in the background and deletes the
+ * log files the snapshot covers. On startup it loads the latest snapshot and replays
+ * the log files written after it.
+ * <p>
+ * Logs are numbered by generation ({@code students-<n>.log}). A checkpoint switches
+ * writers to a fresh generation under a short exclusive lock, copies the table, and
+ * then writes the snapshot while writers carry on in the new generation.
+ */
+class DurableStudentStore implements StudentStore {
+    static final long DEFAULT_CHECKPOINT_EVERY = 100_000;
+
+    private static final String SNAPSHOT_FILE = "students.snapshot";
+    private static final String LOG_PREFIX = "students-";
+    private static final String LOG_SUFFIX = ".log";
+    // After a failed checkpoint, how many more writes to accept before trying again.
+    private static final long CHECKPOINT_RETRY = 4096;
+
+    private final StudentStore delegate;
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long checkpointEvery;
+    private final AtomicInteger nextId;
+    private final AtomicLong writesSinceCheckpoint = new AtomicLong();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    // Writers hold the read side while they log and apply a change; a checkpoint
+    // holds the write side while it switches log generations and copies the table.
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Object checkpointMonitor = new Object(); // One checkpoint at a time.
+    private final ExecutorService checkpointer;
+    private StudentLog log;
+    private long generation;
+
+    /**
+     * Opens a durable store in a directory, recovering any state saved there.
+     *
+     * @param delegate        The empty in-memory store that will hold the records.
+     * @param directory       The directory for the snapshot and log files.
+     * @param policy          When log records are forced to disk.
+     * @param checkpointEvery How many writes to accept between automatic checkpoints.
+     * @throws IOException if recovery fails.
+     */
+    public DurableStudentStore(StudentStore delegate, Path directory, FsyncPolicy policy, long checkpointEvery)
+            throws IOException {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.policy = policy;
+        this.checkpointEvery = checkpointEvery;
+        Files.createDirectories(directory);
+
+        int maxId = 0;
+        long firstGeneration = 0;
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            StudentSnapshot snapshot = StudentSnapshot.read(snapshotFile, delegate);
+            maxId = snapshot.nextId - 1;
+            firstGeneration = snapshot.logGeneration;
+        }
+        long lastGeneration = firstGeneration - 1;
+        for (Map.Entry<Long, Path> logFile : logFiles().entrySet()) {
+            if (logFile.getKey() >= firstGeneration) {
+                maxId = Math.max(maxId, StudentLog.replay(logFile.getValue(), delegate));
+                lastGeneration = logFile.getKey();
+            }
+        }
+        this.nextId = new AtomicInteger(maxId + 1);
+        this.generation = lastGeneration + 1;
+        this.log = new StudentLog(logFile(generation), policy);
+        this.checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "student-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    @Override
+    public void insert(Student student) {
+        write(StudentLog.ADD, student, () -> delegate.insert(student));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The whole batch goes to the log in a few large commits.
+     */
+    @Override
+    public void insertAll(List<Student> students) {
+        checkpointLock.readLock().lock();
+        try {
+            log.appendAll(StudentLog.ADD, students);
+            delegate.insertAll(students);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the student log.", e);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (writesSinceCheckpoint.addAndGet(students.size()) >= checkpointEvery) {
+            scheduleCheckpoint();
+        }
+    }
+
+    @Override
+    public Student get(int id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public boolean update(Student student) {
+        if (delegate.get(student.getId()) == null) {
+            return false;
+        }
+        write(StudentLog.UPDATE, student, () -> delegate.update(student));
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        if (delegate.get(id) == null) {
+            return false;
+        }
+        write(StudentLog.DELETE, new Student(id, null, null, null), () -> delegate.delete(id));
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public void forEachInPage(int offset, int limit, Consumer<? super Student> action) {
+        delegate.forEachInPage(offset, limit, action);
+    }
+
+    @Override
+    public void forEachFromId(int fromId, int limit, Consumer<? super Student> action) {
+        delegate.forEachFromId(fromId, limit, action);
+    }
+
+    @Override
+    public Stream<Student> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return delegate.isThreadSafe();
+    }
+
+    /**
+     * Logs a change, applies it, and schedules a checkpoint when one is due.
+     */
+    private void write(byte op, Student student, Runnable apply) {
+        checkpointLock.readLock().lock();
+        try {
+            log.append(op, student);
+            apply.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the student log.", e);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        if (writesSinceCheckpoint.incrementAndGet() >= checkpointEvery) {
+            scheduleCheckpoint();
+        }
+    }
+
+    /**
+     * Starts a background checkpoint unless one is already pending. If it fails, the
+     * next one is tried after {@value #CHECKPOINT_RETRY} more writes.
+     */
+    private void scheduleCheckpoint() {
+        if (!checkpointScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        checkpointer.execute(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                writesSinceCheckpoint.set(Math.max(0, checkpointEvery - CHECKPOINT_RETRY));
+                System.err.println("Student checkpoint failed: " + e.getMessage());
+            } finally {
+                checkpointScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Writes a compacted snapshot of the current table and deletes the log files it
+     * replaces. Writers are only paused while the log generation is switched and the
+     * table is copied.
+     *
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointMonitor) {
+            List<Student> students;
+            int idMark;
+            long snapshotGeneration;
+            checkpointLock.writeLock().lock();
+            try {
+                // Open the next log first, so a failure leaves the store writing to the current one.
+                StudentLog next = new StudentLog(logFile(generation + 1), policy);
+                StudentLog previous = log;
+                log = next;
+                generation++;
+                previous.close();
+                snapshotGeneration = generation;
+                students = new ArrayList<>(delegate.size());
+                delegate.forEach(s -> students.add(new Student(s.getId(), s.getName(), s.getGrade(), s.getEmail())));
+                idMark = nextId.get();
+                writesSinceCheckpoint.set(0);
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+
+            StudentSnapshot.write(directory.resolve(SNAPSHOT_FILE), students, idMark, snapshotGeneration);
+            for (Map.Entry<Long, Path> logFile : logFiles().entrySet()) {
+                if (logFile.getKey() < snapshotGeneration) {
+                    Files.deleteIfExists(logFile.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for any running checkpoint, then flushes and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpointLock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    private Path logFile(long logGeneration) {
+        return directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+    }
+
+    /**
+     * Lists the log files in the directory, ordered by generation.
+     */
+    private TreeMap<Long, Path> logFiles() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                String number = name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length());
+                try {
+                    files.put(Long.parseLong(number), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours; leave it alone.
+                }
+            }
+        }
+        return files;
+    }
+}
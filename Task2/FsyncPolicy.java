@@ -0,0 +1,11 @@
+/**
+ * How hard a write-ahead log pushes records to disk before a write is acknowledged.
+ */
+enum FsyncPolicy {
+    /** Records are handed to the operating system in batches but never forced to disk. */
+    NONE,
+    /** Concurrent writers share one fsync per batch (group commit). */
+    GROUP_COMMIT,
+    /** Every record is written and forced to disk on its own. */
+    PER_RECORD
+}
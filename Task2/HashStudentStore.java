@@ -0,0 +1,99 @@
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The default, single-threaded student store.
+ * Records are kept in an {@link IntHashTable} keyed by ID. An update replaces the
+ * stored record with a fresh copy, so a stream opened earlier keeps seeing the old one.
+ * This store is not thread-safe; use {@link ConcurrentStudentStore} when several
+ * threads share one DAO.
+ */
+class HashStudentStore implements StudentStore {
+    private final IntHashTable<Student> studentTable = new IntHashTable<>();
+    private int nextId = 1; // Used to auto-generate student IDs.
+
+    @Override
+    public int nextId() {
+        return nextId++;
+    }
+
+    @Override
+    public void insert(Student student) {
+        nextId = Math.max(nextId, student.getId() + 1);
+        studentTable.put(student.getId(), student);
+    }
+
+    @Override
+    public Student get(int id) {
+        return studentTable.get(id);
+    }
+
+    @Override
+    public boolean update(Student updatedStudent) {
+        int id = updatedStudent.getId();
+        if (!studentTable.containsKey(id)) {
+            return false;
+        }
+        studentTable.put(id, new Student(id, updatedStudent.getName(), updatedStudent.getGrade(),
+                updatedStudent.getEmail()));
+        return true;
+    }
+
+    @Override
+    public boolean delete(int id) {
+        return studentTable.remove(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return studentTable.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        studentTable.forEachValue(action);
+    }
+
+    @Override
+    public void forEachInPage(int offset, int limit, Consumer<? super Student> action) {
+        studentTable.forEachInPage(offset, limit, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * IDs normally arrive in increasing order, so the start is found by binary
+     * search. Otherwise IDs are probed one by one from {@code fromId} upwards.
+     */
+    @Override
+    public void forEachFromId(int fromId, int limit, Consumer<? super Student> action) {
+        if (studentTable.isKeyOrdered()) {
+            studentTable.forEachFromKey(fromId, limit, action);
+            return;
+        }
+        int passed = 0;
+        for (int id = Math.max(fromId, 1); id < nextId && passed < limit; id++) {
+            Student student = studentTable.get(id);
+            if (student != null) {
+                action.accept(student);
+                passed++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The stream reads a copy-on-write snapshot of the table taken when this method
+     * is called, so later adds, updates and deletes do not show up in it. An update
+     * or delete copies the table only while a stream has not been read to its end.
+     */
+    @Override
+    public Stream<Student> stream() {
+        return StreamSupport.stream(studentTable.snapshot(), false);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+}
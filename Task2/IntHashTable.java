@@ -0,0 +1,405 @@
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A hash table keyed by primitive ints that remembers insertion order.
+ * Entries live in dense, insertion-ordered key/value arrays, and an
+ * open-addressing index (linear probing) maps each key to its position.
+ * Lookups, updates and removals are O(1) on average and keys are never boxed.
+ * <p>
+ * {@link #snapshot()} hands out a read-only view of the entries without copying
+ * them. The arrays are shared copy-on-write: appends go past the end of every
+ * existing view, and the first in-place change while a view is still being read (a
+ * replaced or removed value) clones the arrays so that the view keeps seeing the old
+ * contents. A view read to the end stops counting, so later changes copy nothing.
+ *
+ * @param <V> The type of the stored values.
+ */
+class IntHashTable<V> {
+    private static final int EMPTY = -1;   // Index slot that was never used.
+    private static final int DELETED = -2; // Index slot whose entry was removed.
+
+    private int[] index;     // Hash slot -> position in keys/values.
+    private int[] keys;      // Position -> key, in insertion order.
+    private Object[] values; // Position -> value, null once removed.
+    private int size;        // Number of live entries.
+    private int count;       // Number of used positions (live + removed).
+    private boolean ascending = true; // Whether keys were appended in increasing order.
+    private int readers;      // Snapshots of the current keys/values not yet read to the end.
+    private int arraysVersion; // Changes whenever keys/values are replaced, so older snapshots stop counting.
+
+    /**
+     * Constructs an empty table with a small default capacity.
+     */
+    public IntHashTable() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty table sized to hold the given number of entries without resizing.
+     *
+     * @param expectedSize The number of entries the table should hold before growing.
+     */
+    public IntHashTable(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.index = newIndex(capacity);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key to look up.
+     * @return The value, or null if the key is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int position = positionOf(key);
+        return position < 0 ? null : (V) values[position];
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key The key to look up.
+     * @return true if the table holds a value for the key.
+     */
+    public boolean containsKey(int key) {
+        return positionOf(key) >= 0;
+    }
+
+    /**
+     * Stores a value for a key. A new key is appended to the end of the insertion
+     * order; an existing key keeps its position and only has its value replaced.
+     *
+     * @param key   The key.
+     * @param value The value to store. Must not be null.
+     * @return The previous value for the key, or null if it was absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported.");
+        }
+        int position = positionOf(key);
+        if (position >= 0) {
+            unshare();
+            V previous = (V) values[position];
+            values[position] = value;
+            return previous;
+        }
+        if (count == keys.length) {
+            resize();
+        }
+        position = count++;
+        if (position > 0 && key <= keys[position - 1]) {
+            ascending = false;
+        }
+        keys[position] = key;
+        values[position] = value;
+        index[freeSlotFor(key)] = position;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or null if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int position = index[slot];
+            if (position == EMPTY) {
+                return null;
+            }
+            if (position >= 0 && keys[position] == key) {
+                unshare();
+                V previous = (V) values[position];
+                values[position] = null;
+                index[slot] = DELETED;
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     *
+     * @return The number of live entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the table is empty.
+     *
+     * @return true if the table holds no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes every value to the action, in insertion order.
+     *
+     * @param action The action to perform on each value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int position = 0; position < count; position++) {
+            Object value = values[position];
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Passes up to {@code limit} values to the action, skipping the first
+     * {@code offset} live entries in insertion order. When nothing has been removed
+     * since the last resize the start position is found directly; otherwise the
+     * removed entries before it have to be stepped over.
+     *
+     * @param offset The number of live entries to skip.
+     * @param limit  The maximum number of values to pass on.
+     * @param action The action to perform on each value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachInPage(int offset, int limit, Consumer<? super V> action) {
+        int position = 0;
+        if (count == size) {
+            position = offset;
+        } else {
+            for (int skipped = 0; position < count && skipped < offset; position++) {
+                if (values[position] != null) {
+                    skipped++;
+                }
+            }
+        }
+        for (int passed = 0; position < count && passed < limit; position++) {
+            Object value = values[position];
+            if (value != null) {
+                action.accept((V) value);
+                passed++;
+            }
+        }
+    }
+
+    /**
+     * Tells whether every key was appended in increasing order, which makes
+     * {@link #forEachFromKey(int, int, Consumer)} available.
+     *
+     * @return true if the insertion order is also the key order.
+     */
+    public boolean isKeyOrdered() {
+        return ascending;
+    }
+
+    /**
+     * Passes up to {@code limit} values whose keys are at least {@code fromKey} to
+     * the action, in key order. The start is found by binary search, so this only
+     * works while {@link #isKeyOrdered()} holds.
+     *
+     * @param fromKey The smallest key to include.
+     * @param limit   The maximum number of values to pass on.
+     * @param action  The action to perform on each value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachFromKey(int fromKey, int limit, Consumer<? super V> action) {
+        if (!ascending) {
+            throw new IllegalStateException("Keys were not inserted in increasing order.");
+        }
+        int position = Arrays.binarySearch(keys, 0, count, fromKey);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        for (int passed = 0; position < count && passed < limit; position++) {
+            Object value = values[position];
+            if (value != null) {
+                action.accept((V) value);
+                passed++;
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only, insertion-ordered view of the values as they are now.
+     * Later changes to the table are not visible through the view. Until the view is
+     * read to the end, the next replaced or removed value copies the table's arrays.
+     *
+     * @return A spliterator over the current values.
+     */
+    public Spliterator<V> snapshot() {
+        readers++;
+        return new SnapshotSpliterator<>(this, values, count, arraysVersion);
+    }
+
+    /**
+     * Records that a snapshot has been read to the end.
+     */
+    private void release(int version) {
+        if (version == arraysVersion && readers > 0) {
+            readers--;
+        }
+    }
+
+    /**
+     * Gives the table private copies of its arrays before an in-place change if a
+     * snapshot might still be reading them.
+     */
+    private void unshare() {
+        if (readers > 0) {
+            keys = keys.clone();
+            values = values.clone();
+            replacedArrays();
+        }
+    }
+
+    /**
+     * Forgets the snapshots of the old arrays: they keep their own copy.
+     */
+    private void replacedArrays() {
+        readers = 0;
+        arraysVersion++;
+    }
+
+    /**
+     * Finds the position of a key in the dense arrays.
+     *
+     * @param key The key to look up.
+     * @return The position, or -1 if the key is absent.
+     */
+    private int positionOf(int key) {
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int position = index[slot];
+            if (position == EMPTY) {
+                return -1;
+            }
+            if (position >= 0 && keys[position] == key) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * Finds the first reusable index slot for a key that is known to be absent.
+     */
+    private int freeSlotFor(int key) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Makes room for one more entry. If at least half of the used positions belong
+     * to removed entries, the arrays are compacted in place; otherwise they double.
+     * Either way the index is rebuilt, which also clears out DELETED markers.
+     */
+    private void resize() {
+        int capacity = size < keys.length / 2 ? keys.length : keys.length * 2;
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        int live = 0;
+        for (int position = 0; position < count; position++) {
+            if (values[position] != null) {
+                newKeys[live] = keys[position];
+                newValues[live] = values[position];
+                live++;
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        count = live;
+        replacedArrays();
+        ascending = true;
+        for (int position = 1; position < count && ascending; position++) {
+            ascending = keys[position] > keys[position - 1];
+        }
+        index = newIndex(capacity);
+        for (int position = 0; position < count; position++) {
+            index[freeSlotFor(keys[position])] = position;
+        }
+    }
+
+    /**
+     * Allocates an index with at least twice as many slots as entry positions,
+     * which keeps the load factor (including DELETED markers) at or below 0.5.
+     */
+    private static int[] newIndex(int capacity) {
+        int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        int[] newIndex = new int[slots];
+        Arrays.fill(newIndex, EMPTY);
+        return newIndex;
+    }
+
+    /**
+     * Spreads the bits of a key so that sequential IDs do not form long probe runs.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Walks the values array of a snapshot up to the entry count it was taken at.
+     */
+    private static final class SnapshotSpliterator<V> implements Spliterator<V> {
+        private final IntHashTable<?> table;
+        private final Object[] values;
+        private final int end;
+        private final int version;
+        private int position;
+        private boolean released;
+
+        SnapshotSpliterator(IntHashTable<?> table, Object[] values, int end, int version) {
+            this.table = table;
+            this.values = values;
+            this.end = end;
+            this.version = version;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (position < end) {
+                Object value = values[position++];
+                if (value != null) {
+                    action.accept((V) value);
+                    return true;
+                }
+            }
+            if (!released) {
+                released = true;
+                table.release(version);
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
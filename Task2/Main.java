@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
@@ -5,12 +7,18 @@ import java.util.Scanner;
 /**
  * The main class for the Student Management System.
  * This class provides a command-line interface (CLI) for the user to interact with.
+ * Run it as {@code java Main [dataDirectory]}; with a data directory the records
+ * are saved to disk and reloaded on the next start, otherwise they live in memory.
  */
 public class Main {
-    private static final StudentDAO studentDAO = new StudentDAO();
+    private static final int PAGE_SIZE = 20;
     private static final Scanner scanner = new Scanner(System.in);
+    private static StudentDAO studentDAO;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        studentDAO = args.length > 0
+                ? StudentDAO.durable(Paths.get(args[0]), FsyncPolicy.GROUP_COMMIT)
+                : new StudentDAO();
         while (true) {
             printMenu();
             int choice = getUserChoice();
@@ -30,10 +38,17 @@ public class Main {
                         deleteStudent();
                         break;
                     case 5:
+                        importStudents();
+                        break;
+                    case 6:
+                        exportStudents();
+                        break;
+                    case 7:
                         System.out.println("Exiting application. Goodbye!");
+                        studentDAO.close();
                         return;
                     default:
-                        System.out.println("Invalid choice. Please enter a number between 1 and 5.");
+                        System.out.println("Invalid choice. Please enter a number between 1 and 7.");
                 }
             } catch (Exception e) {
                 System.out.println("An error occurred: " + e.getMessage());
@@ -52,7 +67,9 @@ public class Main {
         System.out.println("2. View all Students");
         System.out.println("3. Update a Student's record");
         System.out.println("4. Delete a Student");
-        System.out.println("5. Exit");
+        System.out.println("5. Import Students from a file");
+        System.out.println("6. Export Students to a file");
+        System.out.println("7. Exit");
         System.out.print("Enter your choice: ");
     }
 
@@ -90,18 +107,52 @@ public class Main {
     }
 
     /**
-     * Handles the logic for displaying all students.
+     * Handles the logic for displaying all students, one page at a time.
      */
     private static void viewAllStudents() {
         System.out.println("\n--- All Student Records ---");
-        List<Student> students = studentDAO.getAllStudents();
-        if (students.isEmpty()) {
-            System.out.println("No student records found.");
-        } else {
+        int nextId = 1;
+        boolean anyFound = false;
+        while (true) {
+            List<Student> students = studentDAO.scanFrom(nextId, PAGE_SIZE);
             students.forEach(System.out::println);
+            anyFound |= !students.isEmpty();
+            if (students.size() < PAGE_SIZE) {
+                break;
+            }
+            nextId = students.get(students.size() - 1).getId() + 1;
+            System.out.print("-- Press Enter for more, or type q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                break;
+            }
+        }
+        if (!anyFound) {
+            System.out.println("No student records found.");
         }
     }
 
+    /**
+     * Handles the logic for importing students from a CSV or binary file.
+     */
+    private static void importStudents() throws IOException {
+        System.out.println("\n--- Import Students ---");
+        System.out.print("Enter the file to import (.csv for CSV, anything else for binary): ");
+        String file = scanner.nextLine().trim();
+        StudentBulkIO.Result result = StudentBulkIO.importFile(Paths.get(file), studentDAO);
+        System.out.println("Imported " + result);
+    }
+
+    /**
+     * Handles the logic for exporting all students to a CSV or binary file.
+     */
+    private static void exportStudents() throws IOException {
+        System.out.println("\n--- Export Students ---");
+        System.out.print("Enter the file to export to (.csv for CSV, anything else for binary): ");
+        String file = scanner.nextLine().trim();
+        StudentBulkIO.Result result = StudentBulkIO.exportFile(studentDAO, Paths.get(file));
+        System.out.println("Exported " + result);
+    }
+
     /**
      * Handles the logic for updating an existing student's record.
      */
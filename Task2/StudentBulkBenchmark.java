@@ -0,0 +1,70 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares loading students one {@code addStudent} call at a time against the
+ * parallel bulk import in {@link StudentBulkIO}, and times the streaming exports.
+ * <p>
+ * Usage: {@code java StudentBulkBenchmark [rows]}
+ */
+public class StudentBulkBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("student-bulk-bench");
+        Path csv = directory.resolve("students.csv");
+        Path exportedCsv = directory.resolve("exported.csv");
+        Path binary = directory.resolve("students.bin");
+        try {
+            writeSampleCsv(csv, rows);
+            System.out.println("--- Student bulk import/export (" + rows + " rows) ---");
+
+            long began = System.nanoTime();
+            StudentDAO perRecord = new StudentDAO();
+            int added = loadOneByOne(csv, perRecord);
+            System.out.println("addStudent loop: " + new StudentBulkIO.Result(rows, added, System.nanoTime() - began));
+
+            StudentDAO bulk = new StudentDAO();
+            System.out.println("CSV import:      " + StudentBulkIO.importCsv(csv, bulk));
+            System.out.println("CSV export:      " + StudentBulkIO.exportCsv(bulk, exportedCsv));
+            System.out.println("Binary export:   " + StudentBulkIO.exportBinary(bulk, binary));
+            System.out.println("Binary import:   " + StudentBulkIO.importBinary(binary, new StudentDAO()));
+            System.out.printf("File sizes: CSV %,d bytes, binary %,d bytes%n", Files.size(csv), Files.size(binary));
+        } finally {
+            for (Path file : new Path[] {csv, exportedCsv, binary, directory}) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * The baseline: read the file line by line and add each student on its own.
+     */
+    private static int loadOneByOne(Path csv, StudentDAO dao) throws IOException {
+        int added = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            reader.readLine(); // Header.
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                dao.addStudent(new Student(0, fields[1], fields[2], fields[3]));
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static void writeSampleCsv(Path csv, int rows) throws IOException {
+        String[] grades = {"9th", "10th", "11th", "12th", "B.Sc. CS", "B.Sc. Math", "B.A. History", "M.Sc. Physics"};
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("id,name,grade,email\n");
+            for (int i = 1; i <= rows; i++) {
+                writer.write(i + ",Student " + i + "," + grades[i % grades.length] + ",student" + i + "@school.edu\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,555 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import and export of student records.
+ * <p>
+ * Two file formats are supported:
+ * <ul>
+ *   <li><b>CSV</b> with a header row naming the {@code name}, {@code grade} and
+ *       {@code email} columns (an {@code id} column is allowed and ignored on import,
+ *       since IDs are always reassigned). Fields may be quoted to hold commas or
+ *       quotes, but not line breaks.</li>
+ *   <li><b>Binary</b>: {@code [int magic][int version]} followed by blocks of
+ *       {@code [int payloadBytes][int recordCount][records]}, each record being
+ *       {@code [int id][name][grade][email]} with strings written as
+ *       {@code [int length][UTF-8 bytes]} (length -1 for null).</li>
+ * </ul>
+ * Imports memory-map the file, cut it into segments on line or block boundaries,
+ * parse the segments in parallel on the common fork-join pool, and hand the result
+ * to {@link StudentDAO#addStudents(List)} in one batch. Exports stream the records
+ * through a single reusable buffer into a {@link FileChannel}.
+ */
+class StudentBulkIO {
+    private static final int BINARY_MAGIC = 0x53545542; // "STUB"
+    private static final int BINARY_VERSION = 1;
+    private static final int MIN_RECORD_BYTES = 16; // An ID and three string lengths.
+    private static final int CSV_SEGMENT_BYTES = 4 << 20;
+    private static final int BINARY_BLOCK_BYTES = 1 << 20;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Counts and timings for one import or export.
+     */
+    static final class Result {
+        final long rows;
+        final long accepted;
+        final long nanos;
+
+        Result(long rows, long accepted, long nanos) {
+            this.rows = rows;
+            this.accepted = accepted;
+            this.nanos = nanos;
+        }
+
+        double rowsPerSecond() {
+            return rows / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d rows (%,d accepted, %,d rejected) in %.2f s = %,.0f rows/s",
+                    rows, accepted, rows - accepted, nanos / 1e9, rowsPerSecond());
+        }
+    }
+
+    /**
+     * Imports a CSV or binary file, chosen by its {@code .csv} extension.
+     */
+    static Result importFile(Path file, StudentDAO dao) throws IOException {
+        return isCsv(file) ? importCsv(file, dao) : importBinary(file, dao);
+    }
+
+    /**
+     * Exports to a CSV or binary file, chosen by its {@code .csv} extension.
+     */
+    static Result exportFile(StudentDAO dao, Path file) throws IOException {
+        return isCsv(file) ? exportCsv(dao, file) : exportBinary(dao, file);
+    }
+
+    /**
+     * Imports a CSV file. Rows with too few columns or an email that is already
+     * registered are rejected; all other rows are added with fresh IDs.
+     *
+     * @param file The CSV file.
+     * @param dao  The DAO that receives the students.
+     * @return The number of rows read and accepted.
+     * @throws IOException if the file cannot be read or has no usable header.
+     */
+    static Result importCsv(Path file, StudentDAO dao) throws IOException {
+        long began = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerEnd = nextLineStart(channel, 0, size);
+            MappedByteBuffer headerBytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+            byte[] headerLine = new byte[(int) headerEnd];
+            headerBytes.get(headerLine);
+            List<String> header = parseCsvLine(headerLine, trimLineEnd(headerLine, headerLine.length));
+            int nameColumn = columnOf(header, "name");
+            int gradeColumn = columnOf(header, "grade");
+            int emailColumn = columnOf(header, "email");
+
+            // Cut the rest of the file into segments that end on line boundaries.
+            List<long[]> segments = new ArrayList<>();
+            for (long start = headerEnd; start < size; ) {
+                long end = start + CSV_SEGMENT_BYTES >= size
+                        ? size
+                        : nextLineStart(channel, start + CSV_SEGMENT_BYTES, size);
+                segments.add(new long[] {start, end});
+                start = end;
+            }
+
+            List<List<Student>> parsed = new ArrayList<>(segments.size());
+            long[] rejected = new long[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                parsed.add(null);
+            }
+            parseInParallel(segments.size(), segment -> {
+                long[] range = segments.get(segment);
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                List<Student> students = new ArrayList<>();
+                byte[] line = new byte[256];
+                int length = 0;
+                while (bytes.hasRemaining()) {
+                    byte b = bytes.get();
+                    if (b != '\n') {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+                        line[length++] = b;
+                        if (bytes.hasRemaining()) {
+                            continue;
+                        }
+                    }
+                    int end = trimLineEnd(line, length);
+                    if (end > 0) {
+                        List<String> fields = parseCsvLine(line, end);
+                        int needed = Math.max(nameColumn, Math.max(gradeColumn, emailColumn));
+                        if (fields.size() > needed) {
+                            students.add(new Student(0, fields.get(nameColumn), fields.get(gradeColumn),
+                                    fields.get(emailColumn)));
+                        } else {
+                            rejected[segment]++;
+                        }
+                    }
+                    length = 0;
+                }
+                parsed.set(segment, students);
+            });
+            return addParsed(dao, parsed, rejected, began);
+        }
+    }
+
+    /**
+     * Imports a binary file written by {@link #exportBinary(StudentDAO, Path)}.
+     * Stored IDs are ignored and fresh ones assigned.
+     *
+     * @param file The binary file.
+     * @param dao  The DAO that receives the students.
+     * @return The number of records read and accepted.
+     * @throws IOException if the file cannot be read or is not in the binary format.
+     */
+    static Result importBinary(Path file, StudentDAO dao) throws IOException {
+        long began = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(8);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != BINARY_MAGIC || header.getInt(4) != BINARY_VERSION) {
+                throw new IOException("Not a student binary file: " + file);
+            }
+
+            // Hop from block header to block header to find the block boundaries.
+            List<long[]> blocks = new ArrayList<>();
+            for (long position = 8; position < size; ) {
+                header.clear();
+                readFully(channel, header, position);
+                int payloadBytes = header.getInt(0);
+                int records = header.getInt(4);
+                if (payloadBytes < 0 || position + 8 + payloadBytes > size) {
+                    throw new IOException("Truncated student binary file: " + file);
+                }
+                if (records < 0 || records > payloadBytes / MIN_RECORD_BYTES) {
+                    throw new IOException("Corrupt student binary file: " + file);
+                }
+                blocks.add(new long[] {position + 8, payloadBytes, records});
+                position += 8 + payloadBytes;
+            }
+
+            List<List<Student>> parsed = new ArrayList<>(blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                parsed.add(null);
+            }
+            parseInParallel(blocks.size(), block -> {
+                long[] range = blocks.get(block);
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1]);
+                List<Student> students = new ArrayList<>((int) range[2]);
+                for (int r = 0; r < range[2]; r++) {
+                    if (bytes.remaining() < MIN_RECORD_BYTES) {
+                        throw new IOException("Corrupt student binary file: " + file);
+                    }
+                    bytes.getInt(); // Stored ID; a fresh one is assigned on insert.
+                    String name = getString(bytes, file);
+                    String grade = getString(bytes, file);
+                    students.add(new Student(0, name, grade, getString(bytes, file)));
+                }
+                if (bytes.hasRemaining()) {
+                    throw new IOException("Corrupt student binary file: " + file);
+                }
+                parsed.set(block, students);
+            });
+            return addParsed(dao, parsed, new long[0], began);
+        }
+    }
+
+    /**
+     * Exports every student to a CSV file with an {@code id,name,grade,email} header.
+     *
+     * @param dao  The DAO to read from.
+     * @param file The file to create or overwrite.
+     * @return The number of rows written.
+     * @throws IOException if the file cannot be written.
+     */
+    static Result exportCsv(StudentDAO dao, Path file) throws IOException {
+        long began = System.nanoTime();
+        long rows = 0;
+        try (FileChannel channel = openForWrite(file); Stream<Student> students = dao.stream()) {
+            TextSink sink = new TextSink(channel);
+            sink.append("id,name,grade,email\n");
+            StringBuilder line = new StringBuilder(128);
+            for (Student student : (Iterable<Student>) students::iterator) {
+                line.setLength(0);
+                line.append(student.getId()).append(',');
+                appendCsvField(line, student.getName()).append(',');
+                appendCsvField(line, student.getGrade()).append(',');
+                appendCsvField(line, student.getEmail()).append('\n');
+                sink.append(line);
+                rows++;
+            }
+            sink.flush();
+        }
+        return new Result(rows, rows, System.nanoTime() - began);
+    }
+
+    /**
+     * Exports every student to the binary format.
+     *
+     * @param dao  The DAO to read from.
+     * @param file The file to create or overwrite.
+     * @return The number of records written.
+     * @throws IOException if the file cannot be written.
+     */
+    static Result exportBinary(StudentDAO dao, Path file) throws IOException {
+        long began = System.nanoTime();
+        long rows = 0;
+        try (FileChannel channel = openForWrite(file); Stream<Student> students = dao.stream()) {
+            ByteBuffer fileHeader = ByteBuffer.allocate(8).putInt(BINARY_MAGIC).putInt(BINARY_VERSION);
+            fileHeader.flip();
+            writeFully(channel, fileHeader);
+
+            ByteBuffer block = ByteBuffer.allocate(BINARY_BLOCK_BYTES + 8);
+            block.position(8);
+            int recordsInBlock = 0;
+            for (Student student : (Iterable<Student>) students::iterator) {
+                byte[] name = utf8(student.getName());
+                byte[] grade = utf8(student.getGrade());
+                byte[] email = utf8(student.getEmail());
+                int recordBytes = 16 + length(name) + length(grade) + length(email);
+                if (recordsInBlock > 0 && block.remaining() < recordBytes) {
+                    writeBlock(channel, block, recordsInBlock);
+                    recordsInBlock = 0;
+                }
+                if (block.remaining() < recordBytes) {
+                    block = ByteBuffer.allocate(recordBytes + 8); // A single oversized record.
+                    block.position(8);
+                }
+                block.putInt(student.getId());
+                putString(block, name);
+                putString(block, grade);
+                putString(block, email);
+                recordsInBlock++;
+                rows++;
+            }
+            if (recordsInBlock > 0) {
+                writeBlock(channel, block, recordsInBlock);
+            }
+        }
+        return new Result(rows, rows, System.nanoTime() - began);
+    }
+
+    private static Result addParsed(StudentDAO dao, List<List<Student>> parsed, long[] rejected, long began) {
+        int total = 0;
+        for (List<Student> students : parsed) {
+            total += students.size();
+        }
+        List<Student> all = new ArrayList<>(total);
+        parsed.forEach(all::addAll);
+        long malformed = 0;
+        for (long count : rejected) {
+            malformed += count;
+        }
+        int accepted = dao.addStudents(all);
+        return new Result(total + malformed, accepted, System.nanoTime() - began);
+    }
+
+    /**
+     * Runs the parser over segments 0 to {@code count - 1} on the common fork-join pool.
+     */
+    private static void parseInParallel(int count, SegmentParser parser) throws IOException {
+        try {
+            ForkJoinPool.commonPool().invoke(new ParseTask(0, count, parser));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses one segment of a file; implementations may throw I/O errors.
+     */
+    private interface SegmentParser {
+        void parse(int segment) throws IOException;
+    }
+
+    /**
+     * Splits a range of segments in half until a single segment is left, then parses it.
+     */
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient SegmentParser parser;
+
+        ParseTask(int from, int to, SegmentParser parser) {
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(from, middle, parser), new ParseTask(middle, to, parser));
+            } else if (to > from) {
+                try {
+                    parser.parse(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes text into one reusable buffer and writes it out whenever it fills up.
+     */
+    private static final class TextSink {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        TextSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void append(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Splits one CSV line into fields, honouring double-quoted fields.
+     */
+    static List<String> parseCsvLine(byte[] line, int length) {
+        List<String> fields = new ArrayList<>(4);
+        int i = 0;
+        while (true) {
+            if (i < length && line[i] == '"') {
+                StringBuilder field = new StringBuilder();
+                int runStart = ++i;
+                while (i < length) {
+                    if (line[i] == '"') {
+                        field.append(new String(line, runStart, i - runStart, StandardCharsets.UTF_8));
+                        if (i + 1 < length && line[i + 1] == '"') {
+                            field.append('"');
+                            i += 2;
+                            runStart = i;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+                fields.add(field.toString());
+                while (i < length && line[i] != ',') {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < length && line[i] != ',') {
+                    i++;
+                }
+                fields.add(new String(line, start, i - start, StandardCharsets.UTF_8));
+            }
+            if (i >= length) {
+                return fields;
+            }
+            i++; // Skip the comma.
+        }
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static int columnOf(List<String> header, String name) throws IOException {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IOException("CSV header has no '" + name + "' column.");
+    }
+
+    /**
+     * Returns the position just after the next newline at or after {@code from},
+     * or the file size if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        for (long position = from; position < size; ) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static int trimLineEnd(byte[] line, int length) {
+        while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+            length--;
+        }
+        return length;
+    }
+
+    private static boolean isCsv(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    private static FileChannel openForWrite(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer block, int records) throws IOException {
+        block.putInt(0, block.position() - 8);
+        block.putInt(4, records);
+        block.flip();
+        writeFully(channel, block);
+        block.clear();
+        block.position(8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #putString}, checking its length against the
+     * bytes left in the block so a corrupt file fails with an IOException.
+     */
+    private static String getString(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.remaining() < 4) {
+            throw new IOException("Corrupt student binary file: " + file);
+        }
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt student binary file: " + file);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+}
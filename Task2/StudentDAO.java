@@ -1,34 +1,208 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) for Student records.
  * This class handles all the data operations (CRUD) for the students.
- * In this simple example, we are using an in-memory ArrayList as our database.
+ * The records themselves are kept by a {@link StudentStore}: by default an
+ * in-memory hash table keyed by student ID, so lookups, updates and deletes take
+ * constant time while listing keeps insertion order.
+ * <p>
+ * The DAO also maintains secondary indexes on email (unique) and grade (sorted),
+ * so students can be found by those fields without scanning every record.
+ * <p>
+ * A DAO created with {@link #durable(Path, FsyncPolicy)} keeps its records on disk
+ * and must be closed when it is no longer needed.
  */
-public class StudentDAO {
-    private final List<Student> studentList = new ArrayList<>();
-    private int nextId = 1; // Used to auto-generate student IDs.
+public class StudentDAO implements Closeable {
+    private static final int WRITE_LOCK_STRIPES = 64; // Must be a power of two.
+
+    private final StudentStore store;
+    private final StudentIndexes indexes;
+    // Writes to the same student serialize on one stripe so the store and the
+    // indexes change together; writes to different students rarely share one.
+    private final Object[] writeLocks = new Object[WRITE_LOCK_STRIPES];
+
+    /**
+     * Constructs a DAO backed by the default single-threaded, in-memory store.
+     */
+    public StudentDAO() {
+        this(new HashStudentStore());
+    }
+
+    /**
+     * Constructs a DAO backed by the given store, indexing any records it already holds.
+     *
+     * @param store The storage engine that holds the records.
+     */
+    StudentDAO(StudentStore store) {
+        this.store = store;
+        this.indexes = new StudentIndexes(store.isThreadSafe());
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new Object();
+        }
+        store.forEach(indexes::add);
+    }
+
+    /**
+     * Creates a DAO that can be shared by many threads.
+     * IDs are generated atomically, reads never block, and writes to different
+     * students proceed in parallel.
+     *
+     * @return A new thread-safe DAO.
+     */
+    public static StudentDAO concurrent() {
+        return new StudentDAO(new ConcurrentStudentStore());
+    }
+
+    /**
+     * Creates a single-threaded DAO that stores records in compact primitive columns
+     * instead of one object per student. It uses far less heap for large rosters,
+     * at the cost of creating a {@code Student} object on every read.
+     *
+     * @return A new columnar DAO.
+     */
+    public static StudentDAO columnar() {
+        return new StudentDAO(new ColumnarStudentStore());
+    }
+
+    /**
+     * Opens a thread-safe DAO whose records survive restarts.
+     * Every change is written to an append-only log in the directory before it is
+     * acknowledged, and the log is periodically compacted into a snapshot. Records
+     * saved by an earlier run are recovered, and new IDs continue where it left off.
+     *
+     * @param directory The directory holding the snapshot and log files.
+     * @param policy    When log records are forced to disk.
+     * @return A DAO holding the recovered records.
+     * @throws IOException if the saved state cannot be read.
+     */
+    public static StudentDAO durable(Path directory, FsyncPolicy policy) throws IOException {
+        return new StudentDAO(new DurableStudentStore(new ConcurrentStudentStore(), directory, policy,
+                DurableStudentStore.DEFAULT_CHECKPOINT_EVERY));
+    }
 
     /**
-     * C - Create: Adds a new student to the list.
+     * C - Create: Adds a new student.
      * The ID for the new student is generated automatically.
      *
      * @param student The student object to be added.
+     * @throws IllegalArgumentException if another student already has the same email.
      */
     public void addStudent(Student student) {
-        student.setId(nextId++);
-        studentList.add(student);
+        int id = store.nextId();
+        student.setId(id);
+        synchronized (writeLockFor(id)) {
+            indexes.add(student);
+            try {
+                store.insert(student);
+            } catch (RuntimeException e) {
+                // A durable store could not log it; free the email for a retry.
+                indexes.remove(id, student.getEmail(), student.getGrade());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * C - Create: Adds a batch of new students, generating an ID for each.
+     * Students whose email is already registered (including earlier in the same
+     * batch) are skipped and keep an ID of 0. The accepted students are handed to
+     * the store in one batch; if the store rejects it, none are added and all keep
+     * an ID of 0.
+     *
+     * @param students The students to add.
+     * @return The number of students that were added.
+     */
+    public int addStudents(List<Student> students) {
+        List<Student> accepted = new ArrayList<>(students.size());
+        for (Student student : students) {
+            int id = store.nextId();
+            synchronized (writeLockFor(id)) {
+                student.setId(id);
+                try {
+                    indexes.add(student);
+                } catch (IllegalArgumentException e) {
+                    student.setId(0);
+                    continue;
+                }
+                accepted.add(student);
+            }
+        }
+        try {
+            store.insertAll(accepted);
+        } catch (RuntimeException e) {
+            for (Student student : accepted) {
+                synchronized (writeLockFor(student.getId())) {
+                    indexes.remove(student.getId(), student.getEmail(), student.getGrade());
+                }
+                student.setId(0);
+            }
+            throw e;
+        }
+        return accepted.size();
     }
 
     /**
-     * R - Read: Retrieves all students from the list.
+     * R - Read: Retrieves all students, in the order they were added.
      *
      * @return A list of all students.
      */
     public List<Student> getAllStudents() {
-        return new ArrayList<>(studentList); // Return a copy to prevent external modification
+        List<Student> students = new ArrayList<>(store.size()); // Return a copy to prevent external modification
+        store.forEach(students::add);
+        return students;
+    }
+
+    /**
+     * R - Read: Retrieves one page of students, in the order they were added.
+     * Only the requested page is copied, so the cost grows with {@code limit}
+     * rather than with the number of stored students.
+     *
+     * @param offset The number of students to skip.
+     * @param limit  The maximum number of students to return.
+     * @return A list of at most {@code limit} students.
+     */
+    public List<Student> page(int offset, int limit) {
+        checkPage(offset, limit);
+        List<Student> students = new ArrayList<>(Math.min(limit, store.size()));
+        store.forEachInPage(offset, limit, students::add);
+        return students;
+    }
+
+    /**
+     * R - Read: Retrieves up to {@code limit} students whose ID is at least
+     * {@code fromId}, in ID order. To walk through every student, start at ID 1 and
+     * continue each time from one past the last ID returned.
+     *
+     * @param fromId The smallest ID to include.
+     * @param limit  The maximum number of students to return.
+     * @return A list of at most {@code limit} students.
+     */
+    public List<Student> scanFrom(int fromId, int limit) {
+        checkPage(0, limit);
+        List<Student> students = new ArrayList<>(Math.min(limit, store.size()));
+        store.forEachFromId(fromId, limit, students::add);
+        return students;
+    }
+
+    /**
+     * R - Read: Returns a lazily evaluated stream over all students, in the order
+     * they were added. Nothing is copied up front. With the default store the
+     * stream reads a snapshot taken when it is opened; with a concurrent store it is
+     * weakly consistent. With the default store, the first update or delete made while
+     * a stream is open, or after one was abandoned before its end, copies the whole
+     * table once; read streams to the end to avoid that.
+     *
+     * @return A stream of students.
+     */
+    public Stream<Student> stream() {
+        return store.stream();
     }
 
     /**
@@ -38,9 +212,64 @@ public class StudentDAO {
      * @return An Optional containing the student if found, otherwise an empty Optional.
      */
     public Optional<Student> getStudentById(int id) {
-        return studentList.stream()
-                .filter(student -> student.getId() == id)
-                .findFirst();
+        return Optional.ofNullable(store.get(id));
+    }
+
+    /**
+     * R - Read: Finds the student registered with an email, ignoring case.
+     *
+     * @param email The email to look up.
+     * @return An Optional containing the student if found, otherwise an empty Optional.
+     */
+    public Optional<Student> findByEmail(String email) {
+        Integer id = indexes.idForEmail(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        // Re-check the record: a concurrent update may have moved the email.
+        String key = StudentIndexes.emailKey(email);
+        return Optional.ofNullable(store.get(id))
+                .filter(student -> key.equals(StudentIndexes.emailKey(student.getEmail())));
+    }
+
+    /**
+     * R - Read: Finds all students in a grade, in ID order.
+     *
+     * @param grade The exact grade to match.
+     * @return A list of matching students.
+     */
+    public List<Student> findByGrade(String grade) {
+        List<Student> students = new ArrayList<>();
+        indexes.forEachIdInGrade(grade, id -> addIfMatching(students, id, grade, grade + '\0'));
+        return students;
+    }
+
+    /**
+     * R - Read: Finds all students whose grade starts with a prefix,
+     * ordered by grade and then by ID.
+     *
+     * @param prefix The grade prefix, e.g. "B.Sc.".
+     * @return A list of matching students.
+     */
+    public List<Student> findByGradePrefix(String prefix) {
+        List<Student> students = new ArrayList<>();
+        indexes.forEachIdWithGradePrefix(prefix, id -> addIfMatching(students, id, prefix, null));
+        return students;
+    }
+
+    /**
+     * R - Read: Finds all students whose grade lies in [fromInclusive, toExclusive),
+     * ordered by grade and then by ID.
+     *
+     * @param fromInclusive The lowest grade to include.
+     * @param toExclusive   The first grade past the range.
+     * @return A list of matching students.
+     */
+    public List<Student> findByGradeRange(String fromInclusive, String toExclusive) {
+        List<Student> students = new ArrayList<>();
+        indexes.forEachIdInGradeRange(fromInclusive, toExclusive,
+                id -> addIfMatching(students, id, fromInclusive, toExclusive));
+        return students;
     }
 
     /**
@@ -48,26 +277,110 @@ public class StudentDAO {
      *
      * @param updatedStudent The student object with updated information.
      * @return true if the student was found and updated, false otherwise.
+     * @throws IllegalArgumentException if the new email belongs to another student.
      */
     public boolean updateStudent(Student updatedStudent) {
-        Optional<Student> studentOptional = getStudentById(updatedStudent.getId());
-        if (studentOptional.isPresent()) {
-            Student existingStudent = studentOptional.get();
-            existingStudent.setName(updatedStudent.getName());
-            existingStudent.setGrade(updatedStudent.getGrade());
-            existingStudent.setEmail(updatedStudent.getEmail());
+        int id = updatedStudent.getId();
+        synchronized (writeLockFor(id)) {
+            Student existingStudent = store.get(id);
+            if (existingStudent == null) {
+                return false;
+            }
+            // Capture the indexed values before the store swaps in the new record.
+            String oldEmail = existingStudent.getEmail();
+            String oldGrade = existingStudent.getGrade();
+            String newEmail = updatedStudent.getEmail();
+            String newGrade = updatedStudent.getGrade();
+            boolean emailChanged = !sameKey(StudentIndexes.emailKey(oldEmail), StudentIndexes.emailKey(newEmail));
+            boolean gradeChanged = !sameKey(oldGrade, newGrade);
+
+            if (emailChanged) {
+                indexes.reserveEmail(newEmail, id);
+            }
+            if (gradeChanged) {
+                indexes.addGrade(newGrade, id);
+            }
+            try {
+                store.update(updatedStudent);
+            } catch (RuntimeException e) {
+                if (emailChanged) {
+                    indexes.releaseEmail(newEmail, id);
+                }
+                if (gradeChanged) {
+                    indexes.removeGrade(newGrade, id);
+                }
+                throw e;
+            }
+            if (emailChanged) {
+                indexes.releaseEmail(oldEmail, id);
+            }
+            if (gradeChanged) {
+                indexes.removeGrade(oldGrade, id);
+            }
             return true;
         }
-        return false;
     }
 
     /**
-     * D - Delete: Removes a student from the list by their ID.
+     * D - Delete: Removes a student by their ID.
      *
      * @param id The ID of the student to be deleted.
      * @return true if the student was found and deleted, false otherwise.
      */
     public boolean deleteStudent(int id) {
-        return studentList.removeIf(student -> student.getId() == id);
+        synchronized (writeLockFor(id)) {
+            Student existingStudent = store.get(id);
+            if (existingStudent == null) {
+                return false;
+            }
+            String email = existingStudent.getEmail();
+            String grade = existingStudent.getGrade();
+            store.delete(id);
+            indexes.remove(id, email, grade);
+            return true;
+        }
+    }
+
+    /**
+     * Releases the underlying store. For durable DAOs this flushes the log to disk.
+     *
+     * @throws IOException if pending changes cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative.");
+        }
+    }
+
+    private Object writeLockFor(int id) {
+        return writeLocks[id & (WRITE_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Resolves an ID from a grade index and adds the student if its grade still
+     * matches. The re-check filters out index entries that a concurrent update has
+     * not yet cleaned up. A null {@code toExclusive} means {@code from} is a prefix.
+     */
+    private void addIfMatching(List<Student> students, int id, String from, String toExclusive) {
+        Student student = store.get(id);
+        if (student == null || student.getGrade() == null) {
+            return;
+        }
+        String grade = student.getGrade();
+        boolean matches = toExclusive == null
+                ? grade.startsWith(from)
+                : grade.compareTo(from) >= 0 && grade.compareTo(toExclusive) < 0;
+        if (matches) {
+            students.add(student);
+        }
+    }
+
+    private static boolean sameKey(String a, String b) {
+        return a == null ? b == null : a.equals(b);
     }
 }
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Contention benchmark for the thread-safe DAO modes.
+ * Compares {@link StudentDAO#concurrent()} against the same operations behind a
+ * single global lock, at doubling thread counts, with a read-heavy mix of
+ * 80% lookups, 10% updates, 5% inserts and 5% deletes.
+ * <p>
+ * Usage: {@code java StudentDAOBenchmark [secondsPerRun] [maxThreads]}
+ */
+public class StudentDAOBenchmark {
+    private static final int PRELOADED_STUDENTS = 100_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Supplier<StudentDAO> globalLock = () -> new StudentDAO(new SynchronizedStudentStore(new HashStudentStore()));
+        Supplier<StudentDAO> concurrent = StudentDAO::concurrent;
+
+        // Warm up both code paths before measuring.
+        run(globalLock, maxThreads, 1);
+        run(concurrent, maxThreads, 1);
+
+        System.out.println("--- StudentDAO contention benchmark (" + seconds + "s per run) ---");
+        System.out.printf("%8s %18s %18s %9s%n", "threads", "global lock ops/s", "concurrent ops/s", "speedup");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double locked = run(globalLock, threads, seconds);
+            double striped = run(concurrent, threads, seconds);
+            System.out.printf("%8d %18.0f %18.0f %8.2fx%n", threads, locked, striped, striped / locked);
+        }
+    }
+
+    /**
+     * Runs the operation mix against a freshly loaded DAO.
+     *
+     * @return The total throughput in operations per second.
+     */
+    private static double run(Supplier<StudentDAO> daoFactory, int threads, int seconds) throws InterruptedException {
+        StudentDAO dao = daoFactory.get();
+        for (int i = 0; i < PRELOADED_STUDENTS; i++) {
+            dao.addStudent(new Student(0, "Student " + i, "Grade " + (i % 12), "student" + (i + 1) + "@school.edu"));
+        }
+
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while ((done & 0xFF) != 0 || System.nanoTime() < deadline) {
+                    int id = 1 + random.nextInt(PRELOADED_STUDENTS);
+                    int op = random.nextInt(100);
+                    if (op < 80) {
+                        dao.getStudentById(id);
+                    } else if (op < 90) {
+                        dao.updateStudent(new Student(id, "Renamed " + id, "Grade 1", "student" + id + "@school.edu"));
+                    } else if (op < 95) {
+                        dao.addStudent(new Student(0, "New", "Grade 2", "new" + Thread.currentThread().getId() + "." + done + "@school.edu"));
+                    } else {
+                        dao.deleteStudent(id);
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - began) / 1e9;
+        return operations.sum() / elapsedSeconds;
+    }
+}
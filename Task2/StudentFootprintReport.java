@@ -0,0 +1,135 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Compares the heap footprint and garbage-collection cost of three ways to hold a
+ * large roster: a plain {@code ArrayList<Student>}, the default
+ * {@link HashStudentStore}, and the {@link ColumnarStudentStore}.
+ * <p>
+ * For each layout the report builds the roster, measures the heap it retains after a
+ * full collection, times an explicit full collection with the roster still live, and
+ * then runs a read workload that churns short-lived objects while recording how many
+ * collections ran and how long they took. Only the storage is measured; the DAO's
+ * email and grade indexes are left out because they are the same for every layout.
+ * <p>
+ * Usage: {@code java StudentFootprintReport [rows] [churnSeconds]}
+ * (run with a fixed heap, e.g. {@code -Xms4g -Xmx4g}, for steadier numbers).
+ */
+public class StudentFootprintReport {
+    private static final String[] GRADES = {"9th", "10th", "11th", "12th", "B.Sc. CS", "B.Sc. Math", "B.A. History"};
+
+    private static Object retained; // Keeps the roster under test reachable.
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int churnSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.println("--- Student storage footprint (" + rows + " rows) ---");
+        System.out.printf("%-22s %14s %10s %12s %10s %12s %10s%n",
+                "Layout", "Retained heap", "B/row", "Full GC ms", "GCs", "GC ms", "Reads/s");
+
+        report("ArrayList<Student>", rows, churnSeconds, StudentFootprintReport::arrayList);
+        report("HashStudentStore", rows, churnSeconds, count -> fill(new HashStudentStore(), count));
+        ColumnarStudentStore columnar = report("ColumnarStudentStore", rows, churnSeconds,
+                count -> fill(new ColumnarStudentStore(), count));
+        System.out.printf("Columnar arrays hold %,d bytes (columns, text arena and grade dictionary).%n",
+                columnar.footprintBytes());
+    }
+
+    /**
+     * Builds one layout, measures it and returns it.
+     */
+    private static <T> T report(String name, int rows, int churnSeconds, IntFunction<T> build) {
+        retained = null;
+        long before = usedHeapAfterGc();
+        T roster = build.apply(rows);
+        retained = roster;
+        long after = usedHeapAfterGc();
+
+        long fullGcNanos = System.nanoTime();
+        System.gc();
+        fullGcNanos = System.nanoTime() - fullGcNanos;
+
+        long[] gcBefore = gcTotals();
+        long reads = churn(roster, rows, churnSeconds);
+        long[] gcAfter = gcTotals();
+
+        long bytes = after - before;
+        System.out.printf("%-22s %,14d %10.1f %12.1f %10d %12d %,10d%n", name, bytes, (double) bytes / rows,
+                fullGcNanos / 1e6, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], reads / churnSeconds);
+        retained = null;
+        return roster;
+    }
+
+    private static List<Student> arrayList(int rows) {
+        List<Student> students = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            students.add(sample(i + 1));
+        }
+        return students;
+    }
+
+    private static <S extends StudentStore> S fill(S store, int rows) {
+        for (int i = 0; i < rows; i++) {
+            Student student = sample(store.nextId());
+            store.insert(student);
+        }
+        return store;
+    }
+
+    private static Student sample(int id) {
+        return new Student(id, "Student " + id, GRADES[id % GRADES.length], "student" + id + "@example.com");
+    }
+
+    /**
+     * Reads random students for the given time, building a short-lived string from
+     * each so the young generation keeps filling up while the roster stays live.
+     *
+     * @return The number of reads done.
+     */
+    @SuppressWarnings("unchecked")
+    private static long churn(Object roster, int rows, int seconds) {
+        Random random = new Random(42);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long reads = 0;
+        long checksum = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 10_000; i++) {
+                int id = 1 + random.nextInt(rows);
+                Student student = roster instanceof List
+                        ? ((List<Student>) roster).get(id - 1)
+                        : ((StudentStore) roster).get(id);
+                checksum += student.toString().length();
+            }
+            reads += 10_000;
+        }
+        if (checksum == 42) {
+            System.out.println(); // Keeps the reads from being optimized away.
+        }
+        return reads;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Sums collection counts and times over every collector.
+     *
+     * @return {@code [collections, milliseconds]}.
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+}
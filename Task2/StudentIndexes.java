@@ -0,0 +1,183 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Secondary indexes over student records.
+ * <ul>
+ *   <li>A unique hash index from email to student ID. Emails are compared
+ *       case-insensitively; blank emails are not indexed.</li>
+ *   <li>A sorted index from grade to the IDs of the students in that grade,
+ *       which answers exact, prefix and range queries in O(log n + k).</li>
+ * </ul>
+ * The indexes only hold IDs; callers resolve them through the store. Keeping the
+ * indexes in step with the store is the caller's job (see {@link StudentDAO}).
+ */
+class StudentIndexes {
+    private final Map<String, Integer> byEmail;
+    private final NavigableMap<String, NavigableSet<Integer>> byGrade;
+    private final boolean concurrent;
+
+    /**
+     * Constructs empty indexes.
+     *
+     * @param concurrent true to use thread-safe maps, for stores shared between threads.
+     */
+    public StudentIndexes(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.byEmail = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.byGrade = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+    }
+
+    /**
+     * Indexes a new student.
+     *
+     * @param student The student, with its ID already assigned.
+     * @throws IllegalArgumentException if another student already has the same email.
+     */
+    public void add(Student student) {
+        reserveEmail(student.getEmail(), student.getId());
+        addGrade(student.getGrade(), student.getId());
+    }
+
+    /**
+     * Removes a student from the indexes.
+     *
+     * @param id    The ID of the student.
+     * @param email The email the student was indexed under.
+     * @param grade The grade the student was indexed under.
+     */
+    public void remove(int id, String email, String grade) {
+        releaseEmail(email, id);
+        removeGrade(grade, id);
+    }
+
+    /**
+     * Claims an email for a student ID.
+     *
+     * @throws IllegalArgumentException if the email belongs to a different student.
+     */
+    public void reserveEmail(String email, int id) {
+        String key = emailKey(email);
+        if (key == null) {
+            return;
+        }
+        Integer owner = byEmail.putIfAbsent(key, id);
+        if (owner != null && owner != id) {
+            throw new IllegalArgumentException("Email " + email + " is already registered to student ID " + owner + ".");
+        }
+    }
+
+    /**
+     * Releases an email, but only if it is still held by the given ID.
+     */
+    public void releaseEmail(String email, int id) {
+        String key = emailKey(email);
+        if (key != null) {
+            byEmail.remove(key, id);
+        }
+    }
+
+    /**
+     * Adds a student ID under a grade. Adding and removing lock the grade's set, and
+     * an empty set is only dropped while locked, so an ID is never added to a set
+     * that has already left the map.
+     */
+    public void addGrade(String grade, int id) {
+        if (grade == null) {
+            return;
+        }
+        while (true) {
+            NavigableSet<Integer> ids = byGrade.computeIfAbsent(grade,
+                    g -> concurrent ? new ConcurrentSkipListSet<>() : new TreeSet<>());
+            synchronized (ids) {
+                if (byGrade.get(grade) == ids) {
+                    ids.add(id);
+                    return;
+                }
+            }
+            // The set emptied and was dropped before we locked it; fetch its replacement.
+        }
+    }
+
+    /**
+     * Removes a student ID from a grade, dropping the grade once it is empty.
+     */
+    public void removeGrade(String grade, int id) {
+        if (grade == null) {
+            return;
+        }
+        NavigableSet<Integer> ids = byGrade.get(grade);
+        if (ids == null) {
+            return;
+        }
+        synchronized (ids) {
+            if (ids.remove(id) && ids.isEmpty()) {
+                byGrade.remove(grade, ids);
+            }
+        }
+    }
+
+    /**
+     * Looks up the student ID registered for an email.
+     *
+     * @param email The email to look up.
+     * @return The ID, or null if no student has this email.
+     */
+    public Integer idForEmail(String email) {
+        String key = emailKey(email);
+        return key == null ? null : byEmail.get(key);
+    }
+
+    /**
+     * Passes the IDs of all students in a grade to the action, in ID order.
+     */
+    public void forEachIdInGrade(String grade, IntConsumer action) {
+        byGrade.getOrDefault(grade, Collections.emptyNavigableSet()).forEach(action::accept);
+    }
+
+    /**
+     * Passes the IDs of all students whose grade starts with the prefix to the
+     * action, ordered by grade and then by ID.
+     */
+    public void forEachIdWithGradePrefix(String prefix, IntConsumer action) {
+        for (Map.Entry<String, NavigableSet<Integer>> entry : byGrade.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            entry.getValue().forEach(action::accept);
+        }
+    }
+
+    /**
+     * Passes the IDs of all students whose grade lies in [from, to) to the action,
+     * ordered by grade and then by ID.
+     */
+    public void forEachIdInGradeRange(String fromInclusive, String toExclusive, IntConsumer action) {
+        if (fromInclusive.compareTo(toExclusive) >= 0) {
+            return;
+        }
+        for (NavigableSet<Integer> ids : byGrade.subMap(fromInclusive, true, toExclusive, false).values()) {
+            ids.forEach(action::accept);
+        }
+    }
+
+    /**
+     * Returns the key under which an email is indexed, or null if it is not indexed.
+     */
+    static String emailKey(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that the grade index of a concurrent {@link StudentDAO} never loses a
+ * student while students move between grades.
+ * <p>
+ * Each thread owns one student. In every phase all threads move their student to
+ * another of a few grades at the same moment, so one student often leaves a grade
+ * as the last one in it while another joins it. This is the case that once dropped
+ * the joining student with the emptied grade. After each phase, every grade must
+ * list exactly the students whose records hold it.
+ * <p>
+ * Usage: {@code java StudentIndexesStressTest [phases] [threads] [seed]}; exits with
+ * status 1 if any check fails.
+ */
+public class StudentIndexesStressTest {
+    private static final String[] GRADES = {"G", "H", "Z"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int phases = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        StudentDAO dao = StudentDAO.concurrent();
+        int[] ids = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            Student student = new Student(0, "Student " + t, GRADES[t % GRADES.length], null);
+            dao.addStudent(student);
+            ids[t] = student.getId();
+        }
+
+        AtomicInteger phase = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(threads, () -> {
+            if (!verify(dao)) {
+                violations.incrementAndGet();
+            }
+            phase.incrementAndGet();
+        });
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed * 31 + worker);
+                try {
+                    for (int p = 0; p < phases; p++) {
+                        Student current = dao.getStudentById(ids[worker]).orElseThrow(IllegalStateException::new);
+                        String grade = current.getGrade();
+                        String next = grade;
+                        while (next.equals(grade)) {
+                            next = GRADES[random.nextInt(GRADES.length)];
+                        }
+                        dao.updateStudent(new Student(ids[worker], current.getName(), next, null));
+                        barrier.await();
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        if (violations.get() != 0) {
+            System.out.println("FAILED: the grade index disagreed with the records after " + violations.get()
+                    + " of " + phase.get() + " phases.");
+            System.exit(1);
+        }
+        System.out.printf("PASSED: %,d phases of %d concurrent grade moves.%n", phase.get(), threads);
+    }
+
+    /**
+     * Returns whether every grade lists exactly the students whose records hold it.
+     */
+    private static boolean verify(StudentDAO dao) {
+        for (String grade : GRADES) {
+            List<Integer> indexed = new ArrayList<>();
+            for (Student student : dao.findByGrade(grade)) {
+                indexed.add(student.getId());
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (Student student : dao.getAllStudents()) {
+                if (grade.equals(student.getGrade())) {
+                    expected.add(student.getId());
+                }
+            }
+            if (!indexed.equals(expected)) {
+                System.out.println("Grade " + grade + " lists " + indexed + " but the records hold " + expected + ".");
+                return false;
+            }
+        }
+        return true;
+    }
+}
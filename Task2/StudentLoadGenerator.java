@@ -0,0 +1,261 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Drives a {@link StudentServer} with many concurrent clients and reports throughput
+ * and latency percentiles.
+ * <p>
+ * All clients run on one selector thread. Each keeps {@code pipelineDepth} requests in
+ * flight (80% GET, 10% UPDATE, 10% ADD against a preloaded roster) and sends a new one
+ * as soon as a response arrives. Latency is measured from the moment a request is
+ * written to the moment its response line is read. Because the clients wait for
+ * responses before sending more, this is a closed-loop test: it shows how the server
+ * behaves at saturation, not how it queues a fixed offered load.
+ * <p>
+ * Usage: {@code java StudentLoadGenerator [port] [clients] [seconds] [pipelineDepth] [host]}.
+ * Port 0 starts an in-memory server in the same JVM.
+ */
+public class StudentLoadGenerator {
+    private static final int PRELOADED_STUDENTS = 10_000;
+
+    private final int clients;
+    private final int pipelineDepth;
+    private final String runTag = Long.toString(System.nanoTime(), 36);
+    private final Random random = new Random(7);
+    private int maxId;
+    private long[] latencies = new long[1 << 20];
+    private int samples;
+    private long errors;
+    private boolean recording;
+
+    private StudentLoadGenerator(int clients, int pipelineDepth) {
+        this.clients = clients;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : StudentServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int pipelineDepth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        String host = args.length > 4 ? args[4] : "localhost";
+
+        StudentServer embedded = null;
+        if (port == 0) {
+            int eventLoops = Math.max(2, Runtime.getRuntime().availableProcessors());
+            embedded = new StudentServer(StudentDAO.concurrent(), new InetSocketAddress(host, 0), eventLoops);
+            port = embedded.port();
+        }
+        try {
+            StudentLoadGenerator generator = new StudentLoadGenerator(clients, pipelineDepth);
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            generator.preload(address);
+            System.out.println("--- Student server load (" + clients + " clients, pipeline depth " + pipelineDepth
+                    + ", " + seconds + " s) ---");
+            generator.run(address, seconds);
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the roster that GET and UPDATE requests pick from, over one pipelined connection.
+     */
+    private void preload(InetSocketAddress address) throws IOException {
+        try (Socket socket = new Socket(address.getHostString(), address.getPort())) {
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int batch = 0; batch < PRELOADED_STUDENTS; batch += 1000) {
+                for (int i = batch; i < batch + 1000; i++) {
+                    out.write("ADD\tLoad Student " + i + "\t10th\tpreload-" + runTag + "-" + i + "@example.com\n");
+                }
+                out.flush();
+                for (int i = 0; i < 1000; i++) {
+                    String[] response = in.readLine().split("\t");
+                    if (!response[0].equals("OK")) {
+                        throw new IOException("Preload failed: " + String.join(" ", response));
+                    }
+                    maxId = Math.max(maxId, Integer.parseInt(response[1]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens every client connection, warms up for a second, then measures.
+     */
+    private void run(InetSocketAddress address, int seconds) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clients; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Client(channel, i));
+            }
+            long warmupEnd = System.nanoTime() + 1_000_000_000L;
+            long end = warmupEnd + seconds * 1_000_000_000L;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                recording = now >= warmupEnd;
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    if (key.isConnectable()) {
+                        client.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        client.fill();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        client.receive(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        client.flush(key);
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+        report(seconds);
+    }
+
+    private void report(int seconds) {
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        System.out.printf("Requests: %,d (%,d/s), errors: %,d%n", samples, samples / seconds, errors);
+        if (samples > 0) {
+            System.out.printf("Latency  p50 %.3f ms  p99 %.3f ms  p999 %.3f ms  max %.3f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, rank)] / 1e6;
+    }
+
+    private void record(long nanos) {
+        if (!recording) {
+            return;
+        }
+        if (samples == latencies.length) {
+            latencies = Arrays.copyOf(latencies, samples * 2);
+        }
+        latencies[samples++] = nanos;
+    }
+
+    /**
+     * One client connection with its in-flight requests.
+     */
+    private final class Client {
+        final SocketChannel channel;
+        final int number;
+        final long[] sentAt = new long[pipelineDepth]; // Ring of send times, oldest first.
+        int oldest;
+        int inFlight;
+        int added;
+        boolean lineStart = true;
+        final ByteBuffer in = ByteBuffer.allocate(8192);
+        ByteBuffer out = ByteBuffer.allocate(1024); // Kept in write mode between flushes.
+
+        Client(SocketChannel channel, int number) {
+            this.channel = channel;
+            this.number = number;
+        }
+
+        /**
+         * Tops the pipeline back up to its depth.
+         */
+        void fill() throws IOException {
+            while (inFlight < pipelineDepth) {
+                byte[] request = nextRequest().getBytes(StandardCharsets.UTF_8);
+                if (out.remaining() < request.length) {
+                    ByteBuffer larger = ByteBuffer.allocate(out.capacity() * 2 + request.length);
+                    out.flip();
+                    larger.put(out);
+                    out = larger;
+                }
+                out.put(request);
+                sentAt[(oldest + inFlight) % pipelineDepth] = System.nanoTime();
+                inFlight++;
+            }
+            out.flip();
+            channel.write(out);
+            out.compact();
+        }
+
+        void flush(SelectionKey key) throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Reads responses; every completed line finishes the oldest request.
+         */
+        void receive(SelectionKey key) throws IOException {
+            in.clear();
+            if (channel.read(in) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            long now = System.nanoTime();
+            for (int i = 0; i < in.position(); i++) {
+                byte b = in.get(i);
+                if (lineStart && b == 'E') {
+                    errors++;
+                }
+                lineStart = b == '\n';
+                if (lineStart) {
+                    record(now - sentAt[oldest]);
+                    oldest = (oldest + 1) % pipelineDepth;
+                    inFlight--;
+                }
+            }
+            fill();
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        private String nextRequest() {
+            int choice = random.nextInt(10);
+            if (choice == 0) {
+                added++;
+                return "ADD\tLoad Client " + number + "\t11th\tclient-" + runTag + "-" + number + "-" + added
+                        + "@example.com\n";
+            }
+            int id = 1 + random.nextInt(maxId);
+            if (choice == 1) {
+                return "UPDATE\t" + id + "\tRenamed " + number + "\t\t\n";
+            }
+            return "GET\t" + id + "\n";
+        }
+    }
+}
@@ -0,0 +1,314 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead log of student changes.
+ * <p>
+ * Each record is framed as {@code [int payloadLength][int crc32][payload]}, where the
+ * payload is {@code [byte op][int id]} followed by name, grade and email for adds and
+ * updates. A torn or corrupt record at the end of the file (from a crash mid-write)
+ * is detected by its length or checksum and cut off during replay.
+ * <p>
+ * Writers use group commit: a writer encodes its record into a shared buffer and
+ * then waits until the record is on disk. Whichever waiting writer finds no flush in
+ * progress becomes the leader and writes (and, depending on the {@link FsyncPolicy},
+ * forces) everything buffered so far; records that arrive meanwhile go out in the
+ * next batch. Under load one fsync therefore covers many records.
+ */
+class StudentLog implements Closeable {
+    static final byte ADD = 1;
+    static final byte UPDATE = 2;
+    static final byte DELETE = 3;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORDS_PER_COMMIT = 8192;
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchWritten = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16); // Records waiting for the next batch.
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);   // Swapped in while a batch is written.
+    private long appended;   // Sequence number of the last buffered append.
+    private long written;    // Sequence number of the last append on disk.
+    private boolean flushing;
+    private IOException failure; // Set once a write fails; the log is unusable afterwards.
+
+    /**
+     * Opens a log file for appending, creating it if necessary.
+     *
+     * @param file   The log file.
+     * @param policy When records are forced to disk.
+     * @throws IOException if the file cannot be opened.
+     */
+    public StudentLog(Path file, FsyncPolicy policy) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.policy = policy;
+    }
+
+    /**
+     * Appends a record and returns once it is written according to the fsync policy.
+     *
+     * @param op      One of {@link #ADD}, {@link #UPDATE} or {@link #DELETE}.
+     * @param student The student to record; for deletes only the ID is stored.
+     * @throws IOException if the record cannot be written.
+     */
+    public void append(byte op, Student student) throws IOException {
+        appendAll(op, List.of(student));
+    }
+
+    /**
+     * Appends records of the same kind and returns once they are all written
+     * according to the fsync policy. Large lists are committed in slices of
+     * {@value #RECORDS_PER_COMMIT} records, each costing a single write and fsync.
+     *
+     * @param op       One of {@link #ADD}, {@link #UPDATE} or {@link #DELETE}.
+     * @param students The students to record.
+     * @throws IOException if the records cannot be written.
+     */
+    public void appendAll(byte op, List<Student> students) throws IOException {
+        for (int from = 0; from < students.size(); from += RECORDS_PER_COMMIT) {
+            commit(op, students.subList(from, Math.min(students.size(), from + RECORDS_PER_COMMIT)));
+        }
+    }
+
+    private void commit(byte op, List<Student> students) throws IOException {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("Student log is unusable after an earlier write failure.", failure);
+            }
+            for (Student student : students) {
+                encode(op, student);
+            }
+            long sequence = ++appended;
+            if (policy == FsyncPolicy.PER_RECORD) {
+                // No batching: every append pays for its own write and fsync.
+                try {
+                    writeBatch(pending);
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                written = sequence;
+                return;
+            }
+            while (written < sequence) {
+                if (failure != null) {
+                    throw new IOException("Student log write failed.", failure);
+                }
+                if (flushing) {
+                    batchWritten.awaitUninterruptibly();
+                } else {
+                    flushAsLeader();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out the pending batch. Called with the lock held; the lock is released
+     * while the I/O runs so that other writers can keep filling the next batch.
+     */
+    private void flushAsLeader() throws IOException {
+        flushing = true;
+        ByteBuffer batch = pending;
+        pending = spare;
+        long batchEnd = appended;
+        lock.unlock();
+        IOException error = null;
+        try {
+            writeBatch(batch);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+            spare = batch;
+            flushing = false;
+            if (error == null) {
+                written = batchEnd;
+            } else {
+                failure = error;
+            }
+            batchWritten.signalAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+        if (policy != FsyncPolicy.NONE) {
+            channel.force(false);
+        }
+    }
+
+    private void encode(byte op, Student student) {
+        byte[] name = op == DELETE ? null : utf8(student.getName());
+        byte[] grade = op == DELETE ? null : utf8(student.getGrade());
+        byte[] email = op == DELETE ? null : utf8(student.getEmail());
+        int payloadLength = 1 + 4;
+        if (op != DELETE) {
+            payloadLength += 12 + length(name) + length(grade) + length(email);
+        }
+        ensureCapacity(HEADER_BYTES + payloadLength);
+
+        int frameStart = pending.position();
+        pending.putInt(payloadLength);
+        pending.putInt(0); // Checksum, filled in below.
+        int payloadStart = pending.position();
+        pending.put(op);
+        pending.putInt(student.getId());
+        if (op != DELETE) {
+            putBytes(name);
+            putBytes(grade);
+            putBytes(email);
+        }
+        crc.reset();
+        crc.update(pending.array(), payloadStart, payloadLength);
+        pending.putInt(frameStart + 4, (int) crc.getValue());
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            pending.putInt(-1);
+        } else {
+            pending.putInt(bytes.length);
+            pending.put(bytes);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * Flushes anything still buffered, forces it to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                batchWritten.awaitUninterruptibly();
+            }
+            if (failure == null && pending.position() > 0) {
+                writeBatch(pending);
+                written = appended;
+            }
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replays a log file into a store. A torn or corrupt record ends the replay and
+     * the file is truncated just before it, so later appends start on a clean frame.
+     *
+     * @param file   The log file to replay.
+     * @param target The store that receives the changes.
+     * @return The highest student ID seen in the log, or 0 if it holds no records.
+     * @throws IOException if the file cannot be read.
+     */
+    static int replay(Path file, StudentStore target) throws IOException {
+        long validLength = 0;
+        int maxId = 0;
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int payloadLength;
+                int expectedCrc;
+                byte[] payload;
+                try {
+                    payloadLength = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (payloadLength < 5 || payloadLength > (1 << 24)) {
+                        break;
+                    }
+                    payload = new byte[payloadLength];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload, 0, payloadLength);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    break;
+                }
+                maxId = Math.max(maxId, apply(payload, target));
+                validLength += HEADER_BYTES + payloadLength;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        }
+        return maxId;
+    }
+
+    /**
+     * Applies one decoded record to the store.
+     *
+     * @return The student ID the record refers to.
+     */
+    private static int apply(byte[] payload, StudentStore target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        int id = in.readInt();
+        switch (op) {
+            case ADD:
+                target.insert(new Student(id, StudentSnapshot.readString(in), StudentSnapshot.readString(in),
+                        StudentSnapshot.readString(in)));
+                break;
+            case UPDATE:
+                target.update(new Student(id, StudentSnapshot.readString(in), StudentSnapshot.readString(in),
+                        StudentSnapshot.readString(in)));
+                break;
+            case DELETE:
+                target.delete(id);
+                break;
+            default:
+                throw new IOException("Unknown student log operation: " + op);
+        }
+        return id;
+    }
+}
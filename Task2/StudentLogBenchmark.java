@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Write-throughput benchmark for the durable DAO under each {@link FsyncPolicy},
+ * followed by a timed recovery of the data that was written.
+ * <p>
+ * Usage: {@code java StudentLogBenchmark [writesPerThread] [threads...]}
+ */
+public class StudentLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int writesPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            threadCounts.add(Integer.parseInt(args[i]));
+        }
+        if (threadCounts.isEmpty()) {
+            threadCounts = List.of(1, 4, 16);
+        }
+
+        System.out.println("--- Durable StudentDAO write throughput (" + writesPerThread + " adds per thread) ---");
+        System.out.printf("%-13s %8s %14s %14s%n", "policy", "threads", "writes/s", "recovery ms");
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            for (int threads : threadCounts) {
+                Path directory = Files.createTempDirectory("student-log-bench");
+                try {
+                    double writesPerSecond = writeLoad(directory, policy, threads, writesPerThread);
+                    long began = System.nanoTime();
+                    try (StudentDAO recovered = StudentDAO.durable(directory, policy)) {
+                        if (recovered.getAllStudents().size() != threads * writesPerThread) {
+                            throw new IllegalStateException("Recovered the wrong number of students.");
+                        }
+                    }
+                    double recoveryMillis = (System.nanoTime() - began) / 1e6;
+                    System.out.printf("%-13s %8d %14.0f %14.1f%n", policy, threads, writesPerSecond, recoveryMillis);
+                } finally {
+                    deleteRecursively(directory);
+                }
+            }
+        }
+    }
+
+    private static double writeLoad(Path directory, FsyncPolicy policy, int threads, int writesPerThread)
+            throws Exception {
+        AtomicLong failures = new AtomicLong();
+        long began;
+        try (StudentDAO dao = StudentDAO.durable(directory, policy)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int writer = t;
+                writers.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < writesPerThread; i++) {
+                            dao.addStudent(new Student(0, "Student " + i, "Grade " + (i % 12),
+                                    "w" + writer + "." + i + "@school.edu"));
+                        }
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            began = System.nanoTime();
+            writers.forEach(Thread::start);
+            for (Thread writerThread : writers) {
+                writerThread.join();
+            }
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " writer threads failed.");
+        }
+        return (double) threads * writesPerThread / ((System.nanoTime() - began) / 1e9);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The line protocol spoken by {@link StudentServer}.
+ * <p>
+ * Every request is one UTF-8 line of tab-separated fields, and every response starts
+ * with one line beginning {@code OK}, {@code NOT_FOUND} or {@code ERR}:
+ * <pre>
+ * ADD    name grade email        -&gt; OK id
+ * GET    id                      -&gt; OK id name grade email | NOT_FOUND
+ * LIST   fromId limit            -&gt; OK count, then count lines of "id name grade email"
+ * UPDATE id name grade email     -&gt; OK | NOT_FOUND   (an empty field keeps its value)
+ * DELETE id                      -&gt; OK | NOT_FOUND
+ * QUIT                           -&gt; OK, then the server closes the connection
+ * </pre>
+ * Clients may pipeline: they can send many requests without waiting, and the
+ * responses come back in request order. Inside a field, backslash, tab, newline and
+ * carriage return are written as {@code \\}, {@code \t}, {@code \n} and {@code \r}.
+ */
+final class StudentProtocol {
+    static final char SEPARATOR = '\t';
+    static final int MAX_LIST = 1000;
+
+    private final StudentDAO dao;
+
+    StudentProtocol(StudentDAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Runs one request and appends its response, including the final newline.
+     *
+     * @param line     The request line without its line terminator.
+     * @param response Where the response is written.
+     * @return false if the client asked to close the connection.
+     */
+    boolean handle(String line, StringBuilder response) {
+        List<String> fields = split(line);
+        String command = fields.get(0);
+        try {
+            switch (command) {
+                case "ADD":
+                    expectFields(fields, 4);
+                    Student student = new Student(0, fields.get(1), fields.get(2), fields.get(3));
+                    dao.addStudent(student);
+                    response.append("OK").append(SEPARATOR).append(student.getId()).append('\n');
+                    return true;
+                case "GET":
+                    expectFields(fields, 2);
+                    Optional<Student> found = dao.getStudentById(parseId(fields.get(1)));
+                    if (found.isPresent()) {
+                        appendRecord(response.append("OK").append(SEPARATOR), found.get());
+                    } else {
+                        response.append("NOT_FOUND\n");
+                    }
+                    return true;
+                case "LIST":
+                    expectFields(fields, 3);
+                    int limit = Integer.parseInt(fields.get(2));
+                    if (limit < 0 || limit > MAX_LIST) {
+                        throw new IllegalArgumentException("Limit must be between 0 and " + MAX_LIST + ".");
+                    }
+                    List<Student> students = dao.scanFrom(parseId(fields.get(1)), limit);
+                    response.append("OK").append(SEPARATOR).append(students.size()).append('\n');
+                    for (Student each : students) {
+                        appendRecord(response, each);
+                    }
+                    return true;
+                case "UPDATE":
+                    expectFields(fields, 5);
+                    response.append(update(parseId(fields.get(1)), fields.get(2), fields.get(3), fields.get(4))
+                            ? "OK\n" : "NOT_FOUND\n");
+                    return true;
+                case "DELETE":
+                    expectFields(fields, 2);
+                    response.append(dao.deleteStudent(parseId(fields.get(1))) ? "OK\n" : "NOT_FOUND\n");
+                    return true;
+                case "QUIT":
+                    response.append("OK\n");
+                    return false;
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + command);
+            }
+        } catch (NumberFormatException e) {
+            appendError(response, "Not a number: " + e.getMessage());
+        } catch (RuntimeException e) {
+            appendError(response, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Applies an update the way the console does: blank fields keep their current value.
+     */
+    private boolean update(int id, String name, String grade, String email) {
+        Optional<Student> current = dao.getStudentById(id);
+        if (current.isEmpty()) {
+            return false;
+        }
+        Student student = current.get();
+        return dao.updateStudent(new Student(id,
+                name.isEmpty() ? student.getName() : name,
+                grade.isEmpty() ? student.getGrade() : grade,
+                email.isEmpty() ? student.getEmail() : email));
+    }
+
+    private static void appendRecord(StringBuilder response, Student student) {
+        response.append(student.getId()).append(SEPARATOR);
+        escape(student.getName(), response);
+        response.append(SEPARATOR);
+        escape(student.getGrade(), response);
+        response.append(SEPARATOR);
+        escape(student.getEmail(), response);
+        response.append('\n');
+    }
+
+    private static void appendError(StringBuilder response, String message) {
+        response.append("ERR").append(SEPARATOR);
+        escape(message == null ? "Request failed." : message, response);
+        response.append('\n');
+    }
+
+    private static void expectFields(List<String> fields, int count) {
+        if (fields.size() != count) {
+            throw new IllegalArgumentException(fields.get(0) + " takes " + (count - 1) + " fields, got "
+                    + (fields.size() - 1) + ".");
+        }
+    }
+
+    private static int parseId(String field) {
+        return Integer.parseInt(field.trim());
+    }
+
+    /**
+     * Splits a request line on tabs and undoes the escaping of each field.
+     *
+     * @param line The request line.
+     * @return The fields; never empty.
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Appends a field with backslash, tab and line breaks escaped. A null value is
+     * written as an empty field.
+     *
+     * @param value The field value.
+     * @param out   Where the escaped value is written.
+     */
+    static void escape(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A non-blocking network front end for the student CRUD operations, speaking the
+ * line protocol described in {@link StudentProtocol}.
+ * <p>
+ * One acceptor thread hands new connections round-robin to a few event loops. Each
+ * event loop owns a {@link Selector} and serves thousands of connections: it reads
+ * whatever bytes have arrived, runs every complete request line in order, and writes
+ * the responses back in one go, so pipelined requests cost one read and one write per
+ * batch. A connection that does not drain its responses stops being read until it
+ * does. Requests run directly on the event loop; with a durable DAO a write waits for
+ * the log, so several loops are used to let those waits overlap through group commit.
+ * <p>
+ * Usage: {@code java StudentServer [port] [dataDirectory]}
+ */
+public class StudentServer implements Closeable {
+    static final int DEFAULT_PORT = 7070;
+
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int MAX_PENDING_OUTPUT = 256 * 1024; // Stop reading a client past this.
+
+    private final StudentDAO dao;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server socket and starts the acceptor and event loop threads.
+     *
+     * @param dao        The DAO that serves the requests; it must be thread-safe when
+     *                   more than one event loop is used.
+     * @param address    The address to listen on; port 0 picks a free port.
+     * @param eventLoops The number of event loop threads.
+     * @throws IOException if the socket cannot be bound.
+     */
+    public StudentServer(StudentDAO dao, InetSocketAddress address, int eventLoops) throws IOException {
+        this.dao = dao;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 4096);
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop(new StudentProtocol(dao));
+            Thread thread = new Thread(loops[i], "student-server-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        this.acceptor = new Thread(this::acceptLoop, "student-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The local port.
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept(); // Blocking; new clients only.
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Could not accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients, closes every connection and then the DAO.
+     *
+     * @throws IOException if the DAO cannot be closed cleanly.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dao.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        StudentDAO dao = args.length > 1
+                ? StudentDAO.durable(Paths.get(args[1]), FsyncPolicy.GROUP_COMMIT)
+                : StudentDAO.concurrent();
+        int eventLoops = Math.max(2, Runtime.getRuntime().availableProcessors());
+        StudentServer server = new StudentServer(dao, new InetSocketAddress(port), eventLoops);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the student store: " + e.getMessage());
+            }
+        }));
+        System.out.println("Student server listening on port " + server.port() + " with " + eventLoops
+                + " event loops. Press Ctrl+C to stop.");
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One selector thread and the connections registered with it.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final StudentProtocol protocol;
+        private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private final StringBuilder response = new StringBuilder();
+
+        EventLoop(StudentProtocol protocol) throws IOException {
+            this.selector = Selector.open();
+            this.protocol = protocol;
+        }
+
+        void register(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = newChannels.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                flush(key, connection);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                read(key, connection);
+                            }
+                        } catch (IOException e) {
+                            close(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Student server event loop failed: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Nothing left to release.
+                }
+            }
+        }
+
+        /**
+         * Reads what has arrived and runs every complete request line in it.
+         */
+        private void read(SelectionKey key, Connection connection) throws IOException {
+            if (connection.channel.read(connection.in) < 0) {
+                close(key);
+                return;
+            }
+            ByteBuffer in = connection.in;
+            in.flip();
+            response.setLength(0);
+            int lineStart = in.position();
+            for (int i = lineStart; i < in.limit() && !connection.closing; i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > lineStart && in.get(i - 1) == '\r' ? i - 1 : i;
+                    String line = new String(in.array(), lineStart, end - lineStart, StandardCharsets.UTF_8);
+                    if (!line.isEmpty() && !protocol.handle(line, response)) {
+                        connection.closing = true;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            in.position(connection.closing ? in.limit() : lineStart);
+            in.compact();
+            if (!in.hasRemaining()) {
+                // A request line larger than the buffer: grow it, up to a limit.
+                if (in.capacity() >= MAX_LINE_BYTES) {
+                    response.append("ERR").append(StudentProtocol.SEPARATOR).append("Request line too long.\n");
+                    connection.closing = true;
+                } else {
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    larger.put(in);
+                    connection.in = larger;
+                }
+            }
+            if (response.length() > 0) {
+                connection.queue(response.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            flush(key, connection);
+        }
+
+        /**
+         * Writes as much pending output as the socket accepts and picks the events to
+         * wait for next: reads only while the client keeps up with its responses.
+         */
+        private void flush(SelectionKey key, Connection connection) throws IOException {
+            ByteBuffer out = connection.out;
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+            boolean pending = out.position() > 0;
+            if (!pending && connection.closing) {
+                close(key);
+                return;
+            }
+            int ops = 0;
+            if (pending) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            if (!connection.closing && out.position() < MAX_PENDING_OUTPUT) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Already gone.
+            }
+        }
+    }
+
+    /**
+     * The buffers of one client connection.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(4096);
+        ByteBuffer out = ByteBuffer.allocate(4096); // Kept in write mode between flushes.
+        boolean closing;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void queue(byte[] bytes) {
+            if (out.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes.length));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            out.put(bytes);
+        }
+    }
+}
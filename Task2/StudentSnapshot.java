@@ -0,0 +1,128 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Reads and writes compacted snapshots of the student table.
+ * <p>
+ * File layout: a header {@code [int magic][int version][int nextId][long logGeneration][int count]},
+ * then {@code count} records of {@code [int id][name][grade][email]}, then the CRC32 of
+ * everything before it. Strings are written as {@code [int length][UTF-8 bytes]},
+ * with length -1 for null. A snapshot is written to a temporary file and renamed into
+ * place, so readers only ever see a complete one.
+ */
+class StudentSnapshot {
+    private static final int MAGIC = 0x53545553; // "STUS"
+    private static final int VERSION = 1;
+
+    /** The next free ID recorded in the snapshot. */
+    final int nextId;
+    /** The first log generation whose records are not part of the snapshot. */
+    final long logGeneration;
+
+    private StudentSnapshot(int nextId, long logGeneration) {
+        this.nextId = nextId;
+        this.logGeneration = logGeneration;
+    }
+
+    /**
+     * Writes a snapshot and atomically replaces any previous one at the same path.
+     *
+     * @param file          The snapshot file.
+     * @param students      The records to store.
+     * @param nextId        The next free student ID.
+     * @param logGeneration The first log generation not covered by this snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    static void write(Path file, Collection<Student> students, int nextId, long logGeneration) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nextId);
+            out.writeLong(logGeneration);
+            out.writeInt(students.size());
+            for (Student student : students) {
+                out.writeInt(student.getId());
+                writeString(out, student.getName());
+                writeString(out, student.getGrade());
+                writeString(out, student.getEmail());
+            }
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into a store.
+     *
+     * @param file   The snapshot file.
+     * @param target The store that receives the records.
+     * @return The snapshot's header information.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    static StudentSnapshot read(Path file, StudentStore target) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a student snapshot: " + file);
+            }
+            int nextId = in.readInt();
+            long logGeneration = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                target.insert(new Student(id, readString(in), readString(in), readString(in)));
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Corrupt student snapshot (checksum mismatch): " + file);
+            }
+            return new StudentSnapshot(nextId, logGeneration);
+        }
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
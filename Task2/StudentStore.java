@@ -0,0 +1,124 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The storage engine behind a {@link StudentDAO}.
+ * Implementations decide how records are laid out and whether they can be shared
+ * between threads; the DAO only relies on the operations declared here.
+ */
+interface StudentStore extends Closeable {
+
+    /**
+     * Allocates the next unused student ID.
+     *
+     * @return A fresh ID, never handed out before by this store.
+     */
+    int nextId();
+
+    /**
+     * Stores a new record. The student's ID must already be set.
+     *
+     * @param student The student to store.
+     */
+    void insert(Student student);
+
+    /**
+     * Stores a batch of new records. Their IDs must already be set.
+     * Stores that write to disk override this to pay for one write per batch
+     * instead of one per record.
+     *
+     * @param students The students to store.
+     */
+    default void insertAll(List<Student> students) {
+        students.forEach(this::insert);
+    }
+
+    /**
+     * Looks up a record by ID.
+     *
+     * @param id The ID of the student.
+     * @return The stored student, or null if there is none.
+     */
+    Student get(int id);
+
+    /**
+     * Replaces the name, grade and email of an existing record.
+     *
+     * @param student A student carrying the ID to update and the new values.
+     * @return true if the record existed and was updated, false otherwise.
+     */
+    boolean update(Student student);
+
+    /**
+     * Removes a record by ID.
+     *
+     * @param id The ID of the student.
+     * @return true if the record existed and was removed, false otherwise.
+     */
+    boolean delete(int id);
+
+    /**
+     * Returns the number of stored records.
+     *
+     * @return The number of records.
+     */
+    int size();
+
+    /**
+     * Passes every stored record to the action, in insertion (ID) order.
+     *
+     * @param action The action to perform on each record.
+     */
+    void forEach(Consumer<? super Student> action);
+
+    /**
+     * Passes up to {@code limit} records to the action, in insertion (ID) order,
+     * after skipping the first {@code offset}.
+     *
+     * @param offset The number of records to skip.
+     * @param limit  The maximum number of records to pass on.
+     * @param action The action to perform on each record.
+     */
+    default void forEachInPage(int offset, int limit, Consumer<? super Student> action) {
+        try (Stream<Student> students = stream()) {
+            students.skip(offset).limit(limit).forEach(action);
+        }
+    }
+
+    /**
+     * Passes up to {@code limit} records with an ID of at least {@code fromId} to the
+     * action, in ID order.
+     *
+     * @param fromId The smallest ID to include.
+     * @param limit  The maximum number of records to pass on.
+     * @param action The action to perform on each record.
+     */
+    void forEachFromId(int fromId, int limit, Consumer<? super Student> action);
+
+    /**
+     * Returns a lazily evaluated stream over the records, in insertion (ID) order.
+     * Records are produced as the stream is consumed; nothing is copied up front.
+     *
+     * @return A stream of the stored records.
+     */
+    Stream<Student> stream();
+
+    /**
+     * Tells whether the store may be used by several threads at once.
+     *
+     * @return true if every operation is thread-safe.
+     */
+    boolean isThreadSafe();
+
+    /**
+     * Releases any files or threads held by the store. In-memory stores hold none.
+     *
+     * @throws IOException if pending data cannot be written out.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Wraps another store behind a single global lock.
+ * Every operation, including reads, serializes on the same monitor. This is the
+ * simplest way to share a single-threaded store and serves as the baseline in
+ * {@link StudentDAOBenchmark}.
+ */
+class SynchronizedStudentStore implements StudentStore {
+    private final StudentStore delegate;
+
+    /**
+     * Constructs a store that guards the given delegate with one lock.
+     *
+     * @param delegate The store to protect. It must not be used directly afterwards.
+     */
+    public SynchronizedStudentStore(StudentStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized int nextId() {
+        return delegate.nextId();
+    }
+
+    @Override
+    public synchronized void insert(Student student) {
+        delegate.insert(student);
+    }
+
+    @Override
+    public synchronized void insertAll(List<Student> students) {
+        delegate.insertAll(students);
+    }
+
+    @Override
+    public synchronized Student get(int id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public synchronized boolean update(Student student) {
+        return delegate.update(student);
+    }
+
+    @Override
+    public synchronized boolean delete(int id) {
+        return delegate.delete(id);
+    }
+
+    @Override
+    public synchronized int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<? super Student> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public synchronized void forEachInPage(int offset, int limit, Consumer<? super Student> action) {
+        delegate.forEachInPage(offset, limit, action);
+    }
+
+    @Override
+    public synchronized void forEachFromId(int fromId, int limit, Consumer<? super Student> action) {
+        delegate.forEachFromId(fromId, limit, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only opening the stream takes the lock; consuming it does not, so this is
+     * only safe when the delegate's streams are snapshots.
+     */
+    @Override
+    public synchronized Stream<Student> stream() {
+        return delegate.stream();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,99 @@
+package Task3;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Book.java
+ * This class represents a single book in the library.
+ * It holds information about the book's ID, title, author, and availability.
+ * The issued state is a single atomic reference to the current loan, so concurrent
+ * checkouts of the same book are decided by compare-and-set without any lock, and
+ * finding who holds the book takes constant time.
+ */
+class Book {
+    private int id;
+    private String title;
+    private String author;
+    private final AtomicReference<Loan> loan = new AtomicReference<>(); // null while available.
+
+    /**
+     * Constructor to create a new Book.
+     * @param id The unique ID of the book.
+     * @param title The title of the book.
+     * @param author The author of the book.
+     */
+    public Book(int id, String title, String author) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+    }
+
+    // --- Getters and Setters ---
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public boolean isIssued() {
+        return loan.get() != null;
+    }
+
+    /**
+     * Returns the loan this book is currently out on.
+     * @return The loan, or null if the book is available.
+     */
+    public Loan getLoan() {
+        return loan.get();
+    }
+
+    /**
+     * Returns the user currently holding this book.
+     * @return The borrower, or null if the book is available.
+     */
+    public User getBorrower() {
+        Loan current = loan.get();
+        return current == null ? null : current.getUser();
+    }
+
+    /**
+     * Atomically puts the book out on a loan if it is available.
+     * @param newLoan The loan to start.
+     * @return true if this call issued the book, false if someone already holds it.
+     */
+    public boolean tryIssue(Loan newLoan) {
+        return loan.compareAndSet(null, newLoan);
+    }
+
+    /**
+     * Atomically ends a loan, making the book available again.
+     * @param currentLoan The loan being ended.
+     * @return true if this call returned the book, false if that loan had already ended.
+     */
+    public boolean tryReturn(Loan currentLoan) {
+        return loan.compareAndSet(currentLoan, null);
+    }
+
+    /**
+     * Atomically passes the book from one loan straight to the next, so that nobody
+     * else can check it out in between.
+     * @param currentLoan The loan being ended.
+     * @param nextLoan The loan that takes over the book.
+     * @return true if the book moved to the next loan, false if the current loan had already ended.
+     */
+    public boolean tryTransfer(Loan currentLoan, Loan nextLoan) {
+        return loan.compareAndSet(currentLoan, nextLoan);
+    }
+
+    @Override
+    public String toString() {
+        return "ID: " + id + ", Title: '" + title + "', Author: '" + author + "', Issued: " + isIssued();
+    }
+}
@@ -0,0 +1,180 @@
+package Task3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * CatalogIndex.java
+ * An inverted index over the words in book titles and authors, used for keyword search.
+ * Each word maps to a postings list of the books that contain it, so a search only
+ * looks at books sharing at least one word with the query.
+ * Results are ranked by a TF-IDF style score: rare words count for more than common
+ * ones, and a match in the title counts twice as much as a match in the author.
+ */
+class CatalogIndex {
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+
+    private final Map<String, Postings> postingsByWord = new HashMap<>();
+    private int indexedBooks;
+
+    /**
+     * Adds a book's title and author words to the index.
+     * @param book The book to index. It must not have been indexed before.
+     */
+    public void add(Book book) {
+        addTerms(book.getId(), Terms.of(book));
+    }
+
+    /**
+     * Adds many books to the index. The titles and authors, which is where the time
+     * goes, are split into words in parallel; the postings lists are then appended to
+     * in one sequential pass, in list order.
+     * @param batch The books to index. None of them may have been indexed before.
+     */
+    public void addAll(List<Book> batch) {
+        List<Terms> terms = batch.parallelStream()
+                .map(Terms::of)
+                .collect(Collectors.toList());
+        for (int i = 0; i < batch.size(); i++) {
+            addTerms(batch.get(i).getId(), terms.get(i));
+        }
+    }
+
+    private void addTerms(int bookId, Terms terms) {
+        for (int i = 0; i < terms.size; i++) {
+            postingsByWord.computeIfAbsent(terms.words[i], word -> new Postings()).add(bookId, terms.weights[i]);
+        }
+        indexedBooks++;
+    }
+
+    /**
+     * Finds the books that best match a keyword query.
+     * @param query Words to look for in titles and authors; case and punctuation are ignored.
+     * @param limit The maximum number of results.
+     * @return The IDs of the matching books, best match first. Ties go to the lower ID.
+     */
+    public List<Integer> search(String query, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String word : new LinkedHashSet<>(tokenize(query))) {
+            Postings postings = postingsByWord.get(word);
+            if (postings == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) indexedBooks / postings.size);
+            for (int i = 0; i < postings.size; i++) {
+                scores.merge(postings.bookIds[i], postings.weights[i] * idf, Double::sum);
+            }
+        }
+        if (scores.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Keep the best `limit` results in a min-heap whose head is the weakest one kept.
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(limit + 1, (a, b) -> {
+            int byScore = Double.compare(a.getValue(), b.getValue());
+            return byScore != 0 ? byScore : Integer.compare(b.getKey(), a.getKey());
+        });
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ranked.add(best.poll().getKey());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     * @param text The text to split; may be null.
+     * @return The words in order, possibly with repeats.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The distinct words of one book with their weights: title occurrences count
+     * TITLE_WEIGHT each, author occurrences AUTHOR_WEIGHT. A book has only a handful
+     * of words, so they are kept in small arrays and deduplicated by a linear scan.
+     */
+    private static final class Terms {
+        String[] words = new String[8];
+        int[] weights = new int[8];
+        int size;
+
+        static Terms of(Book book) {
+            Terms terms = new Terms();
+            for (String word : tokenize(book.getTitle())) {
+                terms.add(word, TITLE_WEIGHT);
+            }
+            for (String word : tokenize(book.getAuthor())) {
+                terms.add(word, AUTHOR_WEIGHT);
+            }
+            return terms;
+        }
+
+        private void add(String word, int weight) {
+            for (int i = 0; i < size; i++) {
+                if (words[i].equals(word)) {
+                    weights[i] += weight;
+                    return;
+                }
+            }
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            words[size] = word;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * The books containing one word, with the weight of the word in each, kept in
+     * parallel primitive arrays to avoid an object per posting.
+     */
+    private static final class Postings {
+        int[] bookIds = new int[2];
+        int[] weights = new int[2];
+        int size;
+
+        void add(int bookId, int weight) {
+            if (size == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            bookIds[size] = bookId;
+            weights[size] = weight;
+            size++;
+        }
+    }
+}
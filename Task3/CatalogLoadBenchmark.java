@@ -0,0 +1,86 @@
+package Task3;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CatalogLoadBenchmark.java
+ * Writes a synthetic catalog dump and loads it twice: line by line with addBook and
+ * addUser, as a hand-written import would, and with {@link CatalogLoader}. Each load
+ * reports its time and peak heap. The dump repeats a few IDs to show that they are
+ * rejected.
+ * Usage: java Task3.CatalogLoadBenchmark [books] [users]
+ */
+public class CatalogLoadBenchmark {
+    private static final int DUPLICATES = 10;
+
+    public static void main(String[] args) throws IOException {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        Path file = Files.createTempFile("catalog", ".tsv");
+        try {
+            write(file, books, users);
+            System.out.printf("--- Catalog load: %,d books, %,d users, %.1f MB ---%n",
+                    books, users, Files.size(file) / 1e6);
+
+            System.gc();
+            CatalogLoader.resetPeakHeap();
+            long began = System.nanoTime();
+            int rejected = loadOneByOne(file, new Library());
+            long nanos = System.nanoTime() - began;
+            System.out.printf("addBook/addUser per line: %.2f s, peak heap %,d MB, %,d duplicate IDs rejected%n",
+                    nanos / 1e9, CatalogLoader.peakHeap() >> 20, rejected);
+
+            System.gc();
+            System.out.println("CatalogLoader:            " + CatalogLoader.load(file, new Library()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void write(Path file, int books, int users) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# Synthetic catalog\n");
+            for (int id = 1; id <= books; id++) {
+                out.write("B\t" + id + "\tThe Collected Works Volume " + id + "\tAuthor " + (id % 5000) + "\n");
+            }
+            for (int id = 1; id <= users; id++) {
+                out.write("U\t" + id + "\tUser " + id + "\n");
+            }
+            for (int id = 1; id <= DUPLICATES; id++) {
+                out.write("B\t" + id + "\tDuplicate " + id + "\tNobody\n");
+            }
+        }
+    }
+
+    /**
+     * The straightforward import: read a line, split it, add it.
+     */
+    private static int loadOneByOne(Path file, Library library) throws IOException {
+        int rejected = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                try {
+                    if (fields[0].equals("B")) {
+                        library.addBook(new Book(Integer.parseInt(fields[1]), fields[2], fields[3]));
+                    } else {
+                        library.addUser(new User(Integer.parseInt(fields[1]), fields[2]));
+                    }
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                }
+            }
+        }
+        return rejected;
+    }
+}
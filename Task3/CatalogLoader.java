@@ -0,0 +1,232 @@
+package Task3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * CatalogLoader.java
+ * Loads a catalog dump of books and users into a {@link Library} in one batch.
+ * The dump is UTF-8 text with one record per line and tab-separated fields:
+ * <pre>
+ * B  id  title  author
+ * U  id  name
+ * </pre>
+ * Blank lines and lines starting with '#' are skipped; fields cannot hold tabs or
+ * line breaks. The file is memory-mapped and cut into segments on line boundaries,
+ * the segments are parsed in parallel on the common fork-join pool, and the parsed
+ * records go to {@link Library#addBooks} and {@link Library#addUsers} in file order,
+ * so the lookup maps and keyword index are built once for the whole catalog instead
+ * of one addBook call at a time.
+ * A record whose ID was already used, in the library or earlier in the file, is rejected.
+ */
+class CatalogLoader {
+    private static final int SEGMENT_BYTES = 4 << 20;
+
+    /**
+     * Counts, time and memory for one load.
+     */
+    static final class Result {
+        final long books;
+        final long users;
+        final long rejected;
+        final long nanos;
+        final long peakHeapBytes;
+
+        Result(long books, long users, long rejected, long nanos, long peakHeapBytes) {
+            this.books = books;
+            this.users = users;
+            this.rejected = rejected;
+            this.nanos = nanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d books and %,d users loaded (%,d duplicate IDs rejected) in %.2f s, "
+                    + "peak heap %,d MB", books, users, rejected, nanos / 1e9, peakHeapBytes >> 20);
+        }
+    }
+
+    /**
+     * Books and users parsed from one segment.
+     */
+    private static final class Segment {
+        final List<Book> books = new ArrayList<>();
+        final List<User> users = new ArrayList<>();
+    }
+
+    /**
+     * Loads a catalog dump into a library.
+     * @param file The dump to read.
+     * @param library The library to add the books and users to.
+     * @return What was loaded, how long it took and the heap high-water mark.
+     * @throws IOException if the file cannot be read or a line is malformed.
+     */
+    static Result load(Path file, Library library) throws IOException {
+        resetPeakHeap();
+        long began = System.nanoTime();
+        List<Book> books;
+        List<User> users;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> ranges = new ArrayList<>();
+            for (long start = 0; start < size; ) {
+                long end = start + SEGMENT_BYTES >= size ? size : nextLineStart(channel, start + SEGMENT_BYTES, size);
+                ranges.add(new long[] {start, end});
+                start = end;
+            }
+
+            Segment[] segments = new Segment[ranges.size()];
+            try {
+                IntStream.range(0, segments.length).parallel().forEach(index -> {
+                    long[] range = ranges.get(index);
+                    try {
+                        segments[index] = parse(channel.map(FileChannel.MapMode.READ_ONLY, range[0],
+                                range[1] - range[0]), range[0], file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int bookCount = 0;
+            int userCount = 0;
+            for (Segment segment : segments) {
+                bookCount += segment.books.size();
+                userCount += segment.users.size();
+            }
+            books = new ArrayList<>(bookCount);
+            users = new ArrayList<>(userCount);
+            for (Segment segment : segments) {
+                books.addAll(segment.books);
+                users.addAll(segment.users);
+            }
+        }
+        int rejectedBooks = library.addBooks(books);
+        int rejectedUsers = library.addUsers(users);
+        long nanos = System.nanoTime() - began;
+        return new Result(books.size() - rejectedBooks, users.size() - rejectedUsers,
+                rejectedBooks + rejectedUsers, nanos, peakHeap());
+    }
+
+    /**
+     * Parses the lines of one segment.
+     * @param bytes The segment, starting at a line start.
+     * @param offset Where the segment starts in the file, for error messages.
+     */
+    private static Segment parse(MappedByteBuffer bytes, long offset, Path file) throws IOException {
+        Segment segment = new Segment();
+        byte[] line = new byte[256];
+        int[] tabs = new int[3];
+        while (bytes.hasRemaining()) {
+            long lineOffset = offset + bytes.position();
+            int length = 0;
+            int tabCount = 0;
+            while (bytes.hasRemaining()) {
+                byte b = bytes.get();
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                if (b == '\t' && tabCount++ < tabs.length) {
+                    tabs[tabCount - 1] = length;
+                }
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0 || line[0] == '#') {
+                continue;
+            }
+            if (line[0] == 'B' && tabs[0] == 1 && tabCount == 3) {
+                segment.books.add(new Book(parseId(line, tabs[0] + 1, tabs[1], file, lineOffset),
+                        utf8(line, tabs[1] + 1, tabs[2]), utf8(line, tabs[2] + 1, length)));
+            } else if (line[0] == 'U' && tabs[0] == 1 && tabCount == 2) {
+                segment.users.add(new User(parseId(line, tabs[0] + 1, tabs[1], file, lineOffset),
+                        utf8(line, tabs[1] + 1, length)));
+            } else {
+                throw new IOException("Malformed catalog line at byte " + lineOffset + " of " + file);
+            }
+        }
+        return segment;
+    }
+
+    private static int parseId(byte[] line, int from, int to, Path file, long lineOffset) throws IOException {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new IOException("Bad ID at byte " + lineOffset + " of " + file);
+            }
+        }
+        if (from == to) {
+            throw new IOException("Missing ID at byte " + lineOffset + " of " + file);
+        }
+        return (int) value;
+    }
+
+    private static String utf8(byte[] line, int from, int to) {
+        return new String(line, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the first line start at or after a position.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        for (long position = from; position < size; ) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sums the peak usage of each heap pool since the last reset. The pools peak at
+     * different moments, so this is an upper bound on the true high-water mark.
+     */
+    static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
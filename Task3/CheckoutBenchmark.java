@@ -0,0 +1,82 @@
+package Task3;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CheckoutBenchmark.java
+ * Measures checkout-and-return throughput at increasing thread counts, comparing
+ * the per-book {@link Library#checkout}/{@link Library#checkin} path against the
+ * same calls serialized behind one global lock.
+ * Each thread is its own user and cycles through its own slice of the catalog, so
+ * threads work on different books, which is the case that should scale with cores.
+ * Usage: java Task3.CheckoutBenchmark [secondsPerRun] [maxThreads]
+ */
+public class CheckoutBenchmark {
+    private static final int BOOKS_PER_THREAD = 1024;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        System.out.println("--- Library checkout throughput (checkout + return pairs/s) ---");
+        System.out.printf("%-8s %16s %16s%n", "Threads", "Global lock", "Per-book");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long locked = run(threads, seconds, true);
+            long perBook = run(threads, seconds, false);
+            System.out.printf("%-8d %,16d %,16d%n", threads, locked / seconds, perBook / seconds);
+        }
+    }
+
+    private static long run(int threads, int seconds, boolean globalLock) throws InterruptedException {
+        Library library = new Library();
+        for (int id = 1; id <= threads * BOOKS_PER_THREAD; id++) {
+            library.addBook(new Book(id, "Book " + id, "Author " + (id % 100)));
+        }
+        for (int id = 1; id <= threads; id++) {
+            library.addUser(new User(id, "User " + id));
+        }
+        Object lock = new Object();
+        AtomicLong completed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + 200_000_000L + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int userId = t + 1;
+            int firstBook = t * BOOKS_PER_THREAD + 1;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long pairs = 0;
+                int offset = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1000; i++) {
+                        int bookId = firstBook + offset;
+                        offset = (offset + 1) % BOOKS_PER_THREAD;
+                        if (globalLock) {
+                            synchronized (lock) {
+                                library.checkout(bookId, userId);
+                                library.checkin(bookId, userId);
+                            }
+                        } else {
+                            library.checkout(bookId, userId);
+                            library.checkin(bookId, userId);
+                        }
+                    }
+                    pairs += 1000;
+                }
+                completed.addAndGet(pairs);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.get();
+    }
+}
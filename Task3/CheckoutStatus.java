@@ -0,0 +1,16 @@
+package Task3;
+
+/**
+ * CheckoutStatus.java
+ * The outcome of issuing or returning a book through {@link Library#checkout},
+ * {@link Library#checkoutOrHold} or {@link Library#checkin}.
+ */
+enum CheckoutStatus {
+    ISSUED,           // The book is now issued to the user.
+    QUEUED,           // The book is out; the user is on its waitlist.
+    RETURNED,         // The user no longer holds the book.
+    ALREADY_ISSUED,   // Someone else holds the book.
+    NOT_BORROWED,     // The user does not hold the book.
+    BOOK_NOT_FOUND,
+    USER_NOT_FOUND
+}
@@ -0,0 +1,99 @@
+package Task3;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CheckoutStressTest.java
+ * Hammers a few books from many threads at once and checks that no book is ever
+ * issued to two users at the same time.
+ * Every thread is its own user and loops: pick a random book, try to check it out,
+ * and if that worked, mark the book as held, give it back and unmark it. A shared
+ * counter per book must never go above one. At the end every book must be
+ * available and every user's borrowed list empty.
+ * Usage: java Task3.CheckoutStressTest [threads] [operationsPerThread] [books]
+ * Exits with status 1 if any check fails.
+ */
+public class CheckoutStressTest {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int books = args.length > 2 ? Integer.parseInt(args[2]) : 8; // Few books, so most attempts collide.
+
+        Library library = new Library();
+        for (int id = 1; id <= books; id++) {
+            library.addBook(new Book(id, "Book " + id, "Author " + id));
+        }
+        for (int id = 1; id <= threads; id++) {
+            library.addUser(new User(id, "User " + id));
+        }
+
+        AtomicIntegerArray holders = new AtomicIntegerArray(books + 1);
+        AtomicLong issued = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int userId = t + 1;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                awaitQuietly(start);
+                for (int i = 0; i < operations; i++) {
+                    int bookId = 1 + random.nextInt(books);
+                    if (library.checkout(bookId, userId) != CheckoutStatus.ISSUED) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    issued.incrementAndGet();
+                    if (holders.incrementAndGet(bookId) != 1) {
+                        violations.incrementAndGet();
+                    }
+                    if (library.findBookById(bookId).getBorrower().getUserId() != userId) {
+                        violations.incrementAndGet();
+                    }
+                    holders.decrementAndGet(bookId);
+                    if (library.checkin(bookId, userId) != CheckoutStatus.RETURNED) {
+                        violations.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        for (int id = 1; id <= books; id++) {
+            if (library.findBookById(id).isIssued()) {
+                violations.incrementAndGet();
+            }
+        }
+        for (int id = 1; id <= threads; id++) {
+            if (!library.findUserById(id).getBorrowedBooks().isEmpty()) {
+                violations.incrementAndGet();
+            }
+        }
+
+        System.out.printf("%d threads x %,d attempts on %d books in %.2f s: %,d issued, %,d rejected, %d violations%n",
+                threads, operations, books, elapsed / 1e9, issued.get(), rejected.get(), violations.get());
+        if (violations.get() != 0) {
+            System.out.println("FAILED: a book was issued twice or left in an inconsistent state.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: no double issue.");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
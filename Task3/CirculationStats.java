@@ -0,0 +1,144 @@
+package Task3;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * CirculationStats.java
+ * Live circulation figures for a {@link Library}, updated as books are issued and
+ * returned rather than computed by scanning books and users: checkouts per book,
+ * per author and per user, the most borrowed titles, and how much of the
+ * collection is out right now. Every figure is read in O(1), and a top-K list in
+ * O(K) for K up to {@link #TOP_CAPACITY}.
+ * The counters are atomic and the on-loan count is a {@link LongAdder}, so
+ * concurrent checkouts and returns never lose an update and never wait on each other
+ * (except, briefly, when a title or author first climbs into the top list).
+ */
+class CirculationStats {
+    static final int TOP_CAPACITY = 100;
+
+    private final Leaderboard<Book> checkoutsByBook = new Leaderboard<>(TOP_CAPACITY);
+    private final Leaderboard<String> checkoutsByAuthor = new Leaderboard<>(TOP_CAPACITY);
+    private final Leaderboard<User> checkoutsByUser = new Leaderboard<>(TOP_CAPACITY);
+    private final LongAdder totalCheckouts = new LongAdder();
+    private final LongAdder onLoan = new LongAdder();
+    private final IntSupplier bookCount;
+
+    /**
+     * Constructor to create the statistics for a library.
+     * @param bookCount Supplies the number of books in the collection, for utilization.
+     */
+    CirculationStats(IntSupplier bookCount) {
+        this.bookCount = bookCount;
+    }
+
+    void recordIssue(Loan loan) {
+        recordCheckouts(loan.getBook(), loan.getUser(), 1);
+        onLoan.increment();
+    }
+
+    /**
+     * Counts a loan restored from a snapshot as open, without counting it as a new
+     * checkout; the snapshot's checkout counts already include it.
+     */
+    void recordRestoredLoan() {
+        onLoan.increment();
+    }
+
+    void recordReturn() {
+        onLoan.decrement();
+    }
+
+    /**
+     * Adds checkouts counted before a restart, from a snapshot.
+     */
+    void restoreBookCheckouts(Book book, long checkouts) {
+        countBook(book, checkouts);
+    }
+
+    void restoreUserCheckouts(User user, long checkouts) {
+        checkoutsByUser.add(user, checkouts);
+    }
+
+    private void recordCheckouts(Book book, User user, long checkouts) {
+        countBook(book, checkouts);
+        checkoutsByUser.add(user, checkouts);
+    }
+
+    private void countBook(Book book, long checkouts) {
+        checkoutsByBook.add(book, checkouts);
+        if (book.getAuthor() != null) {
+            checkoutsByAuthor.add(book.getAuthor(), checkouts);
+        }
+        totalCheckouts.add(checkouts);
+    }
+
+    public long getCheckouts(Book book) {
+        return checkoutsByBook.get(book);
+    }
+
+    public long getAuthorCheckouts(String author) {
+        return checkoutsByAuthor.get(author);
+    }
+
+    public long getUserCheckouts(User user) {
+        return checkoutsByUser.get(user);
+    }
+
+    public long getTotalCheckouts() {
+        return totalCheckouts.sum();
+    }
+
+    /**
+     * Returns how many books are out on loan right now.
+     * @return The number of open loans.
+     */
+    public long getOnLoan() {
+        return onLoan.sum();
+    }
+
+    /**
+     * Returns the share of the collection that is out on loan right now.
+     * @return A fraction from 0 to 1; 0 for an empty library.
+     */
+    public double getUtilization() {
+        int books = bookCount.getAsInt();
+        return books == 0 ? 0 : (double) getOnLoan() / books;
+    }
+
+    /**
+     * Returns the most borrowed books, most borrowed first.
+     * @param k How many to return, at most {@link #TOP_CAPACITY}.
+     * @return The books with their checkout counts.
+     */
+    public List<Leaderboard.Entry<Book>> topBooks(int k) {
+        return checkoutsByBook.top(k);
+    }
+
+    public List<Leaderboard.Entry<String>> topAuthors(int k) {
+        return checkoutsByAuthor.top(k);
+    }
+
+    public List<Leaderboard.Entry<User>> topUsers(int k) {
+        return checkoutsByUser.top(k);
+    }
+
+    /**
+     * Calls an action with every book's and every user's checkout count, for snapshots.
+     */
+    void forEachBook(ObjLongConsumer<Book> action) {
+        checkoutsByBook.forEach(action);
+    }
+
+    void forEachUser(ObjLongConsumer<User> action) {
+        checkoutsByUser.forEach(action);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Checkouts: %d, On loan: %d, Utilization: %.1f%%",
+                getTotalCheckouts(), getOnLoan(), getUtilization() * 100);
+    }
+}
@@ -0,0 +1,138 @@
+package Task3;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CirculationStressTest.java
+ * Checks that the circulation statistics stay exact under concurrent checkouts and
+ * returns. Every thread is its own user and keeps its own tally of the checkouts it
+ * won. Popularity is skewed, so titles keep overtaking each other in the top list.
+ * Threads return what they borrow at once, except one book each that they keep for a while.
+ * At the end the per-book, per-author and per-user counts must match the tallies,
+ * the on-loan count must match the books actually out, and the top titles must be
+ * the true top titles.
+ * Usage: java Task3.CirculationStressTest [threads] [operationsPerThread] [books]
+ * Exits with status 1 if any check fails.
+ */
+public class CirculationStressTest {
+    private static final int AUTHORS = 50;
+    private static final int TOP = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int books = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Library library = new Library();
+        for (int id = 1; id <= books; id++) {
+            library.addBook(new Book(id, "Book " + id, "Author " + (id % AUTHORS)));
+        }
+        for (int id = 1; id <= threads; id++) {
+            library.addUser(new User(id, "User " + id));
+        }
+
+        long[][] tallies = new long[threads][books + 1];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int userId = t + 1;
+            long[] tally = tallies[t];
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int kept = 0; // A book this thread is holding on to for a while.
+                for (int i = 0; i < operations; i++) {
+                    double skew = random.nextDouble();
+                    int bookId = 1 + (int) (books * skew * skew * skew); // Low IDs are far more popular.
+                    if (library.checkout(bookId, userId) == CheckoutStatus.ISSUED) {
+                        tally[bookId]++;
+                        if (kept == 0 && random.nextInt(10) == 0) {
+                            kept = bookId;
+                        } else {
+                            library.checkin(bookId, userId);
+                        }
+                    }
+                    if (kept != 0 && random.nextInt(100) == 0) {
+                        library.checkin(kept, userId);
+                        kept = 0;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        CirculationStats stats = library.getCirculationStats();
+        long violations = 0;
+        long[] byBook = new long[books + 1];
+        long[] byAuthor = new long[AUTHORS];
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            long byUser = 0;
+            for (int id = 1; id <= books; id++) {
+                byBook[id] += tallies[t][id];
+                byAuthor[id % AUTHORS] += tallies[t][id];
+                byUser += tallies[t][id];
+            }
+            total += byUser;
+            if (stats.getUserCheckouts(library.findUserById(t + 1)) != byUser) {
+                violations++;
+            }
+        }
+        long out = 0;
+        for (int id = 1; id <= books; id++) {
+            Book book = library.findBookById(id);
+            if (stats.getCheckouts(book) != byBook[id]) {
+                violations++;
+            }
+            if (book.isIssued()) {
+                out++;
+            }
+        }
+        for (int author = 0; author < AUTHORS; author++) {
+            if (stats.getAuthorCheckouts("Author " + author) != byAuthor[author]) {
+                violations++;
+            }
+        }
+        if (stats.getTotalCheckouts() != total || stats.getOnLoan() != out) {
+            violations++;
+        }
+
+        // The top list must hold the highest counts, in order (ties may come in any order).
+        long[] expectedTop = Arrays.copyOfRange(byBook, 1, books + 1);
+        Arrays.sort(expectedTop);
+        List<Leaderboard.Entry<Book>> top = stats.topBooks(TOP);
+        for (int i = 0; i < top.size(); i++) {
+            Leaderboard.Entry<Book> entry = top.get(i);
+            if (entry.count != expectedTop[books - 1 - i] || entry.count != byBook[entry.key.getId()]) {
+                violations++;
+            }
+        }
+
+        System.out.printf("%d threads x %,d operations on %d books in %.2f s: %,d checkouts, %d violations%n",
+                threads, operations, books, elapsed / 1e9, total, violations);
+        System.out.println(stats);
+        StringBuilder leaders = new StringBuilder("Top titles:");
+        for (Leaderboard.Entry<Book> entry : top.subList(0, Math.min(5, top.size()))) {
+            leaders.append(" '").append(entry.key.getTitle()).append("' ").append(entry.count);
+        }
+        System.out.println(leaders);
+        if (violations != 0) {
+            System.out.println("FAILED: a circulation counter drifted from the real checkouts.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: circulation counters are exact.");
+    }
+}
@@ -0,0 +1,60 @@
+package Task3;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HoldMetrics.java
+ * Counters for the hold queues: how many holds were placed and handed off, how many
+ * users are still waiting, and how long the served ones waited. The counters are
+ * striped {@link LongAdder}s, so concurrent returns do not contend on them.
+ */
+class HoldMetrics {
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+
+    void recordPlaced() {
+        placed.increment();
+    }
+
+    void recordHandoff(Duration waited) {
+        long millis = Math.max(0, waited.toMillis());
+        handedOff.increment();
+        totalWaitMillis.add(millis);
+        maxWaitMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    public long getPlaced() {
+        return placed.sum();
+    }
+
+    public long getHandedOff() {
+        return handedOff.sum();
+    }
+
+    /**
+     * Returns the number of holds placed but not yet served, across all books.
+     * @return The total number of waiting users.
+     */
+    public long getWaiting() {
+        return placed.sum() - handedOff.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long served = handedOff.sum();
+        return served == 0 ? 0 : (double) totalWaitMillis.sum() / served;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Holds placed: %d, Handed off: %d, Waiting: %d, Avg wait: %.1f ms, Max wait: %d ms",
+                getPlaced(), getHandedOff(), getWaiting(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
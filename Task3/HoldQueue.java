@@ -0,0 +1,103 @@
+package Task3;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HoldQueue.java
+ * The waitlist for one book: users who asked for it while it was issued, in the
+ * order they asked. It is a lock-free deque, so placing a hold and handing the book
+ * to the next user never block each other, and a handoff that loses a race can put
+ * its user back at the front without losing their place.
+ */
+class HoldQueue {
+    private final ConcurrentLinkedDeque<Hold> waiting = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    /**
+     * Adds a user to the back of the waitlist.
+     * @param user The user waiting for the book.
+     * @param requestedAt When the hold was placed.
+     * @return The user's position in the queue (1 = next), or 0 if they were already waiting.
+     */
+    public int add(User user, Instant requestedAt) {
+        for (Hold hold : waiting) {
+            if (hold.user == user) {
+                return 0;
+            }
+        }
+        // Count before linking, as pushBack does: a poll that takes the hold at once
+        // must not see the depth go negative and make this look like a duplicate.
+        int position = depth.incrementAndGet();
+        waiting.addLast(new Hold(user, requestedAt));
+        return position;
+    }
+
+    /**
+     * Takes the longest-waiting hold off the queue.
+     * @return The hold, or null if nobody is waiting.
+     */
+    public Hold poll() {
+        Hold hold = waiting.pollFirst();
+        if (hold != null) {
+            depth.decrementAndGet();
+        }
+        return hold;
+    }
+
+    /**
+     * Puts a hold back at the front after a handoff could not complete.
+     * @param hold The hold returned by {@link #poll()}.
+     */
+    public void pushBack(Hold hold) {
+        depth.incrementAndGet();
+        waiting.addFirst(hold);
+    }
+
+    /**
+     * Takes a particular user off the waitlist, wherever they are in it.
+     * @param user The user to remove.
+     * @return Their hold, or null if they were not waiting.
+     */
+    public Hold remove(User user) {
+        for (Hold hold : waiting) {
+            if (hold.user == user && waiting.removeFirstOccurrence(hold)) {
+                depth.decrementAndGet();
+                return hold;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the holds in the queue, first in line first.
+     * @return A new list of the holds.
+     */
+    public List<Hold> waiting() {
+        return new ArrayList<>(waiting);
+    }
+
+    /**
+     * Returns the number of users waiting. Kept in a counter, so this is O(1).
+     * @return The queue depth.
+     */
+    public int depth() {
+        return depth.get();
+    }
+
+    /**
+     * One user waiting for the book.
+     */
+    static final class Hold {
+        final User user;
+        final Instant requestedAt;
+
+        Hold(User user, Instant requestedAt) {
+            this.user = user;
+            this.requestedAt = requestedAt;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package Task3;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HoldQueueStressTest.java
+ * Checks that hold queues never lose a waiting user under concurrent returns.
+ * Every thread is its own user and loops: ask for a random book with
+ * {@link Library#checkoutOrHold}; if it was queued, wait until the book is handed to
+ * it; then return the book. A thread that waits too long means a hold was lost.
+ * At the end every book must be available, every queue empty, and every hold
+ * placed must have been handed off.
+ * Usage: java Task3.HoldQueueStressTest [threads] [requestsPerThread] [books]
+ * Exits with status 1 if any check fails.
+ */
+public class HoldQueueStressTest {
+    private static final long MAX_WAIT_NANOS = 10_000_000_000L;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int books = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        Library library = new Library();
+        for (int id = 1; id <= books; id++) {
+            library.addBook(new Book(id, "Book " + id, "Author " + id));
+        }
+        for (int id = 1; id <= threads; id++) {
+            library.addUser(new User(id, "User " + id));
+        }
+
+        AtomicLong queued = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int userId = t + 1;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                User me = library.findUserById(userId);
+                for (int i = 0; i < requests; i++) {
+                    int bookId = 1 + random.nextInt(books);
+                    CheckoutStatus status = library.checkoutOrHold(bookId, userId);
+                    if (status == CheckoutStatus.QUEUED) {
+                        queued.incrementAndGet();
+                        long deadline = System.nanoTime() + MAX_WAIT_NANOS;
+                        while (library.findBookById(bookId).getBorrower() != me) {
+                            if (System.nanoTime() > deadline) {
+                                violations.incrementAndGet(); // The hold was lost.
+                                return;
+                            }
+                            Thread.yield();
+                        }
+                    } else if (status != CheckoutStatus.ISSUED) {
+                        violations.incrementAndGet();
+                        continue;
+                    }
+                    if (library.checkin(bookId, userId) != CheckoutStatus.RETURNED) {
+                        violations.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        for (int id = 1; id <= books; id++) {
+            if (library.findBookById(id).isIssued() || library.holdQueueDepth(id) != 0) {
+                violations.incrementAndGet();
+            }
+        }
+        HoldMetrics metrics = library.getHoldMetrics();
+        // A hold can be served at once if the book came back while it was being placed,
+        // so there may be more holds than QUEUED answers, but never fewer.
+        if (metrics.getWaiting() != 0 || metrics.getPlaced() < queued.get()) {
+            violations.incrementAndGet();
+        }
+
+        System.out.printf("%d threads x %,d requests on %d books in %.2f s: %,d queued, %d violations%n",
+                threads, requests, books, elapsed / 1e9, queued.get(), violations.get());
+        System.out.println(metrics);
+        if (violations.get() != 0) {
+            System.out.println("FAILED: a hold was lost or a book was left in an inconsistent state.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: no hold was lost.");
+    }
+}
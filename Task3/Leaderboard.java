@@ -0,0 +1,144 @@
+package Task3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Leaderboard.java
+ * Counts events per key and keeps the keys with the highest counts ready to read.
+ * Counts only ever grow, so a key can only join the leaders by passing the smallest
+ * leader's count. Each increment compares against a cached lower bound of that
+ * count and, only when it passes, takes a short lock to swap the key in. Leaders
+ * share their counter objects with the main map, so increments to a key already
+ * leading never take the lock. Reading the top K therefore costs O(capacity),
+ * however many keys are counted. A key pushed off the board is rechecked at once,
+ * so when no update is running the leaders are the exact top keys (ties in any
+ * order); a read during updates can lag behind counts still being added.
+ * @param <K> The counted key, compared by equals.
+ */
+class Leaderboard<K> {
+    private final int capacity;
+    private final Map<K, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final Map<K, AtomicLong> leaders = new ConcurrentHashMap<>(); // Changed only under the lock.
+    private final Object lock = new Object();
+    // At most the smallest leader's count; 0 until the board is full. Leader counts
+    // only grow, so a stale value can let a key try the lock needlessly but never
+    // keeps a key that belongs on the board off it.
+    private volatile long threshold;
+
+    /**
+     * Constructor to create a leaderboard.
+     * @param capacity How many leading keys to keep; the largest K that {@link #top} can serve.
+     */
+    public Leaderboard(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds to a key's count. Safe to call from many threads.
+     * @param key The key.
+     * @param delta How much to add; must not be negative.
+     * @return The key's new count.
+     */
+    public long add(K key, long delta) {
+        AtomicLong counter = counts.computeIfAbsent(key, k -> new AtomicLong());
+        long count = counter.addAndGet(delta);
+        if (count > threshold && !leaders.containsKey(key)) {
+            promote(key, counter);
+        }
+        return count;
+    }
+
+    private void promote(K key, AtomicLong counter) {
+        synchronized (lock) {
+            while (key != null && !leaders.containsKey(key)) {
+                if (leaders.size() < capacity) {
+                    leaders.put(key, counter);
+                    break;
+                }
+                K weakest = null;
+                long weakestCount = Long.MAX_VALUE;
+                for (Map.Entry<K, AtomicLong> leader : leaders.entrySet()) {
+                    long leaderCount = leader.getValue().get();
+                    if (leaderCount < weakestCount) {
+                        weakest = leader.getKey();
+                        weakestCount = leaderCount;
+                    }
+                }
+                if (counter.get() <= weakestCount) {
+                    break; // Overtaken before getting the lock.
+                }
+                AtomicLong evicted = leaders.remove(weakest);
+                leaders.put(key, counter);
+                // The evicted key may have been counted while it still led, by a thread
+                // that saw it on the board and did not promote it; recheck it now.
+                key = weakest;
+                counter = evicted;
+            }
+            if (leaders.size() == capacity) {
+                long smallest = Long.MAX_VALUE;
+                for (AtomicLong leader : leaders.values()) {
+                    smallest = Math.min(smallest, leader.get());
+                }
+                threshold = smallest;
+            }
+        }
+    }
+
+    /**
+     * Returns a key's count.
+     * @param key The key.
+     * @return How many times it was counted, 0 if never.
+     */
+    public long get(K key) {
+        AtomicLong counter = counts.get(key);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns the keys with the highest counts, highest first.
+     * @param k How many keys to return; at most the capacity are available.
+     * @return Up to k keys with their counts.
+     */
+    public List<Entry<K>> top(int k) {
+        List<Entry<K>> ranked = new ArrayList<>(leaders.size());
+        for (Map.Entry<K, AtomicLong> leader : leaders.entrySet()) {
+            ranked.add(new Entry<>(leader.getKey(), leader.getValue().get()));
+        }
+        ranked.sort((a, b) -> Long.compare(b.count, a.count));
+        return ranked.subList(0, Math.min(Math.max(k, 0), ranked.size()));
+    }
+
+    /**
+     * Calls an action with every counted key and its count, for snapshots.
+     */
+    void forEach(ObjLongConsumer<K> action) {
+        counts.forEach((key, counter) -> action.accept(key, counter.get()));
+    }
+
+    /**
+     * One key and its count at the time it was read.
+     * @param <K> The key type.
+     */
+    static final class Entry<K> {
+        final K key;
+        final long count;
+
+        Entry(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + count;
+        }
+    }
+}
@@ -0,0 +1,699 @@
+package Task3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Library.java
+ * This class manages the collection of books and registered users.
+ * It contains the core logic for issuing and returning books.
+ * Every issued book is a {@link Loan} with a due time, reachable from the book, from
+ * the user, and from a due-time ordered set used to list overdue loans.
+ * A user asking for an issued book can join its {@link HoldQueue}; when the book is
+ * returned it passes straight to the longest-waiting user.
+ * Issuing and returning are thread-safe and serialized per book on that book's
+ * monitor, and lookups by ID are lock-free; adding books and users, searching and
+ * the display methods share the library's monitor.
+ * A library opened with {@link #open(Path)} also records every change in a
+ * {@link LibraryJournal} and is rebuilt from it on the next start, in the order the
+ * changes to each book were made.
+ */
+class Library implements Closeable {
+    static final Duration DEFAULT_LOAN_PERIOD = Duration.ofDays(14);
+
+    private List<Book> books;
+    private List<User> users;
+    private Map<Integer, Book> booksById;  // Hash index for constant-time lookups by ID.
+    private Map<Integer, User> usersById;
+    private CatalogIndex catalogIndex;     // Keyword index over titles and authors.
+    private NavigableSet<Loan> loansByDueTime; // Open loans, soonest due first.
+    private AtomicLong loanSequence;
+    private Map<Integer, HoldQueue> holdQueues; // Created on a book's first hold.
+    private HoldMetrics holdMetrics;
+    private CirculationStats circulationStats;
+    private Clock clock;
+    private Duration loanPeriod;
+    private LibraryJournal journal; // null for a library that lives only in memory.
+
+    /**
+     * Constructor to create a new Library that lends books for two weeks by the system clock.
+     */
+    public Library() {
+        this(Clock.systemUTC(), DEFAULT_LOAN_PERIOD);
+    }
+
+    /**
+     * Constructor to create a new Library with its own clock and loan period.
+     * @param clock The clock used to stamp loans and decide what is overdue.
+     * @param loanPeriod How long a book may be kept.
+     */
+    public Library(Clock clock, Duration loanPeriod) {
+        this.books = new ArrayList<>();
+        this.users = new ArrayList<>();
+        this.booksById = new ConcurrentHashMap<>();
+        this.usersById = new ConcurrentHashMap<>();
+        this.catalogIndex = new CatalogIndex();
+        this.loansByDueTime = new ConcurrentSkipListSet<>(Loan.BY_DUE_TIME);
+        this.loanSequence = new AtomicLong();
+        this.holdQueues = new ConcurrentHashMap<>();
+        this.holdMetrics = new HoldMetrics();
+        this.circulationStats = new CirculationStats(booksById::size);
+        this.clock = clock;
+        this.loanPeriod = loanPeriod;
+    }
+
+    /**
+     * Opens a library whose state is saved in a directory, rebuilding it from the
+     * latest snapshot and the journal written since. Lends books for two weeks by the
+     * system clock.
+     * @param directory The directory holding the snapshot and journal files.
+     * @return The recovered library.
+     * @throws IOException if the saved state cannot be read.
+     */
+    public static Library open(Path directory) throws IOException {
+        return open(directory, Clock.systemUTC(), DEFAULT_LOAN_PERIOD, LibraryJournal.DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    /**
+     * Opens a library whose state is saved in a directory.
+     * @param directory The directory holding the snapshot and journal files.
+     * @param clock The clock used to stamp loans and decide what is overdue.
+     * @param loanPeriod How long a book may be kept.
+     * @param checkpointEvery How many events to journal between automatic snapshots.
+     * @return The recovered library.
+     * @throws IOException if the saved state cannot be read.
+     */
+    public static Library open(Path directory, Clock clock, Duration loanPeriod, long checkpointEvery)
+            throws IOException {
+        Library library = new Library(clock, loanPeriod);
+        library.journal = LibraryJournal.recover(directory, library, checkpointEvery);
+        return library;
+    }
+
+    /**
+     * Returns the journal that records this library's changes.
+     * @return The journal, or null if the library lives only in memory.
+     */
+    public LibraryJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Writes out any journaled changes still buffered and closes the journal.
+     * Does nothing for a library that lives only in memory.
+     * @throws IOException if the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Adds a new book to the library's collection and indexes it for lookup and search.
+     * @param book The book to add.
+     * @throws IllegalArgumentException if another book already has the same ID.
+     */
+    public synchronized void addBook(Book book) {
+        if (journal != null) {
+            journal.beginChange();
+        }
+        try {
+            if (booksById.putIfAbsent(book.getId(), book) != null) {
+                throw new IllegalArgumentException("Book ID " + book.getId() + " is already in use.");
+            }
+            books.add(book);
+            catalogIndex.add(book);
+            if (journal != null) {
+                journal.bookAdded(book);
+            }
+        } finally {
+            if (journal != null) {
+                journal.endChange();
+            }
+        }
+    }
+
+    /**
+     * Registers a new user with the library.
+     * @param user The user to register.
+     * @throws IllegalArgumentException if another user already has the same ID.
+     */
+    public synchronized void addUser(User user) {
+        if (journal != null) {
+            journal.beginChange();
+        }
+        try {
+            if (usersById.putIfAbsent(user.getUserId(), user) != null) {
+                throw new IllegalArgumentException("User ID " + user.getUserId() + " is already in use.");
+            }
+            users.add(user);
+            if (journal != null) {
+                journal.userAdded(user);
+            }
+        } finally {
+            if (journal != null) {
+                journal.endChange();
+            }
+        }
+    }
+
+    /**
+     * Adds many books in one step, as a bulk load does. The keyword index is built for
+     * the whole batch at once, with titles and authors tokenized in parallel, and the
+     * library's monitor and the journal are taken once rather than per book.
+     * A book whose ID is already taken, in the library or earlier in the list, is skipped.
+     * @param newBooks The books to add.
+     * @return The number of books skipped as duplicates.
+     */
+    public synchronized int addBooks(List<Book> newBooks) {
+        if (journal != null) {
+            journal.beginChange();
+        }
+        try {
+            List<Book> accepted = new ArrayList<>(newBooks.size());
+            for (Book book : newBooks) {
+                if (booksById.putIfAbsent(book.getId(), book) == null) {
+                    accepted.add(book);
+                }
+            }
+            books.addAll(accepted);
+            catalogIndex.addAll(accepted);
+            if (journal != null) {
+                for (Book book : accepted) {
+                    journal.bookAdded(book);
+                }
+            }
+            return newBooks.size() - accepted.size();
+        } finally {
+            if (journal != null) {
+                journal.endChange();
+            }
+        }
+    }
+
+    /**
+     * Registers many users in one step, as a bulk load does.
+     * A user whose ID is already taken, in the library or earlier in the list, is skipped.
+     * @param newUsers The users to register.
+     * @return The number of users skipped as duplicates.
+     */
+    public synchronized int addUsers(List<User> newUsers) {
+        if (journal != null) {
+            journal.beginChange();
+        }
+        try {
+            List<User> accepted = new ArrayList<>(newUsers.size());
+            for (User user : newUsers) {
+                if (usersById.putIfAbsent(user.getUserId(), user) == null) {
+                    accepted.add(user);
+                }
+            }
+            users.addAll(accepted);
+            if (journal != null) {
+                for (User user : accepted) {
+                    journal.userAdded(user);
+                }
+            }
+            return newUsers.size() - accepted.size();
+        } finally {
+            if (journal != null) {
+                journal.endChange();
+            }
+        }
+    }
+    
+    /**
+     * Finds a book by its ID.
+     * @param bookId The ID of the book to find.
+     * @return The Book object if found, otherwise null.
+     */
+    public Book findBookById(int bookId) {
+        return booksById.get(bookId);
+    }
+
+    /**
+     * Finds a user by their ID.
+     * @param userId The ID of the user to find.
+     * @return The User object if found, otherwise null.
+     */
+    public User findUserById(int userId) {
+        return usersById.get(userId);
+    }
+
+    /**
+     * Searches the catalog by keywords in the title or author.
+     * @param query The words to look for, e.g. "tolkien hobbit".
+     * @param limit The maximum number of results.
+     * @return The matching books, best match first.
+     */
+    public synchronized List<Book> searchBooks(String query, int limit) {
+        List<Book> results = new ArrayList<>();
+        for (int bookId : catalogIndex.search(query, limit)) {
+            results.add(booksById.get(bookId));
+        }
+        return results;
+    }
+
+    /**
+     * Issues a book to a user.
+     * @param bookId The ID of the book to be issued.
+     * @param userId The ID of the user borrowing the book.
+     */
+    public void issueBook(int bookId, int userId) {
+        switch (checkoutOrHold(bookId, userId)) {
+            case BOOK_NOT_FOUND:
+                System.out.println("Error: Book with ID " + bookId + " not found.");
+                break;
+            case USER_NOT_FOUND:
+                System.out.println("Error: User with ID " + userId + " not found.");
+                break;
+            case ALREADY_ISSUED:
+                System.out.println("Sorry, the book '" + findBookById(bookId).getTitle() + "' is already issued.");
+                break;
+            case QUEUED:
+                System.out.println("Sorry, the book '" + findBookById(bookId).getTitle() + "' is already issued. "
+                        + findUserById(userId).getName() + " has been added to the waitlist ("
+                        + holdQueueDepth(bookId) + " waiting).");
+                break;
+            default:
+                System.out.println("Success: '" + findBookById(bookId).getTitle() + "' has been issued to "
+                        + findUserById(userId).getName() + ".");
+        }
+    }
+
+    /**
+     * Issues a book to a user without printing anything. Safe to call from many
+     * threads: changes to a book hold its monitor and claim it with a compare-and-set,
+     * so exactly one of several concurrent checkouts of the same book succeeds, and
+     * checkouts of different books never wait for each other.
+     * @param bookId The ID of the book to be issued.
+     * @param userId The ID of the user borrowing the book.
+     * @return ISSUED, ALREADY_ISSUED, BOOK_NOT_FOUND or USER_NOT_FOUND.
+     */
+    public CheckoutStatus checkout(int bookId, int userId) {
+        Book book = findBookById(bookId);
+        if (book == null) {
+            return CheckoutStatus.BOOK_NOT_FOUND;
+        }
+        User user = findUserById(userId);
+        if (user == null) {
+            return CheckoutStatus.USER_NOT_FOUND;
+        }
+        return changeBook(book, () -> issue(book, user));
+    }
+
+    private CheckoutStatus issue(Book book, User user) {
+        if (book.isIssued()) {
+            return CheckoutStatus.ALREADY_ISSUED; // Skip building a loan that cannot win.
+        }
+        Loan loan = newLoan(book, user, clock.instant());
+        if (!book.tryIssue(loan)) {
+            return CheckoutStatus.ALREADY_ISSUED;
+        }
+        startLoan(loan);
+        return CheckoutStatus.ISSUED;
+    }
+
+    /**
+     * Issues a book to a user, or puts the user on the book's waitlist if it is out.
+     * Safe to call from many threads. A waiting user is issued the book automatically
+     * when it comes back, ahead of anyone who asks for it later.
+     * @param bookId The ID of the book to be issued.
+     * @param userId The ID of the user borrowing the book.
+     * @return ISSUED, QUEUED, ALREADY_ISSUED (the user already has it), BOOK_NOT_FOUND or USER_NOT_FOUND.
+     */
+    public CheckoutStatus checkoutOrHold(int bookId, int userId) {
+        Book book = findBookById(bookId);
+        if (book == null) {
+            return CheckoutStatus.BOOK_NOT_FOUND;
+        }
+        User user = findUserById(userId);
+        if (user == null) {
+            return CheckoutStatus.USER_NOT_FOUND;
+        }
+        return changeBook(book, () -> issueOrHold(book, user));
+    }
+
+    private CheckoutStatus issueOrHold(Book book, User user) {
+        CheckoutStatus status = issue(book, user);
+        if (status != CheckoutStatus.ALREADY_ISSUED || book.getBorrower() == user) {
+            return status;
+        }
+        HoldQueue queue = holdQueues.computeIfAbsent(book.getId(), id -> new HoldQueue());
+        Instant requestedAt = clock.instant();
+        if (queue.add(user, requestedAt) > 0) {
+            holdMetrics.recordPlaced();
+            if (journal != null) {
+                journal.holdPlaced(book, user, requestedAt);
+            }
+        }
+        // The book may have come back between the failed checkout and the hold being
+        // queued, with nobody left to hand it on.
+        if (!book.isIssued()) {
+            dispatchHolds(book, queue);
+        }
+        return book.getBorrower() == user ? CheckoutStatus.ISSUED : CheckoutStatus.QUEUED;
+    }
+
+    /**
+     * Processes the return of a book from a user.
+     * @param bookId The ID of the book being returned.
+     * @param userId The ID of the user returning the book.
+     */
+    public void returnBook(int bookId, int userId) {
+        switch (checkin(bookId, userId)) {
+            case BOOK_NOT_FOUND:
+            case USER_NOT_FOUND:
+                System.out.println("Error: Invalid book ID or user ID.");
+                break;
+            case NOT_BORROWED:
+                System.out.println("Error: This book was not issued to this user or is not currently issued.");
+                break;
+            default:
+                System.out.println("Success: '" + findBookById(bookId).getTitle() + "' has been returned by "
+                        + findUserById(userId).getName() + ".");
+                User next = findBookById(bookId).getBorrower();
+                if (next != null) {
+                    System.out.println("It has been issued to " + next.getName() + " from the waitlist.");
+                }
+        }
+    }
+
+    /**
+     * Returns a book without printing anything. Safe to call from many threads; only
+     * the user currently holding the book can return it, and only once. If users are
+     * waiting for the book, it goes straight to the first of them.
+     * @param bookId The ID of the book being returned.
+     * @param userId The ID of the user returning the book.
+     * @return RETURNED, NOT_BORROWED, BOOK_NOT_FOUND or USER_NOT_FOUND.
+     */
+    public CheckoutStatus checkin(int bookId, int userId) {
+        Book book = findBookById(bookId);
+        if (book == null) {
+            return CheckoutStatus.BOOK_NOT_FOUND;
+        }
+        User user = findUserById(userId);
+        if (user == null) {
+            return CheckoutStatus.USER_NOT_FOUND;
+        }
+        return changeBook(book, () -> giveBack(book, user));
+    }
+
+    private CheckoutStatus giveBack(Book book, User user) {
+        Loan loan = book.getLoan();
+        if (loan == null || loan.getUser() != user) {
+            return CheckoutStatus.NOT_BORROWED;
+        }
+        // Take the loan off the user and the due list first, so neither ever shows a
+        // book that someone else has already been issued.
+        user.returnBook(loan);
+        loansByDueTime.remove(loan);
+        circulationStats.recordReturn();
+        if (journal != null) {
+            journal.bookReturned(loan);
+        }
+
+        HoldQueue queue = holdQueues.get(book.getId());
+        HoldQueue.Hold next = queue == null ? null : queue.poll();
+        if (next == null) {
+            if (!book.tryReturn(loan)) {
+                return CheckoutStatus.NOT_BORROWED;
+            }
+            // A hold placed after the poll above saw the book as issued; serve it now.
+            if (queue != null && queue.depth() > 0) {
+                dispatchHolds(book, queue);
+            }
+            return CheckoutStatus.RETURNED;
+        }
+        Instant now = clock.instant();
+        Loan handoff = newLoan(book, next.user, now);
+        if (!book.tryTransfer(loan, handoff)) {
+            queue.pushBack(next);
+            return CheckoutStatus.NOT_BORROWED;
+        }
+        startLoan(handoff);
+        holdMetrics.recordHandoff(Duration.between(next.requestedAt, now));
+        return CheckoutStatus.RETURNED;
+    }
+
+    /**
+     * Issues an available book to waiting users until it is out again or nobody is left.
+     */
+    private void dispatchHolds(Book book, HoldQueue queue) {
+        while (!book.isIssued()) {
+            HoldQueue.Hold next = queue.poll();
+            if (next == null) {
+                return;
+            }
+            Instant now = clock.instant();
+            Loan loan = newLoan(book, next.user, now);
+            if (!book.tryIssue(loan)) {
+                queue.pushBack(next);
+                return;
+            }
+            startLoan(loan);
+            holdMetrics.recordHandoff(Duration.between(next.requestedAt, now));
+        }
+    }
+
+    /**
+     * Runs a change to one book while holding the book's monitor, so a loan is
+     * registered with its user, the due list and the statistics before another
+     * change to the same book can see it. With a journal the change also holds the
+     * journal's change lock, so its events are recorded in the same order as the
+     * changes and never straddle a snapshot.
+     */
+    private CheckoutStatus changeBook(Book book, Supplier<CheckoutStatus> change) {
+        if (journal != null) {
+            journal.beginChange();
+        }
+        try {
+            synchronized (book) {
+                return change.get();
+            }
+        } finally {
+            if (journal != null) {
+                journal.endChange();
+            }
+        }
+    }
+
+    private Loan newLoan(Book book, User user, Instant now) {
+        return new Loan(book, user, now, now.plus(loanPeriod), loanSequence.incrementAndGet());
+    }
+
+    /**
+     * Records a loan that has just won its book.
+     */
+    private void startLoan(Loan loan) {
+        loan.getUser().borrowBook(loan);
+        loansByDueTime.add(loan);
+        circulationStats.recordIssue(loan);
+        if (journal != null) {
+            journal.bookIssued(loan);
+        }
+    }
+
+    // --- Recovery: applied while rebuilding state, before a journal is attached ---
+
+    /**
+     * Puts a book back out on a recovered loan, taking the user off the book's
+     * waitlist if the loan was a handoff.
+     * @param newCheckout true when replaying the checkout itself, false for a loan
+     *        restored from a snapshot whose checkout counts already include it.
+     */
+    void restoreLoan(int bookId, int userId, Instant issuedAt, Instant dueAt, boolean newCheckout) {
+        Book book = findBookById(bookId);
+        User user = findUserById(userId);
+        HoldQueue queue = holdQueues.get(bookId);
+        HoldQueue.Hold hold = queue == null ? null : queue.remove(user);
+        if (hold != null) {
+            holdMetrics.recordHandoff(Duration.between(hold.requestedAt, issuedAt));
+        }
+        Loan loan = new Loan(book, user, issuedAt, dueAt, loanSequence.incrementAndGet());
+        if (!book.tryIssue(loan)) {
+            return;
+        }
+        if (newCheckout) {
+            startLoan(loan);
+        } else {
+            user.borrowBook(loan);
+            loansByDueTime.add(loan);
+            circulationStats.recordRestoredLoan();
+        }
+    }
+
+    /**
+     * Ends a recovered loan without handing the book on; a handoff is journaled as
+     * its own loan.
+     */
+    void restoreReturn(int bookId, int userId) {
+        Book book = findBookById(bookId);
+        Loan loan = book.getLoan();
+        if (loan != null && loan.getUser().getUserId() == userId) {
+            loan.getUser().returnBook(loan);
+            loansByDueTime.remove(loan);
+            circulationStats.recordReturn();
+            book.tryReturn(loan);
+        }
+    }
+
+    /**
+     * Puts a user back on a book's waitlist.
+     */
+    void restoreHold(int bookId, int userId, Instant requestedAt) {
+        HoldQueue queue = holdQueues.computeIfAbsent(bookId, id -> new HoldQueue());
+        if (queue.add(findUserById(userId), requestedAt) > 0) {
+            holdMetrics.recordPlaced();
+        }
+    }
+
+    /**
+     * Returns the books in the order they were added, for snapshots.
+     */
+    List<Book> getBooks() {
+        return Collections.unmodifiableList(books);
+    }
+
+    /**
+     * Returns the users in the order they registered, for snapshots.
+     */
+    List<User> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * Returns the users waiting for a book, first in line first, for snapshots.
+     */
+    List<HoldQueue.Hold> getHolds(int bookId) {
+        HoldQueue queue = holdQueues.get(bookId);
+        return queue == null ? Collections.emptyList() : queue.waiting();
+    }
+
+    /**
+     * Returns how many users are waiting for a book.
+     * @param bookId The ID of the book.
+     * @return The waitlist length, 0 if nobody is waiting.
+     */
+    public int holdQueueDepth(int bookId) {
+        HoldQueue queue = holdQueues.get(bookId);
+        return queue == null ? 0 : queue.depth();
+    }
+
+    /**
+     * Returns the live hold counters: holds placed and served, users waiting, and wait times.
+     * @return The library's hold metrics.
+     */
+    public HoldMetrics getHoldMetrics() {
+        return holdMetrics;
+    }
+
+    /**
+     * Returns the live circulation figures: checkouts per book, author and user, the
+     * most borrowed titles, and utilization.
+     * @return The library's circulation statistics.
+     */
+    public CirculationStats getCirculationStats() {
+        return circulationStats;
+    }
+
+    /**
+     * Finds who currently has a book.
+     * @param bookId The ID of the book.
+     * @return The open loan for the book, or null if it is available or unknown.
+     */
+    public Loan findLoan(int bookId) {
+        Book book = findBookById(bookId);
+        return book == null ? null : book.getLoan();
+    }
+
+    /**
+     * Lists the loans that are past due, most overdue first. Only the overdue loans
+     * are visited, not every open loan.
+     * @return The overdue loans as of the library clock's current time.
+     */
+    public List<Loan> overdueLoans() {
+        Instant now = clock.instant();
+        List<Loan> overdue = new ArrayList<>();
+        for (Loan loan : loansByDueTime) {
+            if (!loan.isOverdue(now)) {
+                break;
+            }
+            overdue.add(loan);
+        }
+        return overdue;
+    }
+
+    /**
+     * Displays the status of all books in the library.
+     * The inventory is written through a {@link LibraryReport} in a few large writes.
+     */
+    public synchronized void displayBooks() {
+        try {
+            new LibraryReport(this, ReportFormat.TEXT).writeBooks(System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // PrintStream never throws; it sets an error flag.
+        }
+    }
+    
+    /**
+     * Displays the waitlist length of every book that has one, followed by the hold metrics.
+     */
+    public synchronized void displayHolds() {
+        System.out.println("\n--- Hold Queues ---");
+        for (Book book : books) {
+            int depth = holdQueueDepth(book.getId());
+            if (depth > 0) {
+                System.out.println("'" + book.getTitle() + "': " + depth + " waiting");
+            }
+        }
+        System.out.println(holdMetrics);
+        System.out.println("-------------------\n");
+    }
+
+    /**
+     * Displays the circulation figures and the most borrowed titles and authors.
+     * @param k How many titles and authors to list.
+     */
+    public void displayStats(int k) {
+        StringBuilder out = new StringBuilder("\n--- Circulation ---\n");
+        out.append(circulationStats).append('\n');
+        out.append("Most borrowed titles:\n");
+        for (Leaderboard.Entry<Book> entry : circulationStats.topBooks(k)) {
+            out.append("  '").append(entry.key.getTitle()).append("': ").append(entry.count).append('\n');
+        }
+        out.append("Most borrowed authors:\n");
+        for (Leaderboard.Entry<String> entry : circulationStats.topAuthors(k)) {
+            out.append("  ").append(entry.key).append(": ").append(entry.count).append('\n');
+        }
+        out.append("-------------------\n");
+        System.out.println(out);
+    }
+
+    /**
+     * Displays the details of all registered users and the books they have borrowed.
+     */
+    public synchronized void displayUsers() {
+        try {
+            new LibraryReport(this, ReportFormat.TEXT).writeUsers(System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package Task3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * LibraryJournal.java
+ * A durable, append-only record of everything that happens in a {@link Library}:
+ * books and users added, books issued and returned, and holds placed. Replaying the
+ * journal on top of the latest {@link LibrarySnapshot} rebuilds the library exactly.
+ * Events are encoded in a compact binary form into an in-memory batch. A batch is
+ * written as one frame [int length][int crc32][events] when it fills up, every
+ * {@value #FLUSH_INTERVAL_MILLIS} ms, and on {@link #flush()} and {@link #close()}, so
+ * a crash can lose at most the last unwritten batch. A torn frame at the end of a
+ * file is detected by its length or checksum and cut off on replay.
+ * Journal files are numbered by generation (library-N.journal). Every
+ * checkpointEvery events a background checkpoint switches to a new generation,
+ * writes a snapshot, and deletes the journal files the snapshot covers.
+ */
+class LibraryJournal implements Closeable {
+    static final long DEFAULT_CHECKPOINT_EVERY = 1_000_000;
+
+    static final byte BOOK_ADDED = 1;    // [int bookId][title][author]
+    static final byte USER_ADDED = 2;    // [int userId][name]
+    static final byte BOOK_ISSUED = 3;   // [int bookId][int userId][long issuedAt][long dueAt], times in epoch nanos
+    static final byte BOOK_RETURNED = 4; // [int bookId][int userId]
+    static final byte HOLD_PLACED = 5;   // [int bookId][int userId][long requestedAt]
+
+    private static final int HEADER_BYTES = 8;
+    private static final int BATCH_BYTES = 64 * 1024;
+    private static final int MAX_FRAME_BYTES = 1 << 24;
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final String SNAPSHOT_FILE = "library.snapshot";
+    private static final String JOURNAL_PREFIX = "library-";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final long CHECKPOINT_RETRY = 100_000; // Events to wait after a failed checkpoint.
+
+    private final Library library;
+    private final Path directory;
+    private final long checkpointEvery;
+    // Library changes hold the read side while they change state and record the
+    // event; a checkpoint holds the write side while it switches generations and
+    // copies the library.
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock batchLock = new ReentrantLock(); // Guards the batch and the file.
+    private final Object checkpointMonitor = new Object();       // One checkpoint at a time.
+    private final AtomicLong eventsSinceCheckpoint = new AtomicLong();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService background;
+    private ByteBuffer batch = newBatch(BATCH_BYTES);
+    private FileChannel channel;
+    private long generation;
+    private IOException failure; // Set once a write fails; the journal is unusable afterwards.
+
+    private LibraryJournal(Library library, Path directory, long checkpointEvery, long generation)
+            throws IOException {
+        this.library = library;
+        this.directory = directory;
+        this.checkpointEvery = checkpointEvery;
+        this.generation = generation;
+        this.channel = openJournal(generation);
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuilds a library from the snapshot and journal files in a directory and
+     * returns a journal that appends its future changes to the newest journal file.
+     * @param directory The directory holding the files; created if missing.
+     * @param library An empty library to rebuild into.
+     * @param checkpointEvery How many events to journal between automatic snapshots.
+     * @return The journal to attach to the library.
+     * @throws IOException if the saved state cannot be read.
+     */
+    static LibraryJournal recover(Path directory, Library library, long checkpointEvery) throws IOException {
+        Files.createDirectories(directory);
+        long firstGeneration = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            firstGeneration = LibrarySnapshot.read(snapshot, library);
+        }
+        long lastGeneration = firstGeneration;
+        for (Map.Entry<Long, Path> journal : journalFiles(directory).entrySet()) {
+            if (journal.getKey() >= firstGeneration) {
+                replay(journal.getValue(), library);
+                lastGeneration = journal.getKey();
+            }
+        }
+        // Replay cut off any torn tail, so new events can go straight after the last good frame.
+        return new LibraryJournal(library, directory, checkpointEvery, lastGeneration);
+    }
+
+    // --- Recording events; called by the library between beginChange and endChange ---
+
+    void beginChange() {
+        changeLock.readLock().lock();
+    }
+
+    void endChange() {
+        changeLock.readLock().unlock();
+    }
+
+    void bookAdded(Book book) {
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        batchLock.lock();
+        try {
+            reserve(1 + 4 + 8 + length(title) + length(author));
+            batch.put(BOOK_ADDED).putInt(book.getId());
+            putBytes(title);
+            putBytes(author);
+        } finally {
+            batchLock.unlock();
+        }
+        counted();
+    }
+
+    void userAdded(User user) {
+        byte[] name = utf8(user.getName());
+        batchLock.lock();
+        try {
+            reserve(1 + 4 + 4 + length(name));
+            batch.put(USER_ADDED).putInt(user.getUserId());
+            putBytes(name);
+        } finally {
+            batchLock.unlock();
+        }
+        counted();
+    }
+
+    void bookIssued(Loan loan) {
+        batchLock.lock();
+        try {
+            reserve(1 + 4 + 4 + 8 + 8);
+            batch.put(BOOK_ISSUED).putInt(loan.getBook().getId()).putInt(loan.getUser().getUserId())
+                    .putLong(toNanos(loan.getIssuedAt())).putLong(toNanos(loan.getDueAt()));
+        } finally {
+            batchLock.unlock();
+        }
+        counted();
+    }
+
+    void bookReturned(Loan loan) {
+        batchLock.lock();
+        try {
+            reserve(1 + 4 + 4);
+            batch.put(BOOK_RETURNED).putInt(loan.getBook().getId()).putInt(loan.getUser().getUserId());
+        } finally {
+            batchLock.unlock();
+        }
+        counted();
+    }
+
+    void holdPlaced(Book book, User user, Instant requestedAt) {
+        batchLock.lock();
+        try {
+            reserve(1 + 4 + 4 + 8);
+            batch.put(HOLD_PLACED).putInt(book.getId()).putInt(user.getUserId()).putLong(toNanos(requestedAt));
+        } finally {
+            batchLock.unlock();
+        }
+        counted();
+    }
+
+    /**
+     * Makes room for an event, writing out the current batch first if it is full.
+     * Called with the batch lock held.
+     */
+    private void reserve(int bytes) {
+        if (failure != null) {
+            throw new UncheckedIOException("Library journal is unusable after an earlier write failure.", failure);
+        }
+        if (batch.position() > HEADER_BYTES && batch.remaining() < bytes) {
+            try {
+                writeBatch();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the library journal.", e);
+            }
+        }
+        if (batch.remaining() < bytes) {
+            ByteBuffer larger = newBatch(batch.position() + bytes);
+            batch.flip().position(HEADER_BYTES); // newBatch already left room for the header.
+            larger.put(batch);
+            batch = larger;
+        }
+    }
+
+    /**
+     * Counts an event, starting a background checkpoint once enough have piled up
+     * and none is pending. A failed checkpoint is tried again after
+     * {@value #CHECKPOINT_RETRY} more events.
+     */
+    private void counted() {
+        if (eventsSinceCheckpoint.incrementAndGet() >= checkpointEvery
+                && checkpointScheduled.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    eventsSinceCheckpoint.set(Math.max(0, checkpointEvery - CHECKPOINT_RETRY));
+                    System.err.println("Library checkpoint failed: " + e.getMessage());
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the current batch as one frame. Called with the batch lock held.
+     */
+    private void writeBatch() throws IOException {
+        int payloadLength = batch.position() - HEADER_BYTES;
+        if (payloadLength == 0) {
+            return;
+        }
+        crc.reset();
+        crc.update(batch.array(), HEADER_BYTES, payloadLength);
+        batch.putInt(0, payloadLength);
+        batch.putInt(4, (int) crc.getValue());
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        if (batch.capacity() > BATCH_BYTES) {
+            batch = newBatch(BATCH_BYTES); // Drop an oversized buffer grown for one large event.
+        } else {
+            batch.clear();
+            batch.position(HEADER_BYTES);
+        }
+    }
+
+    /**
+     * Writes out any buffered events and forces them to disk.
+     * @throws IOException if the journal cannot be written.
+     */
+    public void flush() throws IOException {
+        batchLock.lock();
+        try {
+            writeBatch();
+            channel.force(false);
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        batchLock.lock();
+        try {
+            if (failure == null) {
+                writeBatch();
+            }
+        } catch (IOException e) {
+            System.err.println("Library journal write failed: " + e.getMessage());
+        } finally {
+            batchLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the library and deletes the journal files it replaces.
+     * Library changes pause only while the journal switches to a new generation and
+     * the state is copied; the snapshot file is written afterwards.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointMonitor) {
+            LibrarySnapshot snapshot;
+            long snapshotGeneration;
+            changeLock.writeLock().lock();
+            try {
+                batchLock.lock();
+                try {
+                    writeBatch();
+                    channel.force(false);
+                    // Open the next generation first, so a failure leaves the journal as it was.
+                    FileChannel next = openJournal(generation + 1);
+                    FileChannel previous = channel;
+                    channel = next;
+                    generation++;
+                    previous.close();
+                } finally {
+                    batchLock.unlock();
+                }
+                snapshotGeneration = generation;
+                snapshot = LibrarySnapshot.capture(library);
+                eventsSinceCheckpoint.set(0);
+            } finally {
+                changeLock.writeLock().unlock();
+            }
+
+            snapshot.write(directory.resolve(SNAPSHOT_FILE), snapshotGeneration);
+            for (Map.Entry<Long, Path> journal : journalFiles(directory).entrySet()) {
+                if (journal.getKey() < snapshotGeneration) {
+                    Files.deleteIfExists(journal.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a running checkpoint, then writes out the last batch and closes the file.
+     * @throws IOException if the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        changeLock.writeLock().lock();
+        batchLock.lock();
+        try {
+            if (failure == null) {
+                writeBatch();
+            }
+            channel.force(true);
+            channel.close();
+        } finally {
+            batchLock.unlock();
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    // --- Replay ---
+
+    /**
+     * Applies every complete frame of a journal file to a library. A torn or corrupt
+     * frame ends the replay and the file is truncated just before it.
+     * @param file The journal file.
+     * @param library The library to apply the events to.
+     * @return The number of events applied.
+     * @throws IOException if the file cannot be read.
+     */
+    static long replay(Path file, Library library) throws IOException {
+        long events = 0;
+        long validLength = 0;
+        CRC32 checksum = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        ByteBuffer frame = ByteBuffer.allocate(BATCH_BYTES);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (true) {
+                header.clear();
+                if (!readFully(in, header)) {
+                    break;
+                }
+                int payloadLength = header.getInt(0);
+                int expectedCrc = header.getInt(4);
+                if (payloadLength <= 0 || payloadLength > MAX_FRAME_BYTES) {
+                    break;
+                }
+                if (frame.capacity() < payloadLength) {
+                    frame = ByteBuffer.allocate(payloadLength);
+                }
+                frame.clear().limit(payloadLength);
+                if (!readFully(in, frame)) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(frame.array(), 0, payloadLength);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    break;
+                }
+                frame.flip();
+                while (frame.hasRemaining()) {
+                    apply(frame, library);
+                    events++;
+                }
+                validLength += HEADER_BYTES + payloadLength;
+            }
+            if (in.size() > validLength) {
+                in.truncate(validLength);
+            }
+        }
+        return events;
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void apply(ByteBuffer in, Library library) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case BOOK_ADDED:
+                library.addBook(new Book(in.getInt(), getString(in), getString(in)));
+                break;
+            case USER_ADDED:
+                library.addUser(new User(in.getInt(), getString(in)));
+                break;
+            case BOOK_ISSUED:
+                library.restoreLoan(in.getInt(), in.getInt(), ofNanos(in.getLong()), ofNanos(in.getLong()), true);
+                break;
+            case BOOK_RETURNED:
+                library.restoreReturn(in.getInt(), in.getInt());
+                break;
+            case HOLD_PLACED:
+                library.restoreHold(in.getInt(), in.getInt(), ofNanos(in.getLong()));
+                break;
+            default:
+                throw new IOException("Unknown library journal event: " + type);
+        }
+    }
+
+    // --- Encoding helpers ---
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            batch.putInt(-1);
+        } else {
+            batch.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Encodes an instant as nanoseconds since the epoch, which keeps the clock's full
+     * precision and covers the years 1677 to 2262.
+     */
+    static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    static Instant ofNanos(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    /**
+     * Encodes a string for the journal or a snapshot, which store its length and then
+     * its UTF-8 bytes, with -1 for null.
+     */
+    static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static ByteBuffer newBatch(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.position(HEADER_BYTES); // Room for the frame header.
+        return buffer;
+    }
+
+    private FileChannel openJournal(long journalGeneration) throws IOException {
+        return FileChannel.open(directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Lists the journal files in a directory, ordered by generation.
+     */
+    private static TreeMap<Long, Path> journalFiles(Path directory) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                String number = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+                try {
+                    files.put(Long.parseLong(number), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours; leave it alone.
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,140 @@
+package Task3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * LibraryReplayBenchmark.java
+ * Measures how fast a durable library comes back after a restart. It journals the
+ * requested number of events through the normal Library API, then times
+ * {@link Library#open} twice: once replaying the whole journal, and once from a
+ * checkpoint snapshot plus a short journal tail. First it checks that a snapshot
+ * keeps a missing author and a title longer than 64 KB.
+ * Usage: java Task3.LibraryReplayBenchmark [events] [dataDirectory]
+ */
+public class LibraryReplayBenchmark {
+    private static final int BOOKS = 10_000;
+    private static final int USERS = 1_000;
+
+    public static void main(String[] args) throws IOException {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("library-replay");
+        if (Files.exists(directory.resolve("library.snapshot"))
+                || Files.exists(directory.resolve("library-0.journal"))) {
+            System.err.println("Data directory is not empty: " + directory);
+            return;
+        }
+
+        checkSnapshotStrings();
+        System.out.println("--- Library journal replay ---");
+        long written = generate(directory, events);
+        long journalBytes = directoryBytes(directory);
+        System.out.printf("Journaled %,d events (%.1f MB)%n", written, journalBytes / 1e6);
+
+        time("Full replay", directory, written);
+
+        // Checkpoint, then add a tail of 10% more events on top of the snapshot.
+        try (Library library = Library.open(directory, Clock.systemUTC(), Library.DEFAULT_LOAN_PERIOD,
+                Long.MAX_VALUE)) {
+            library.getJournal().checkpoint();
+            written = cycle(library, events / 10, written);
+        }
+        time("Snapshot + tail", directory, written);
+
+        if (args.length < 2) {
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Snapshots a book with no author and a very long title, and checks it comes back.
+     */
+    private static void checkSnapshotStrings() throws IOException {
+        Path directory = Files.createTempDirectory("library-snapshot");
+        StringBuilder title = new StringBuilder();
+        while (title.length() < 100_000) {
+            title.append("A very long title \u00e9 ");
+        }
+        try (Library library = Library.open(directory, Clock.systemUTC(), Library.DEFAULT_LOAN_PERIOD,
+                Long.MAX_VALUE)) {
+            library.addBook(new Book(1, title.toString(), null));
+            library.addUser(new User(1, null));
+            library.getJournal().checkpoint();
+        }
+        try (Library library = Library.open(directory, Clock.systemUTC(), Library.DEFAULT_LOAN_PERIOD,
+                Long.MAX_VALUE)) {
+            Book book = library.findBookById(1);
+            if (book == null || !title.toString().equals(book.getTitle()) || book.getAuthor() != null
+                    || library.findUserById(1) == null || library.findUserById(1).getName() != null) {
+                throw new IllegalStateException("The snapshot did not keep a long title and missing names.");
+            }
+        }
+        deleteRecursively(directory);
+    }
+
+    private static long generate(Path directory, long events) throws IOException {
+        try (Library library = Library.open(directory, Clock.systemUTC(), Library.DEFAULT_LOAN_PERIOD,
+                Long.MAX_VALUE)) {
+            for (int id = 1; id <= BOOKS; id++) {
+                library.addBook(new Book(id, "Book " + id, "Author " + (id % 100)));
+            }
+            for (int id = 1; id <= USERS; id++) {
+                library.addUser(new User(id, "User " + id));
+            }
+            return cycle(library, events - BOOKS - USERS, BOOKS + USERS);
+        }
+    }
+
+    /**
+     * Issues and returns books round-robin; each pair journals two events.
+     */
+    private static long cycle(Library library, long events, long written) {
+        for (long i = 0; i < events / 2; i++) {
+            int bookId = (int) (i % BOOKS) + 1;
+            int userId = (int) (i % USERS) + 1;
+            library.checkout(bookId, userId);
+            library.checkin(bookId, userId);
+        }
+        return written + events / 2 * 2;
+    }
+
+    private static void time(String label, Path directory, long events) throws IOException {
+        long bytes = directoryBytes(directory);
+        long start = System.nanoTime();
+        try (Library library = Library.open(directory, Clock.systemUTC(), Library.DEFAULT_LOAN_PERIOD,
+                Long.MAX_VALUE)) {
+            long nanos = System.nanoTime() - start;
+            double seconds = nanos / 1e9;
+            System.out.printf("%-16s %8.2f s  %,14.0f events/s  %8.1f MB/s  (%,d books, %d on loan)%n",
+                    label, seconds, events / seconds, bytes / 1e6 / seconds,
+                    library.getBooks().size(), countLoans(library));
+        }
+    }
+
+    private static int countLoans(Library library) {
+        int loans = 0;
+        for (Book book : library.getBooks()) {
+            if (book.getLoan() != null) {
+                loans++;
+            }
+        }
+        return loans;
+    }
+
+    private static long directoryBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
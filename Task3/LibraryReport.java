@@ -0,0 +1,457 @@
+package Task3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LibraryReport.java
+ * Streams the book inventory or the user list to any {@link Appendable} (a Writer,
+ * a StringBuilder, System.out) or {@link WritableByteChannel} (a file or socket), as
+ * plain text, CSV or JSON. Rows can be filtered to issued books or one author and
+ * split into pages.
+ * Rows are written field by field into one reusable buffer, which is handed to the
+ * output in large chunks, so a report of any size makes a handful of writes instead
+ * of one per line and builds no per-row strings. A report object keeps its buffer
+ * between runs and is not thread-safe; the library's monitor is held while rows are
+ * read, as in the display methods.
+ */
+class LibraryReport {
+    private static final int FLUSH_CHARS = 16 * 1024;
+    private static final int CHANNEL_BUFFER_BYTES = 64 * 1024;
+    private static final String NL = System.lineSeparator();
+
+    private final Library library;
+    private final ReportFormat format;
+    private boolean issuedOnly;
+    private String author;
+    private int page;
+    private int pageSize; // 0 puts every matching row on one page.
+    private final StringBuilder text = new StringBuilder(FLUSH_CHARS + 1024);
+    private ByteBuffer bytes;       // Created on the first channel report.
+    private char[] charArray = new char[0];
+    private CharsetEncoder encoder;
+
+    /**
+     * Output that takes the buffer's contents each time it fills up.
+     */
+    private interface Sink {
+        void drain() throws IOException;
+    }
+
+    /**
+     * Constructor to create a report over a library.
+     * @param library The library to report on.
+     * @param format The output format.
+     */
+    public LibraryReport(Library library, ReportFormat format) {
+        this.library = library;
+        this.format = format;
+    }
+
+    /**
+     * Limits the report to books that are out on loan, or to users who hold one.
+     * @param issuedOnly true to skip available books and users with nothing borrowed.
+     * @return This report.
+     */
+    public LibraryReport issuedOnly(boolean issuedOnly) {
+        this.issuedOnly = issuedOnly;
+        return this;
+    }
+
+    /**
+     * Limits the report to books by one author, or to users holding one of their books.
+     * @param author The author, matched ignoring case; null for any author.
+     * @return This report.
+     */
+    public LibraryReport byAuthor(String author) {
+        this.author = author;
+        return this;
+    }
+
+    /**
+     * Writes only one page of the matching rows.
+     * @param page The page to write, counting from 0.
+     * @param pageSize Rows per page; 0 writes every matching row.
+     * @return This report.
+     */
+    public LibraryReport page(int page, int pageSize) {
+        if (page < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("Page and page size must not be negative.");
+        }
+        this.page = page;
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Writes the book inventory.
+     * @param out Where to write.
+     * @return The number of books written.
+     * @throws IOException if the output cannot be written.
+     */
+    public int writeBooks(Appendable out) throws IOException {
+        return books(() -> out.append(text));
+    }
+
+    /**
+     * Writes the book inventory as UTF-8.
+     * @param out Where to write.
+     * @return The number of books written.
+     * @throws IOException if the channel cannot be written.
+     */
+    public int writeBooks(WritableByteChannel out) throws IOException {
+        try {
+            return books(() -> encode(out));
+        } finally {
+            resetEncoder();
+        }
+    }
+
+    /**
+     * Writes the registered users and their loans.
+     * @param out Where to write.
+     * @return The number of users written.
+     * @throws IOException if the output cannot be written.
+     */
+    public int writeUsers(Appendable out) throws IOException {
+        return users(() -> out.append(text));
+    }
+
+    /**
+     * Writes the registered users and their loans as UTF-8.
+     * @param out Where to write.
+     * @return The number of users written.
+     * @throws IOException if the channel cannot be written.
+     */
+    public int writeUsers(WritableByteChannel out) throws IOException {
+        try {
+            return users(() -> encode(out));
+        } finally {
+            resetEncoder();
+        }
+    }
+
+    private int books(Sink out) throws IOException {
+        text.setLength(0);
+        int first = page * pageSize;
+        int matched = 0;
+        int written = 0;
+        synchronized (library) {
+            switch (format) {
+                case TEXT:
+                    text.append(NL).append("--- Library Book Inventory ---").append(NL);
+                    break;
+                case CSV:
+                    text.append("id,title,author,issued,borrower_id,due_at\r\n");
+                    break;
+                default:
+                    text.append('[');
+            }
+            for (Book book : library.getBooks()) {
+                Loan loan = book.getLoan(); // Read once, so every column describes the same loan.
+                if ((issuedOnly && loan == null) || !byAuthor(book)) {
+                    continue;
+                }
+                if (matched++ < first) {
+                    continue;
+                }
+                bookRow(book, loan, written++);
+                if (text.length() >= FLUSH_CHARS) {
+                    out.drain();
+                    text.setLength(0);
+                }
+                if (written == pageSize) {
+                    break;
+                }
+            }
+        }
+        switch (format) {
+            case TEXT:
+                text.append("----------------------------").append(NL).append(NL);
+                break;
+            case JSON:
+                text.append(written == 0 ? "]\n" : "\n]\n");
+                break;
+            default:
+        }
+        out.drain();
+        text.setLength(0);
+        return written;
+    }
+
+    private void bookRow(Book book, Loan loan, int row) {
+        switch (format) {
+            case TEXT:
+                text.append("ID: ").append(book.getId())
+                        .append(", Title: '").append(book.getTitle())
+                        .append("', Author: '").append(book.getAuthor())
+                        .append("', Issued: ").append(loan != null).append(NL);
+                break;
+            case CSV:
+                text.append(book.getId()).append(',');
+                csv(book.getTitle());
+                text.append(',');
+                csv(book.getAuthor());
+                text.append(',').append(loan != null).append(',');
+                if (loan != null) {
+                    text.append(loan.getUser().getUserId()).append(',');
+                    instant(loan.getDueAt());
+                } else {
+                    text.append(',');
+                }
+                text.append("\r\n");
+                break;
+            default:
+                text.append(row == 0 ? "\n" : ",\n");
+                text.append("{\"id\":").append(book.getId()).append(",\"title\":");
+                json(book.getTitle());
+                text.append(",\"author\":");
+                json(book.getAuthor());
+                text.append(",\"issued\":").append(loan != null);
+                if (loan != null) {
+                    text.append(",\"borrowerId\":").append(loan.getUser().getUserId()).append(",\"dueAt\":");
+                    json(loan.getDueAt());
+                } else {
+                    text.append(",\"borrowerId\":null,\"dueAt\":null");
+                }
+                text.append('}');
+        }
+    }
+
+    private int users(Sink out) throws IOException {
+        text.setLength(0);
+        int first = page * pageSize;
+        int matched = 0;
+        int written = 0;
+        synchronized (library) {
+            switch (format) {
+                case TEXT:
+                    text.append(NL).append("--- Registered Users ---").append(NL);
+                    break;
+                case CSV:
+                    text.append("user_id,name,book_id,title,due_at\r\n");
+                    break;
+                default:
+                    text.append('[');
+            }
+            for (User user : library.getUsers()) {
+                List<Loan> loans = user.getLoans();
+                if (author != null) {
+                    List<Loan> byAuthor = new ArrayList<>();
+                    for (Loan loan : loans) {
+                        if (byAuthor(loan.getBook())) {
+                            byAuthor.add(loan);
+                        }
+                    }
+                    loans = byAuthor;
+                }
+                if ((issuedOnly || author != null) && loans.isEmpty()) {
+                    continue;
+                }
+                if (matched++ < first) {
+                    continue;
+                }
+                userRow(user, loans, written++);
+                if (text.length() >= FLUSH_CHARS) {
+                    out.drain();
+                    text.setLength(0);
+                }
+                if (written == pageSize) {
+                    break;
+                }
+            }
+        }
+        switch (format) {
+            case TEXT:
+                text.append("------------------------").append(NL).append(NL);
+                break;
+            case JSON:
+                text.append(written == 0 ? "]\n" : "\n]\n");
+                break;
+            default:
+        }
+        out.drain();
+        text.setLength(0);
+        return written;
+    }
+
+    private void userRow(User user, List<Loan> loans, int row) {
+        switch (format) {
+            case TEXT:
+                text.append("UserID: ").append(user.getUserId())
+                        .append(", Name: '").append(user.getName())
+                        .append("', Borrowed Books: ").append(loans.size()).append(NL);
+                if (!loans.isEmpty()) {
+                    text.append("  Borrowed Books:").append(NL);
+                    for (Loan loan : loans) {
+                        text.append("    - ").append(loan.getBook().getTitle())
+                                .append(" (due ");
+                        instant(loan.getDueAt());
+                        text.append(')').append(NL);
+                    }
+                }
+                break;
+            case CSV:
+                // One row per loan; a user with no loans gets one row with the loan columns empty.
+                if (loans.isEmpty()) {
+                    text.append(user.getUserId()).append(',');
+                    csv(user.getName());
+                    text.append(",,,\r\n");
+                }
+                for (Loan loan : loans) {
+                    text.append(user.getUserId()).append(',');
+                    csv(user.getName());
+                    text.append(',').append(loan.getBook().getId()).append(',');
+                    csv(loan.getBook().getTitle());
+                    text.append(',');
+                    instant(loan.getDueAt());
+                    text.append("\r\n");
+                }
+                break;
+            default:
+                text.append(row == 0 ? "\n" : ",\n");
+                text.append("{\"userId\":").append(user.getUserId()).append(",\"name\":");
+                json(user.getName());
+                text.append(",\"loans\":[");
+                for (int i = 0; i < loans.size(); i++) {
+                    Loan loan = loans.get(i);
+                    text.append(i == 0 ? "{\"bookId\":" : ",{\"bookId\":").append(loan.getBook().getId())
+                            .append(",\"title\":");
+                    json(loan.getBook().getTitle());
+                    text.append(",\"dueAt\":");
+                    json(loan.getDueAt());
+                    text.append('}');
+                }
+                text.append("]}");
+        }
+    }
+
+    private boolean byAuthor(Book book) {
+        return author == null || author.equalsIgnoreCase(book.getAuthor());
+    }
+
+    /**
+     * Appends a CSV field, quoted only if it contains a comma, quote or line break.
+     */
+    private void csv(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            text.append(value);
+            return;
+        }
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                text.append('"');
+            }
+            text.append(c);
+        }
+        text.append('"');
+    }
+
+    private void json(Instant value) {
+        text.append('"');
+        instant(value);
+        text.append('"');
+    }
+
+    /**
+     * Appends a time in ISO-8601 form, as Instant.toString does, without the string.
+     */
+    private void instant(Instant value) {
+        DateTimeFormatter.ISO_INSTANT.formatTo(value, text);
+    }
+
+    /**
+     * Appends a JSON string literal, or null.
+     */
+    private void json(String value) {
+        if (value == null) {
+            text.append("null");
+            return;
+        }
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    text.append("\\\"");
+                    break;
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    text.append("\\r");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        text.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        text.append(c);
+                    }
+            }
+        }
+        text.append('"');
+    }
+
+    private void resetEncoder() {
+        if (encoder != null) {
+            encoder.reset();
+        }
+    }
+
+    /**
+     * Encodes the text buffer as UTF-8 into the byte buffer, writing the bytes to the
+     * channel whenever they fill up. The text buffer is drained on row boundaries, so
+     * a character is never split between two drains.
+     */
+    private void encode(WritableByteChannel out) throws IOException {
+        if (bytes == null) {
+            bytes = ByteBuffer.allocate(CHANNEL_BUFFER_BYTES);
+            encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        // Copy into an array first: the encoder's fast path needs an array-backed buffer.
+        if (charArray.length < text.length()) {
+            charArray = new char[text.length()];
+        }
+        text.getChars(0, text.length(), charArray, 0);
+        CharBuffer chars = CharBuffer.wrap(charArray, 0, text.length());
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            bytes.clear();
+            if (result.isUnderflow()) {
+                return;
+            }
+        }
+    }
+}
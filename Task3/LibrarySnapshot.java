@@ -0,0 +1,226 @@
+package Task3;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * LibrarySnapshot.java
+ * A point-in-time copy of the whole library: books, users, open loans, waitlists and
+ * circulation counts.
+ * Startup loads the latest snapshot and then replays only the journal written after it.
+ * File layout: a header [magic][version][journal generation], then the books, users,
+ * loans, holds, and checkout counts per book and per user, each as a count followed
+ * by records (times in epoch nanoseconds and strings as a length and UTF-8 bytes, -1
+ * for null, as in the journal), then a CRC32 of everything before it. The file is
+ * written to a temporary name and renamed into place, so a reader only ever sees a
+ * complete snapshot.
+ */
+class LibrarySnapshot {
+    private static final int MAGIC = 0x4C494253; // "LIBS"
+    private static final int VERSION = 1;
+
+    private final List<Book> books;
+    private final List<User> users;
+    private final List<Loan> loans;
+    private final Map<Integer, List<HoldQueue.Hold>> holds;
+    private final Map<Integer, Long> bookCheckouts;
+    private final Map<Integer, Long> userCheckouts;
+
+    private LibrarySnapshot(List<Book> books, List<User> users, List<Loan> loans,
+                            Map<Integer, List<HoldQueue.Hold>> holds,
+                            Map<Integer, Long> bookCheckouts, Map<Integer, Long> userCheckouts) {
+        this.books = books;
+        this.users = users;
+        this.loans = loans;
+        this.holds = holds;
+        this.bookCheckouts = bookCheckouts;
+        this.userCheckouts = userCheckouts;
+    }
+
+    /**
+     * Copies the library's current state. The caller must keep the library from
+     * changing while this runs; the copy can then be written at leisure.
+     * @param library The library to copy.
+     * @return The copied state.
+     */
+    static LibrarySnapshot capture(Library library) {
+        List<Book> books = new ArrayList<>(library.getBooks());
+        List<Loan> loans = new ArrayList<>();
+        Map<Integer, List<HoldQueue.Hold>> holds = new LinkedHashMap<>();
+        for (Book book : books) {
+            Loan loan = book.getLoan();
+            if (loan != null) {
+                loans.add(loan);
+            }
+            List<HoldQueue.Hold> waiting = library.getHolds(book.getId());
+            if (!waiting.isEmpty()) {
+                holds.put(book.getId(), waiting);
+            }
+        }
+        Map<Integer, Long> bookCheckouts = new LinkedHashMap<>();
+        library.getCirculationStats().forEachBook((book, count) -> bookCheckouts.put(book.getId(), count));
+        Map<Integer, Long> userCheckouts = new LinkedHashMap<>();
+        library.getCirculationStats().forEachUser((user, count) -> userCheckouts.put(user.getUserId(), count));
+        return new LibrarySnapshot(books, new ArrayList<>(library.getUsers()), loans, holds,
+                bookCheckouts, userCheckouts);
+    }
+
+    /**
+     * Writes the snapshot and atomically replaces any previous one at the same path.
+     * @param file The snapshot file.
+     * @param journalGeneration The first journal generation not covered by this snapshot.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void write(Path file, long journalGeneration) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalGeneration);
+            out.writeInt(books.size());
+            for (Book book : books) {
+                out.writeInt(book.getId());
+                writeString(out, book.getTitle());
+                writeString(out, book.getAuthor());
+            }
+            out.writeInt(users.size());
+            for (User user : users) {
+                out.writeInt(user.getUserId());
+                writeString(out, user.getName());
+            }
+            out.writeInt(loans.size());
+            for (Loan loan : loans) {
+                out.writeInt(loan.getBook().getId());
+                out.writeInt(loan.getUser().getUserId());
+                out.writeLong(LibraryJournal.toNanos(loan.getIssuedAt()));
+                out.writeLong(LibraryJournal.toNanos(loan.getDueAt()));
+            }
+            out.writeInt(holds.size());
+            for (Map.Entry<Integer, List<HoldQueue.Hold>> entry : holds.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (HoldQueue.Hold hold : entry.getValue()) {
+                    out.writeInt(hold.user.getUserId());
+                    out.writeLong(LibraryJournal.toNanos(hold.requestedAt));
+                }
+            }
+            writeCounts(out, bookCheckouts);
+            writeCounts(out, userCheckouts);
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a string as the journal does. Unlike writeUTF, this takes null and
+     * strings of any length.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = LibraryJournal.utf8(value);
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeCounts(DataOutputStream out, Map<Integer, Long> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /**
+     * Loads a snapshot into an empty library.
+     * @param file The snapshot file.
+     * @param library The library to fill.
+     * @return The first journal generation not covered by the snapshot.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    static long read(Path file, Library library) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a library snapshot: " + file);
+            }
+            long journalGeneration = in.readLong();
+            long size = Files.size(file);
+            for (int i = in.readInt(); i > 0; i--) {
+                int id = in.readInt();
+                String title = readString(in, size);
+                library.addBook(new Book(id, title, readString(in, size)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                int id = in.readInt();
+                library.addUser(new User(id, readString(in, size)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                library.restoreLoan(in.readInt(), in.readInt(), LibraryJournal.ofNanos(in.readLong()),
+                        LibraryJournal.ofNanos(in.readLong()), false);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                int bookId = in.readInt();
+                for (int j = in.readInt(); j > 0; j--) {
+                    library.restoreHold(bookId, in.readInt(), LibraryJournal.ofNanos(in.readLong()));
+                }
+            }
+            CirculationStats stats = library.getCirculationStats();
+            for (int i = in.readInt(); i > 0; i--) {
+                stats.restoreBookCheckouts(library.findBookById(in.readInt()), in.readLong());
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                stats.restoreUserCheckouts(library.findUserById(in.readInt()), in.readLong());
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Library snapshot is corrupt: " + file);
+            }
+            return journalGeneration;
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     * @param size The snapshot's size, which no string can be longer than.
+     */
+    private static String readString(DataInputStream in, long size) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > size) {
+            throw new IOException("Library snapshot is corrupt: string of " + length + " bytes.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package Task3;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+/**
+ * Loan.java
+ * This class records one book being lent to one user: who, what, when it was
+ * issued and when it is due back. Loans are immutable; returning a book ends the
+ * loan rather than changing it.
+ */
+class Loan {
+    /** Orders loans by due time, then by the order they were made. */
+    static final Comparator<Loan> BY_DUE_TIME =
+            Comparator.comparing(Loan::getDueAt).thenComparingLong(Loan::getSequence);
+
+    private final Book book;
+    private final User user;
+    private final Instant issuedAt;
+    private final Instant dueAt;
+    private final long sequence;
+
+    /**
+     * Constructor to create a new Loan.
+     * @param book The book being lent.
+     * @param user The user borrowing it.
+     * @param issuedAt When the book was issued.
+     * @param dueAt When the book is due back.
+     * @param sequence A number unique to this loan, used to order loans due at the same time.
+     */
+    public Loan(Book book, User user, Instant issuedAt, Instant dueAt, long sequence) {
+        this.book = book;
+        this.user = user;
+        this.issuedAt = issuedAt;
+        this.dueAt = dueAt;
+        this.sequence = sequence;
+    }
+
+    // --- Getters ---
+
+    public Book getBook() {
+        return book;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getDueAt() {
+        return dueAt;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Checks whether the loan is past its due time.
+     * @param now The current time.
+     * @return true if the book should already have been returned.
+     */
+    public boolean isOverdue(Instant now) {
+        return now.isAfter(dueAt);
+    }
+
+    @Override
+    public String toString() {
+        return "Book: '" + book.getTitle() + "', User: '" + user.getName() + "', Issued: " + issuedAt
+                + ", Due: " + dueAt;
+    }
+}
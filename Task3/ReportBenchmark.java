@@ -0,0 +1,145 @@
+package Task3;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * ReportBenchmark.java
+ * Compares dumping the book inventory and user list the old way, one
+ * System.out.println per line with string concatenation, against
+ * {@link LibraryReport} writing to the same kind of stream and to a file channel.
+ * Output goes to a temporary file through a PrintStream set up like System.out
+ * (small buffer, flushed on every println), so the console does not skew the numbers.
+ * Usage: java Task3.ReportBenchmark [books] [rounds]
+ */
+public class ReportBenchmark {
+    private interface Dump {
+        void run(File file) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Library library = new Library();
+        for (int id = 1; id <= bookCount; id++) {
+            library.addBook(new Book(id, "Book " + id, "Author " + (id % 1000)));
+        }
+        int userCount = Math.max(1, bookCount / 10);
+        for (int id = 1; id <= userCount; id++) {
+            library.addUser(new User(id, "User " + id));
+        }
+        for (int id = 1; id <= bookCount; id += 2) {
+            library.checkout(id, 1 + id % userCount); // Half the books are out.
+        }
+
+        File file = File.createTempFile("library-report", ".txt");
+        file.deleteOnExit();
+        LibraryReport text = new LibraryReport(library, ReportFormat.TEXT);
+        LibraryReport csv = new LibraryReport(library, ReportFormat.CSV);
+        LibraryReport json = new LibraryReport(library, ReportFormat.JSON);
+
+        System.out.printf("--- Library reports: %,d books, %,d users, best of %d rounds ---%n",
+                bookCount, userCount, rounds);
+        System.out.printf("%-28s %10s %10s %14s%n", "Path", "Time (ms)", "MB", "Allocated MB");
+        measure("println (old display path)", file, rounds, f -> {
+            try (PrintStream out = consoleLike(f)) {
+                printlnBooks(library, out);
+                printlnUsers(library, out);
+            }
+        });
+        measure("report, text -> PrintStream", file, rounds, f -> {
+            try (PrintStream out = consoleLike(f)) {
+                text.writeBooks(out);
+                text.writeUsers(out);
+            }
+        });
+        measure("report, text -> channel", file, rounds, f -> {
+            try (FileChannel out = channel(f)) {
+                text.writeBooks(out);
+                text.writeUsers(out);
+            }
+        });
+        measure("report, csv -> channel", file, rounds, f -> {
+            try (FileChannel out = channel(f)) {
+                csv.writeBooks(out);
+                csv.writeUsers(out);
+            }
+        });
+        measure("report, json -> channel", file, rounds, f -> {
+            try (FileChannel out = channel(f)) {
+                json.writeBooks(out);
+                json.writeUsers(out);
+            }
+        });
+    }
+
+    private static void measure(String label, File file, int rounds, Dump dump) throws IOException {
+        long best = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int round = 0; round < rounds; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            dump.run(file);
+            long elapsed = System.nanoTime() - start;
+            allocated = allocatedBytes() - allocatedBefore;
+            best = Math.min(best, elapsed);
+        }
+        System.out.printf("%-28s %10.1f %10.1f %14s%n", label, best / 1e6, file.length() / 1e6,
+                allocated < 0 ? "n/a" : String.format("%.1f", allocated / 1e6));
+    }
+
+    /**
+     * The display methods as they were: one println per line, built with +.
+     */
+    private static void printlnBooks(Library library, PrintStream out) {
+        out.println("\n--- Library Book Inventory ---");
+        for (Book book : library.getBooks()) {
+            out.println(book);
+        }
+        out.println("----------------------------\n");
+    }
+
+    private static void printlnUsers(Library library, PrintStream out) {
+        out.println("\n--- Registered Users ---");
+        for (User user : library.getUsers()) {
+            out.println(user);
+            List<Loan> loans = user.getLoans();
+            if (!loans.isEmpty()) {
+                out.println("  Borrowed Books:");
+                for (Loan loan : loans) {
+                    out.println("    - " + loan.getBook().getTitle() + " (due " + loan.getDueAt() + ")");
+                }
+            }
+        }
+        out.println("------------------------\n");
+    }
+
+    private static PrintStream consoleLike(File file) throws IOException {
+        return new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 128), true);
+    }
+
+    private static FileChannel channel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        Object threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof ThreadMXBean) {
+            return ((ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,11 @@
+package Task3;
+
+/**
+ * ReportFormat.java
+ * The output formats of a {@link LibraryReport}.
+ */
+enum ReportFormat {
+    TEXT, // The layout of displayBooks and displayUsers.
+    CSV,  // RFC 4180: a header row, then one row per book or per loan.
+    JSON  // One array, one object per line.
+}
@@ -0,0 +1,83 @@
+package Task3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User.java
+ * This class represents a library user.
+ * It holds the user's ID, name, and the loans they currently have, keyed by book ID
+ * so that borrowing and returning take constant time.
+ * The loans are safe to read while other threads issue and return books.
+ */
+class User {
+    private int userId;
+    private String name;
+    private Map<Integer, Loan> loansByBookId;
+
+    /**
+     * Constructor to create a new User.
+     * @param userId The unique ID for the user.
+     * @param name The name of the user.
+     */
+    public User(int userId, String name) {
+        this.userId = userId;
+        this.name = name;
+        this.loansByBookId = new ConcurrentHashMap<>();
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the user's current loans, oldest first.
+     * @return A new list of the loans.
+     */
+    public List<Loan> getLoans() {
+        List<Loan> loans = new ArrayList<>(loansByBookId.values());
+        loans.sort((a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+        return loans;
+    }
+
+    /**
+     * Returns the books the user currently holds, in the order they were borrowed.
+     * @return A new list of the books.
+     */
+    public List<Book> getBorrowedBooks() {
+        List<Book> books = new ArrayList<>();
+        for (Loan loan : getLoans()) {
+            books.add(loan.getBook());
+        }
+        return books;
+    }
+
+    /**
+     * Records a new loan for the user.
+     * @param loan The loan to add.
+     */
+    public void borrowBook(Loan loan) {
+        loansByBookId.put(loan.getBook().getId(), loan);
+    }
+
+    /**
+     * Removes a loan from the user's records.
+     * @param loan The loan being ended.
+     */
+    public void returnBook(Loan loan) {
+        loansByBookId.remove(loan.getBook().getId(), loan);
+    }
+
+    @Override
+    public String toString() {
+        return "UserID: " + userId + ", Name: '" + name + "', Borrowed Books: " + loansByBookId.size();
+    }
+}
@@ -0,0 +1,14 @@
+package Task4;
+
+/**
+ * FsyncPolicy.java
+ * How hard a {@link NoteWriter} pushes notes to disk before it acknowledges them.
+ */
+public enum FsyncPolicy {
+    /** Notes are handed to the operating system in batches but never forced to disk. */
+    NONE,
+    /** Each batch of notes is written and then forced to disk with one fsync (group commit). */
+    PER_BATCH,
+    /** Every note is written and forced to disk on its own. */
+    PER_NOTE
+}
@@ -0,0 +1,330 @@
+package Task4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * NoteChurnStressTest.java
+ * Checks that notes stay correct while they are added, edited and deleted from
+ * several threads, read from several others, searched, and compacted aggressively
+ * in the background. Every note's text names its writer, a serial number and a
+ * version, and ends with a word derived from them, so a reader can tell a whole note
+ * from a torn or misplaced one. Readers also check that a note number always holds
+ * the same serial, that its version never goes back, and that a deleted note stays
+ * deleted. At the end every note must match the writers' own records, before and
+ * after reopening the file, searches must find exactly the notes that hold a word,
+ * and the log must not need compacting.
+ * Usage: java Task4.NoteChurnStressTest [writers] [operationsPerWriter] [readers]
+ * Exits with status 1 if any check fails.
+ */
+public class NoteChurnStressTest {
+    private static final int WORDS = 97;
+    private static final int MIN_OWNED = 20;
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        Path directory = Files.createTempDirectory("note-churn");
+        Path file = directory.resolve("notes.txt");
+        AtomicLong violations = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Map<Integer, String>> models = new ArrayList<>();
+        long elapsed;
+        int compactions;
+        long peakLog;
+        int searches;
+        try (NoteStore store = NoteStore.open(file);
+             NoteSearchIndex index = NoteSearchIndex.open(store)) {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch writing = new CountDownLatch(writers);
+            long[] peak = new long[1];
+            int[] searched = new int[1];
+            List<Thread> threads = new ArrayList<>();
+            NoteCompactor compactor = new NoteCompactor(store, 5, TimeUnit.MILLISECONDS);
+            try (NoteWriter writer = new NoteWriter(store, FsyncPolicy.NONE)) {
+                for (int w = 0; w < writers; w++) {
+                    int owner = w;
+                    Map<Integer, String> model = new HashMap<>();
+                    models.add(model);
+                    threads.add(new Thread(() -> {
+                        try {
+                            start.await();
+                            churn(writer, owner, operations, model);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            writing.countDown();
+                        }
+                    }));
+                }
+                for (int r = 0; r < readers; r++) {
+                    long seed = r;
+                    threads.add(new Thread(() -> {
+                        try {
+                            start.await();
+                            read(store, new Random(seed), writing, violations);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }));
+                }
+                threads.add(new Thread(() -> {
+                    // Keeps the search index following the log through compactions.
+                    try {
+                        start.await();
+                        Random random = new Random(-1);
+                        while (writing.getCount() > 0) {
+                            index.update();
+                            index.search("alpha" + random.nextInt(WORDS), 20);
+                            searched[0]++;
+                            peak[0] = Math.max(peak[0], store.getLogBytes());
+                            Thread.sleep(1);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }));
+                for (Thread thread : threads) {
+                    thread.start();
+                }
+                long began = System.nanoTime();
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                elapsed = System.nanoTime() - began;
+            }
+            Thread.sleep(100); // Let the compactor catch up with the last changes.
+            compactor.close();
+            if (failure.get() != null) {
+                throw new IllegalStateException("A thread failed.", failure.get());
+            }
+            compactions = compactor.getCompactions();
+            peakLog = peak[0];
+            searches = searched[0];
+            if (compactor.getFailure() != null) {
+                System.out.println("Compaction failed: " + compactor.getFailure());
+                violations.incrementAndGet();
+            }
+            if (store.needsCompaction()) {
+                System.out.println("The log is mostly old versions and tombstones after compacting.");
+                violations.incrementAndGet();
+            }
+            violations.addAndGet(compare(store, models, "Live store"));
+            index.update();
+            violations.addAndGet(compareSearch(index, models, "Live search"));
+        }
+
+        long liveBytes;
+        long logBytes;
+        int notes;
+        try (NoteStore store = NoteStore.open(file);
+             NoteSearchIndex index = NoteSearchIndex.open(store)) {
+            violations.addAndGet(compare(store, models, "Reopened store"));
+            violations.addAndGet(compareSearch(index, models, "Reopened search"));
+            liveBytes = 0;
+            for (Map<Integer, String> model : models) {
+                for (String note : model.values()) {
+                    liveBytes += note.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+                }
+            }
+            logBytes = store.getLogBytes();
+            notes = store.size();
+        } finally {
+            for (String suffix : new String[] {"", ".idx", ".search"}) {
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + suffix));
+            }
+            Files.delete(directory);
+        }
+
+        int live = 0;
+        for (Map<Integer, String> model : models) {
+            live += model.size();
+        }
+        System.out.printf("%d writers x %,d changes with %d readers in %.2f s: %,d note numbers, %,d live, "
+                + "%d compactions, %,d searches%n", writers, operations, readers, elapsed / 1e9, notes, live,
+                compactions, searches);
+        System.out.printf("Log: %,d KB at the end, %,d KB at most; live notes: %,d KB%n",
+                logBytes >> 10, peakLog >> 10, liveBytes >> 10);
+        System.out.println(violations.get() + " violations");
+        if (violations.get() != 0) {
+            System.out.println("FAILED: notes were lost, torn or changed out of order.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: every note matches its writer's record.");
+    }
+
+    /**
+     * Adds, edits and deletes notes, keeping a record of the current text of each
+     * note this writer owns.
+     */
+    private static void churn(NoteWriter writer, int owner, int operations, Map<Integer, String> model)
+            throws IOException {
+        Random random = new Random(owner + 1000);
+        List<Integer> owned = new ArrayList<>();
+        Map<Integer, int[]> versions = new HashMap<>(); // Note number to {serial, version}.
+        int serials = 0;
+        for (int i = 0; i < operations; i++) {
+            double roll = random.nextDouble();
+            if (owned.size() < MIN_OWNED || roll < 0.35) {
+                int serial = ++serials;
+                String note = text(owner, serial, 0, random);
+                int number = writer.add(note);
+                owned.add(number);
+                versions.put(number, new int[] {serial, 0});
+                model.put(number, note);
+            } else {
+                int pick = random.nextInt(owned.size());
+                int number = owned.get(pick);
+                if (roll < 0.8) {
+                    int[] version = versions.get(number);
+                    String note = text(owner, version[0], ++version[1], random);
+                    writer.edit(number, note);
+                    model.put(number, note);
+                } else {
+                    writer.delete(number);
+                    owned.set(pick, owned.get(owned.size() - 1));
+                    owned.remove(owned.size() - 1);
+                    versions.remove(number);
+                    model.remove(number);
+                }
+            }
+        }
+    }
+
+    /**
+     * A note of some filler words between the fields and the check word, so that notes
+     * vary in length and old versions take up room.
+     */
+    private static String text(int owner, int serial, int version, Random random) {
+        StringBuilder note = new StringBuilder();
+        note.append('t').append(owner).append(" s").append(serial).append(" v").append(version);
+        for (int i = random.nextInt(12); i > 0; i--) {
+            note.append(" filler").append(random.nextInt(10));
+        }
+        return note.append(' ').append(checkWord(owner, serial, version)).toString();
+    }
+
+    private static String checkWord(int owner, int serial, int version) {
+        return "alpha" + Math.floorMod(owner * 7919 + serial * 31 + version, WORDS);
+    }
+
+    /**
+     * Reads random notes until the writers finish, checking each against what was
+     * read from the same number before.
+     */
+    private static void read(NoteStore store, Random random, CountDownLatch writing, AtomicLong violations)
+            throws IOException {
+        long[] seen = new long[1024]; // Per note: owner and serial, then version, packed; -1 once deleted.
+        while (writing.getCount() > 0) {
+            int size = store.size();
+            if (size == 0) {
+                continue;
+            }
+            int first = 1 + random.nextInt(size);
+            List<String> page = random.nextInt(10) == 0 ? store.page(first, 20)
+                    : Arrays.asList(store.get(first));
+            for (int i = 0; i < page.size(); i++) {
+                int number = first + i;
+                if (number >= seen.length) {
+                    seen = Arrays.copyOf(seen, Math.max(number + 1, seen.length * 2));
+                }
+                String note = page.get(i);
+                long previous = seen[number];
+                if (note == null) {
+                    seen[number] = -1;
+                    continue;
+                }
+                long parsed = parse(note);
+                if (parsed < 0 || previous == -1 || (previous != 0
+                        && (previous >>> 24 != parsed >>> 24 || (previous & 0xFFFFFF) > (parsed & 0xFFFFFF)))) {
+                    System.out.println("Note #" + number + " read as '" + note + "' after " + previous);
+                    violations.incrementAndGet();
+                }
+                seen[number] = parsed;
+            }
+        }
+    }
+
+    /**
+     * Parses a note's fields and checks its check word.
+     * @return The owner, serial and version packed into a long, or -1 if the note is not whole.
+     */
+    private static long parse(String note) {
+        String[] words = note.split(" ");
+        try {
+            int owner = Integer.parseInt(words[0].substring(1));
+            int serial = Integer.parseInt(words[1].substring(1));
+            int version = Integer.parseInt(words[2].substring(1));
+            if (!words[words.length - 1].equals(checkWord(owner, serial, version))) {
+                return -1;
+            }
+            return ((long) owner << 48) | ((long) serial << 24) | version;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static long compare(NoteStore store, List<Map<Integer, String>> models, String label)
+            throws IOException {
+        Map<Integer, String> expected = new HashMap<>();
+        for (Map<Integer, String> model : models) {
+            expected.putAll(model);
+        }
+        long violations = 0;
+        List<String> notes = store.page(1, store.size());
+        for (int i = 0; i < notes.size(); i++) {
+            String want = expected.get(i + 1);
+            if (want == null ? notes.get(i) != null : !want.equals(notes.get(i))) {
+                if (violations++ < 5) {
+                    System.out.println(label + ": note #" + (i + 1) + " is '" + notes.get(i) + "', expected '"
+                            + want + "'");
+                }
+            }
+        }
+        if (store.liveCount() != expected.size()) {
+            System.out.println(label + ": " + store.liveCount() + " live notes, expected " + expected.size());
+            violations++;
+        }
+        return violations;
+    }
+
+    private static long compareSearch(NoteSearchIndex index, List<Map<Integer, String>> models, String label)
+            throws IOException {
+        long violations = 0;
+        for (int w = 0; w < WORDS; w++) {
+            String word = "alpha" + w;
+            Set<Integer> expected = new HashSet<>();
+            for (Map<Integer, String> model : models) {
+                for (Map.Entry<Integer, String> note : model.entrySet()) {
+                    if (note.getValue().endsWith(" " + word)) {
+                        expected.add(note.getKey());
+                    }
+                }
+            }
+            Set<Integer> found = new HashSet<>(index.search(word, Integer.MAX_VALUE));
+            if (!found.equals(expected)) {
+                System.out.println(label + ": '" + word + "' found " + found.size() + " notes, expected "
+                        + expected.size());
+                violations++;
+            }
+        }
+        return violations;
+    }
+}
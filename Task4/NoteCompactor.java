@@ -0,0 +1,93 @@
+package Task4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NoteCompactor.java
+ * Compacts a {@link NoteStore} in the background. A daemon thread checks the store
+ * at a fixed interval and compacts it once old versions and tombstones make up most
+ * of the log, so the notes file stays within about twice the size of the notes in it
+ * however often they are edited and deleted. Compaction does not block readers or
+ * writers; see {@link NoteStore#compact()}.
+ * Closing the compactor waits for a running compaction; it does not close the store.
+ */
+public class NoteCompactor implements Closeable {
+    private static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    private final NoteStore store;
+    private final ScheduledExecutorService background;
+    private final AtomicInteger compactions = new AtomicInteger();
+    private volatile IOException failure;
+
+    /**
+     * Constructor to create a compactor that checks the store every five seconds.
+     * @param store The store to compact.
+     */
+    public NoteCompactor(NoteStore store) {
+        this(store, DEFAULT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor to create a compactor with its own check interval.
+     * @param store The store to compact.
+     * @param interval How long to wait between checks.
+     * @param unit The unit of the interval.
+     */
+    public NoteCompactor(NoteStore store, long interval, TimeUnit unit) {
+        this.store = store;
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "note-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.scheduleWithFixedDelay(this::compactIfNeeded, interval, interval, unit);
+    }
+
+    /**
+     * Returns how many times the store has been compacted.
+     * @return The number of compactions.
+     */
+    public int getCompactions() {
+        return compactions.get();
+    }
+
+    /**
+     * Returns the error from the last compaction that failed, if any. A failed
+     * compaction leaves the store as it was and is tried again at the next check.
+     * @return The error, or null.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    private void compactIfNeeded() {
+        if (!store.needsCompaction()) {
+            return;
+        }
+        try {
+            store.compact();
+            compactions.incrementAndGet();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Compacting " + store.getFile() + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops checking the store, after a compaction that is under way finishes.
+     */
+    @Override
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package Task4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * NoteSearchBenchmark.java
+ * Builds a large notes file, indexes it with {@link NoteSearchIndex}, and times
+ * keyword and phrase queries against a grep-style scan that reads the file line by
+ * line and matches each line. The scan finds the same notes (it checks whole words
+ * after a case-insensitive substring test), so the match counts must agree.
+ * Also times building, saving, loading and incrementally updating the index.
+ * Usage: java Task4.NoteSearchBenchmark [notes] [rounds]
+ */
+public class NoteSearchBenchmark {
+    private static final String[] COMMON = {
+        "remember", "to", "buy", "groceries", "call", "mom", "meeting", "at", "the", "project",
+        "deadline", "green", "tea", "milk", "doctor", "appointment", "tomorrow", "pay", "rent", "book",
+        "flight", "idea", "for", "app", "fix", "bug", "in", "release", "review", "notes"
+    };
+    private static final int VOCABULARY = 50_000;
+
+    private interface Query {
+        int run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int noteCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path directory = Files.createTempDirectory("note-search-bench");
+        Path file = directory.resolve("notes.txt");
+        Random random = new Random(42);
+        try (NoteStore store = NoteStore.open(file)) {
+            List<byte[]> batch = new ArrayList<>();
+            for (int i = 0; i < noteCount; i++) {
+                batch.add(NoteStore.encode(note(random)));
+                if (batch.size() == 4096) {
+                    store.append(batch, FsyncPolicy.NONE);
+                    batch.clear();
+                }
+            }
+            store.append(batch, FsyncPolicy.NONE);
+        }
+        System.out.printf("--- Searching %,d notes (%,d MB), best of %d rounds ---%n",
+                noteCount, Files.size(file) >> 20, rounds);
+
+        try (NoteStore store = NoteStore.open(file)) {
+            long began = System.nanoTime();
+            NoteSearchIndex index = NoteSearchIndex.open(store);
+            System.out.printf("Build index:           %8.0f ms%n", (System.nanoTime() - began) / 1e6);
+            began = System.nanoTime();
+            index.save();
+            System.out.printf("Save index:            %8.0f ms (%,d MB)%n", (System.nanoTime() - began) / 1e6,
+                    Files.size(NoteSearchIndex.searchFile(file)) >> 20);
+            began = System.nanoTime();
+            index = NoteSearchIndex.open(store);
+            System.out.printf("Load saved index:      %8.0f ms%n", (System.nanoTime() - began) / 1e6);
+            for (int i = 0; i < 1000; i++) {
+                store.add(note(random));
+            }
+            began = System.nanoTime();
+            index.update();
+            System.out.printf("Index 1,000 new notes: %8.2f ms%n%n", (System.nanoTime() - began) / 1e6);
+
+            String rare = "w" + Integer.toString(VOCABULARY / 2, 36);
+            String[] queries = {rare, "tea", "doctor tomorrow", "\"green tea\"", "\"remember to buy\" milk"};
+            System.out.printf("%-26s %8s %12s %12s %12s%n", "Query", "Matches", "Top 20 ms", "All ms", "Scan ms");
+            for (String query : queries) {
+                NoteSearchIndex searched = index;
+                int[] top = new int[1];
+                double topMillis = best(rounds, () -> top[0] = searched.search(query, 20).size());
+                int[] all = new int[1];
+                double allMillis = best(rounds, () -> all[0] = searched.search(query, Integer.MAX_VALUE).size());
+                int[] scanned = new int[1];
+                double scanMillis = best(rounds, () -> scanned[0] = scan(file, query));
+                if (all[0] != scanned[0]) {
+                    throw new IllegalStateException("The index found " + all[0] + " notes for " + query
+                            + " but the scan found " + scanned[0] + ".");
+                }
+                System.out.printf("%-26s %8d %12.3f %12.3f %12.1f%n", query, all[0], topMillis, allMillis, scanMillis);
+            }
+        } finally {
+            Files.deleteIfExists(NoteSearchIndex.searchFile(file));
+            Files.deleteIfExists(NoteStore.indexFile(file));
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * A note of 4 to 12 words, half everyday words and half drawn from a large
+     * vocabulary where low-numbered words are far more common.
+     */
+    private static String note(Random random) {
+        StringBuilder note = new StringBuilder();
+        int words = 4 + random.nextInt(9);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                note.append(' ');
+            }
+            if (random.nextBoolean()) {
+                note.append(COMMON[random.nextInt(COMMON.length)]);
+            } else {
+                double skew = random.nextDouble();
+                note.append('w').append(Integer.toString((int) (VOCABULARY * skew * skew), 36));
+            }
+        }
+        return note.toString();
+    }
+
+    /**
+     * The grep-style search: read every line, keep those that contain each query word
+     * ignoring case, then check whole words and phrases.
+     */
+    private static int scan(Path file, String query) throws IOException {
+        List<String> words = NoteSearchIndex.tokenize(query.replace('"', ' '));
+        List<List<String>> phrases = new ArrayList<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 1; i < parts.length; i += 2) {
+            phrases.add(NoteSearchIndex.tokenize(parts[i]));
+        }
+        int matches = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            lines:
+            while ((line = reader.readLine()) != null) {
+                String lower = line.toLowerCase(Locale.ROOT);
+                for (String word : words) {
+                    if (!lower.contains(word)) {
+                        continue lines;
+                    }
+                }
+                List<String> lineWords = NoteSearchIndex.tokenize(line);
+                if (!lineWords.containsAll(words)) {
+                    continue;
+                }
+                for (List<String> phrase : phrases) {
+                    if (Collections.indexOfSubList(lineWords, phrase) < 0) {
+                        continue lines;
+                    }
+                }
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static double best(int rounds, Query query) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long began = System.nanoTime();
+            query.run();
+            best = Math.min(best, System.nanoTime() - began);
+        }
+        return best / 1e6;
+    }
+}
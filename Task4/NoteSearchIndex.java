@@ -0,0 +1,485 @@
+package Task4;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * NoteSearchIndex.java
+ * An inverted index over the words in a {@link NoteStore}'s notes, for keyword and
+ * phrase search. Each word maps to a postings list of the numbers of the notes that
+ * contain it, in ascending order, so a query only visits notes that hold its rarest word.
+ * The index follows the notes file's log: it remembers how far into the log it has
+ * read, and {@link #update()} reads on from there, so it keeps up with compaction
+ * too. An edited note is added to the postings of its new words but left in those of
+ * its old ones, and a deleted note is left where it is; such notes are marked stale,
+ * and a query checks a stale note's current text before returning it. Once stale
+ * notes pile up the index is rebuilt from the current notes.
+ * The index is saved next to the notes file (the notes file name plus ".search") as
+ * one word after another with its postings delta-encoded as varints, then a CRC32.
+ * The header records where in the log the index stopped and a checksum of the bytes
+ * before that point. On open the saved index is loaded and only the log records
+ * written since it was saved are read. The notes file stays the source of truth: if
+ * the saved index does not match it, it is rebuilt.
+ */
+public class NoteSearchIndex implements Closeable {
+    private static final int MAGIC = 0x4E535243; // "NSRC"
+    private static final int VERSION = 2;
+    private static final int BATCH = 4096;
+    private static final int MIN_STALE_TO_REBUILD = 1024;
+
+    private final NoteStore store;
+    private final Path file;
+    private final Map<String, Postings> postingsByWord = new HashMap<>();
+    private final BitSet stale = new BitSet(); // Notes edited or deleted since they were indexed.
+    private int generation;                    // Where in the notes log the index stops.
+    private long offset;
+    private long anchor;                       // Checksum of the log bytes before the offset.
+    private int indexedNotes;
+    private boolean dirty; // Changed since the saved file was written.
+
+    private NoteSearchIndex(NoteStore store) {
+        this.store = store;
+        this.file = searchFile(store.getFile());
+    }
+
+    /**
+     * Loads the saved index for a store, or builds it if there is none, and indexes any
+     * notes added since it was saved.
+     * @param store The notes to search.
+     * @return The index, covering every note in the store.
+     * @throws IOException if the notes cannot be read.
+     */
+    public static NoteSearchIndex open(NoteStore store) throws IOException {
+        NoteSearchIndex index = new NoteSearchIndex(store);
+        if (!index.load()) {
+            index.rebuild();
+        } else {
+            index.update();
+        }
+        return index;
+    }
+
+    static Path searchFile(Path notesFile) {
+        return notesFile.resolveSibling(notesFile.getFileName() + ".search");
+    }
+
+    /**
+     * Indexes the notes added, edited and deleted since the last update.
+     * @throws IOException if the notes cannot be read.
+     */
+    public synchronized void update() throws IOException {
+        NoteStore.Position now = store.position();
+        long from = now.translate(generation, offset);
+        if (from < 0 && generation == now.generation - 1 && offset <= now.compactedFrom) {
+            // Read the rest of the old log, up to where compaction copied it over.
+            if (store.replay(generation, offset, now.compactedFrom, new Catchup())) {
+                from = now.compactedTo;
+                dirty = true;
+            } else {
+                rebuild();
+                return;
+            }
+        }
+        if (from < 0 || indexedNotes > now.notes
+                || (generation == now.generation && store.checksumBefore(generation, offset) != anchor)) {
+            rebuild(); // Compacted past the records we have not read, or a different file.
+            return;
+        }
+        if (from < now.offset) {
+            if (!store.replay(now.generation, from, now.offset, new Catchup())) {
+                rebuild(); // Compacted twice meanwhile.
+                return;
+            }
+            dirty = true;
+        }
+        if (generation != now.generation || offset != now.offset) {
+            bookmark(now);
+        }
+        if (stale.cardinality() > Math.max(MIN_STALE_TO_REBUILD, indexedNotes / 8)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Applies log records to the index in the order they were written.
+     */
+    private final class Catchup implements NoteStore.RecordVisitor {
+        @Override
+        public void added(String note) {
+            indexedNotes++;
+            for (String word : new HashSet<>(tokenize(note))) {
+                postingsByWord.computeIfAbsent(word, w -> new Postings()).add(indexedNotes);
+            }
+        }
+
+        @Override
+        public void skipped() {
+            indexedNotes++;
+        }
+
+        @Override
+        public void edited(int number, String note) {
+            if (number > indexedNotes) {
+                return;
+            }
+            for (String word : new HashSet<>(tokenize(note))) {
+                postingsByWord.computeIfAbsent(word, w -> new Postings()).insert(number);
+            }
+            stale.set(number);
+        }
+
+        @Override
+        public void deleted(int number) {
+            if (number <= indexedNotes) {
+                stale.set(number);
+            }
+        }
+    }
+
+    /**
+     * Indexes the current text of every note from scratch.
+     */
+    private void rebuild() throws IOException {
+        postingsByWord.clear();
+        stale.clear();
+        NoteStore.Position now = store.position();
+        // Reading the notes can see changes made after this position; replaying them
+        // again later is harmless.
+        for (int first = 1; first <= now.notes; first += BATCH) {
+            List<String> notes = store.page(first, Math.min(BATCH, now.notes - first + 1));
+            for (int i = 0; i < notes.size(); i++) {
+                if (notes.get(i) == null) {
+                    continue;
+                }
+                for (String word : new HashSet<>(tokenize(notes.get(i)))) {
+                    postingsByWord.computeIfAbsent(word, w -> new Postings()).add(first + i);
+                }
+            }
+        }
+        indexedNotes = now.notes;
+        bookmark(now);
+        dirty = true;
+    }
+
+    private void bookmark(NoteStore.Position now) throws IOException {
+        generation = now.generation;
+        offset = now.offset;
+        anchor = store.checksumBefore(generation, offset);
+        dirty = true;
+    }
+
+    /**
+     * Finds the notes that contain every word of a query. Text in double quotes is a
+     * phrase and must appear as consecutive words. Notes deleted since the last
+     * {@link #update()} are left out; notes edited since then are not found by their
+     * new words until it runs.
+     * @param query Words and "quoted phrases"; case and punctuation are ignored.
+     * @param limit The maximum number of results.
+     * @return The numbers of the matching notes, newest first.
+     * @throws IOException if a note has to be read to check a phrase and cannot be.
+     */
+    public synchronized List<Integer> search(String query, int limit) throws IOException {
+        List<List<String>> phrases = new ArrayList<>();
+        Set<String> words = new LinkedHashSet<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> partWords = tokenize(parts[i]);
+            words.addAll(partWords);
+            if (i % 2 == 1 && partWords.size() > 1) {
+                phrases.add(partWords); // Odd parts were inside quotes.
+            }
+        }
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Postings> lists = new ArrayList<>(words.size());
+        for (String word : words) {
+            Postings postings = postingsByWord.get(word);
+            if (postings == null) {
+                return Collections.emptyList();
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+
+        // Walk the rarest word's notes from newest to oldest. The other lists are
+        // probed by binary search, each within the part below its last match.
+        Postings rarest = lists.get(0);
+        int[] bounds = new int[lists.size()];
+        for (int i = 1; i < lists.size(); i++) {
+            bounds[i] = lists.get(i).size;
+        }
+        List<Integer> matches = new ArrayList<>();
+        candidates:
+        for (int c = rarest.size - 1; c >= 0 && matches.size() < limit; c--) {
+            int note = rarest.notes[c];
+            for (int i = 1; i < lists.size(); i++) {
+                int found = Arrays.binarySearch(lists.get(i).notes, 0, bounds[i], note);
+                bounds[i] = found >= 0 ? found : -found - 1;
+                if (found < 0) {
+                    continue candidates;
+                }
+            }
+            if (stale.get(note)) {
+                // Edited or deleted: the postings may be out of date, so check the text.
+                String text = store.get(note);
+                List<String> noteWords = text == null ? null : tokenize(text);
+                if (noteWords != null && noteWords.containsAll(words) && containsPhrases(noteWords, phrases)) {
+                    matches.add(note);
+                }
+            } else if (phrases.isEmpty()) {
+                if (store.exists(note)) {
+                    matches.add(note);
+                }
+            } else {
+                // Read once: a note deleted since the check would come back null.
+                String text = store.get(note);
+                if (text != null && containsPhrases(tokenize(text), phrases)) {
+                    matches.add(note);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsPhrases(List<String> words, List<List<String>> phrases) {
+        for (List<String> phrase : phrases) {
+            if (Collections.indexOfSubList(words, phrase) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns how many notes contain a word, counting edited and deleted notes that
+     * used to contain it until the index is rebuilt.
+     * @param word The word, in any case.
+     * @return The number of notes it appears in.
+     */
+    public synchronized int frequency(String word) {
+        Postings postings = postingsByWord.get(word.toLowerCase(Locale.ROOT));
+        return postings == null ? 0 : postings.size;
+    }
+
+    /**
+     * Writes the index next to the notes file, if it changed since it was last written.
+     * The file is written under a temporary name and renamed into place.
+     * @throws IOException if the index cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(generation);
+            out.writeLong(offset);
+            out.writeLong(anchor);
+            out.writeInt(indexedNotes);
+            long[] staleWords = stale.toLongArray();
+            out.writeInt(staleWords.length);
+            for (long staleWord : staleWords) {
+                out.writeLong(staleWord);
+            }
+            out.writeInt(postingsByWord.size());
+            for (Map.Entry<String, Postings> entry : postingsByWord.entrySet()) {
+                byte[] word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, word.length);
+                out.write(word);
+                Postings postings = entry.getValue();
+                writeVarint(out, postings.size);
+                int previous = 0;
+                for (int i = 0; i < postings.size; i++) {
+                    writeVarint(out, postings.notes[i] - previous);
+                    previous = postings.notes[i];
+                }
+            }
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    /**
+     * Saves the index. The store stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        save();
+    }
+
+    /**
+     * Loads the saved index if there is one. Whether it matches the notes file is
+     * checked by {@link #update()}.
+     * @return false if there is no usable saved index.
+     */
+    private boolean load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 40 || channel.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[1 << 16];
+            for (int position = 0; position < bytes.capacity() - 4; ) {
+                int length = Math.min(chunk.length, bytes.capacity() - 4 - position);
+                bytes.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+                position += length;
+            }
+            bytes.rewind();
+            if (bytes.getInt(bytes.capacity() - 4) != (int) crc.getValue()
+                    || bytes.getInt() != MAGIC || bytes.getInt() != VERSION) {
+                return false;
+            }
+            generation = bytes.getInt();
+            offset = bytes.getLong();
+            anchor = bytes.getLong();
+            indexedNotes = bytes.getInt();
+            long[] staleWords = new long[bytes.getInt()];
+            for (int i = 0; i < staleWords.length; i++) {
+                staleWords[i] = bytes.getLong();
+            }
+            stale.or(BitSet.valueOf(staleWords));
+            int words = bytes.getInt();
+            byte[] word = new byte[64];
+            for (int w = 0; w < words; w++) {
+                int length = readVarint(bytes);
+                if (word.length < length) {
+                    word = new byte[length];
+                }
+                bytes.get(word, 0, length);
+                int count = readVarint(bytes);
+                Postings postings = new Postings(count + (count >> 3) + 1); // Room to grow without a copy.
+                int note = 0;
+                for (int i = 0; i < count; i++) {
+                    note += readVarint(bytes);
+                    postings.add(note);
+                }
+                postingsByWord.put(new String(word, 0, length, StandardCharsets.UTF_8), postings);
+            }
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     * @param text The text to split.
+     * @return The words in order, possibly with repeats.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer bytes) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = bytes.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+
+    /**
+     * The numbers of the notes containing one word, ascending, in a primitive array
+     * to avoid an object per posting.
+     */
+    private static final class Postings {
+        int[] notes;
+        int size;
+
+        Postings() {
+            this(2);
+        }
+
+        Postings(int capacity) {
+            notes = new int[Math.max(capacity, 1)];
+        }
+
+        void add(int note) {
+            if (size == notes.length) {
+                notes = Arrays.copyOf(notes, size * 2);
+            }
+            notes[size++] = note;
+        }
+
+        /**
+         * Adds a note in its place in the order, if it is not there already.
+         */
+        void insert(int note) {
+            int found = Arrays.binarySearch(notes, 0, size, note);
+            if (found >= 0) {
+                return;
+            }
+            int at = -found - 1;
+            if (size == notes.length) {
+                notes = Arrays.copyOf(notes, size * 2);
+            }
+            System.arraycopy(notes, at, notes, at + 1, size - at);
+            notes[at] = note;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,1119 @@
+package Task4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * NoteStore.java
+ * Keeps notes in an append-only UTF-8 log, one record per line, together with a
+ * sidecar index (the log's file name plus ".idx") that records where the current text
+ * of every note is. Note N, or a page of notes, is read straight from a memory-mapped
+ * view of the log, so it costs the same however many notes and changes came before it.
+ * A plain line adds a note, so a notes file of plain lines is a valid log. Changes
+ * are lines that start with the byte 0x1E followed by a letter:
+ * <pre>
+ * E number TAB text   the note's new text
+ * D number            the note is deleted (a tombstone)
+ * X                   a note number whose note is already deleted (written by compaction)
+ * G generation        the first line of a compacted log
+ * </pre>
+ * Note numbers never change; a deleted note leaves a gap. Edits and deletes leave the
+ * old versions in the log, so once they make up most of it {@link #compact()} writes
+ * the current notes to a new log and swaps it in.
+ * The index is memory-mapped: a 64-byte header followed by one long per note, packing
+ * the offset and length of the note's text, or -1 once it is deleted. On open, and on
+ * {@link #refresh()}, lines that another program appended to the log are indexed from
+ * where the index stops; the index is rebuilt from scratch only if the log shrank or
+ * its last indexed line changed.
+ * Reads never lock and may run alongside changes and compaction.
+ */
+public class NoteStore implements Closeable {
+    static final byte MARKER = 0x1E;
+    static final int MAX_NOTE_BYTES = (1 << 24) - 1;
+
+    private static final int MAGIC = 0x4E494458; // "NIDX"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int MIN_CAPACITY = 1024;
+    private static final long DELETED = -1;
+    private static final long SEGMENT_BYTES = 1L << 30; // A mapping holds at most 2 GB, so map in 1 GB pieces.
+    private static final long REMAP_BYTES = 1 << 20;    // Newer notes are read with plain reads until this much piles up.
+    private static final long COMPACT_MIN_DEAD_BYTES = 64 << 10;
+    private static final int TAIL_CHECK_BYTES = 64;
+    private static final byte[] LINE_BREAK = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Receives the records of the log in order, for {@link #replay}.
+     */
+    interface RecordVisitor {
+        void added(String note);
+
+        /** A note number that was handed out already deleted. */
+        void skipped();
+
+        void edited(int number, String note);
+
+        void deleted(int number);
+    }
+
+    /**
+     * A point in the log that stays meaningful across one compaction.
+     */
+    static final class Position {
+        final int generation;
+        final long offset;
+        final int notes;
+        final long compactedFrom;
+        final long compactedTo;
+
+        private Position(View view) {
+            this.generation = view.generation;
+            this.offset = view.length;
+            this.notes = view.count;
+            this.compactedFrom = view.compactedFrom;
+            this.compactedTo = view.compactedTo;
+        }
+
+        /**
+         * Finds where an offset into this or the previous generation's log is in this
+         * generation's log. Compaction copies the records written while it ran byte for
+         * byte, so offsets from that stretch on carry over. Records before it can still
+         * be replayed from the previous log, up to compactedFrom.
+         * @return The offset, or -1 if the records before it were compacted away.
+         */
+        long translate(int fromGeneration, long fromOffset) {
+            if (fromGeneration == generation) {
+                return fromOffset <= offset ? fromOffset : -1;
+            }
+            if (fromGeneration == generation - 1 && fromOffset >= compactedFrom) {
+                long translated = compactedTo + (fromOffset - compactedFrom);
+                return translated <= offset ? translated : -1;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * One generation of the log and its index.
+     */
+    private static final class Log implements Closeable {
+        final FileChannel notes;
+        final FileChannel indexChannel;
+        MappedByteBuffer index;
+        int capacity;
+        int count;              // Note numbers handed out, deleted notes included.
+        int live;
+        int generation;
+        int lastLineBytes;
+        long length;            // Bytes of the log covered by the index.
+        long lastLineChecksum;
+        long dead;              // About how many bytes hold old versions and tombstones.
+        long compactedFrom;     // Where the copied tail began in the previous generation's log,
+        long compactedTo;       // and where it begins in this one.
+        MappedByteBuffer[] segments = new MappedByteBuffer[0];
+        long mappedLength;
+
+        private Log(FileChannel notes, FileChannel indexChannel) {
+            this.notes = notes;
+            this.indexChannel = indexChannel;
+        }
+
+        static Log open(Path file, boolean truncate) throws IOException {
+            StandardOpenOption mode = truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.READ;
+            FileChannel notes = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, mode);
+            FileChannel indexChannel;
+            try {
+                indexChannel = FileChannel.open(indexFile(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, mode);
+            } catch (IOException e) {
+                notes.close();
+                throw e;
+            }
+            Log log = new Log(notes, indexChannel);
+            try {
+                log.loadIndex();
+            } catch (IOException e) {
+                log.close();
+                throw e;
+            }
+            return log;
+        }
+
+        /**
+         * Maps the index file and takes its header on trust if it is well formed; the
+         * log is checked against it by {@link NoteStore#refresh()}.
+         */
+        private void loadIndex() throws IOException {
+            long size = indexChannel.size();
+            capacity = (int) Math.max(MIN_CAPACITY, (size - HEADER_BYTES) / 8);
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 8L * capacity);
+            if (size >= HEADER_BYTES && index.getInt(0) == MAGIC && index.getInt(4) == VERSION
+                    && index.getInt(8) >= 0 && index.getInt(8) <= capacity) {
+                count = index.getInt(8);
+                live = index.getInt(12);
+                generation = index.getInt(16);
+                lastLineBytes = index.getInt(20);
+                length = index.getLong(24);
+                lastLineChecksum = index.getLong(32);
+                dead = index.getLong(40);
+                compactedFrom = index.getLong(48);
+                compactedTo = index.getLong(56);
+            } else {
+                reset();
+            }
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+        }
+
+        void reset() {
+            count = 0;
+            live = 0;
+            generation = 0;
+            lastLineBytes = 0;
+            length = 0;
+            lastLineChecksum = 0;
+            dead = 0;
+            compactedFrom = 0;
+            compactedTo = 0;
+            segments = new MappedByteBuffer[0];
+            mappedLength = 0;
+            writeHeader();
+        }
+
+        void writeHeader() {
+            index.putInt(8, count);
+            index.putInt(12, live);
+            index.putInt(16, generation);
+            index.putInt(20, lastLineBytes);
+            index.putLong(24, length);
+            index.putLong(32, lastLineChecksum);
+            index.putLong(40, dead);
+            index.putLong(48, compactedFrom);
+            index.putLong(56, compactedTo);
+        }
+
+        long entry(int number) {
+            return index.getLong(HEADER_BYTES + 8 * (number - 1));
+        }
+
+        boolean exists(int number) {
+            return number >= 1 && number <= count && entry(number) != DELETED;
+        }
+
+        private void setEntry(int number, long entry) {
+            index.putLong(HEADER_BYTES + 8 * (number - 1), entry);
+        }
+
+        private int addEntry(long entry) throws IOException {
+            if (count == capacity) {
+                capacity *= 2;
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 8L * capacity);
+            }
+            setEntry(++count, entry);
+            return count;
+        }
+
+        /**
+         * Applies one record of the log to the index. Records that name a note that does
+         * not exist are ignored.
+         * @param start Where the record starts in the log.
+         * @param line The record, without its line break.
+         * @param recordLength The record's length in bytes.
+         * @return The number of the note the record added or changed, or 0 if none.
+         */
+        int apply(long start, byte[] line, int recordLength) throws IOException {
+            if (recordLength == 0 || line[0] != MARKER) {
+                live++;
+                return addEntry(location(start, recordLength));
+            }
+            if (recordLength < 2) {
+                return 0;
+            }
+            switch (line[1]) {
+                case 'E': {
+                    int tab = indexOf(line, (byte) '\t', 2, recordLength);
+                    int number = parseNumber(line, 2, tab);
+                    if (!exists(number)) {
+                        return 0;
+                    }
+                    dead += textLength(entry(number)) + 1;
+                    setEntry(number, location(start + tab + 1, recordLength - tab - 1));
+                    return number;
+                }
+                case 'D': {
+                    int number = parseNumber(line, 2, recordLength);
+                    if (!exists(number)) {
+                        return 0;
+                    }
+                    dead += textLength(entry(number)) + 1 + recordLength + 1;
+                    setEntry(number, DELETED);
+                    live--;
+                    return number;
+                }
+                case 'X':
+                    return addEntry(DELETED);
+                case 'G':
+                    if (start == 0) {
+                        generation = Math.max(parseNumber(line, 2, recordLength), 0);
+                    }
+                    return 0;
+                default:
+                    return 0;
+            }
+        }
+
+        /**
+         * Indexes the complete lines between the end of the index and a log size.
+         */
+        void scan(long size) throws IOException {
+            long[] last = {-1};
+            scanLines(notes, length, size, (start, line, recordLength, end) -> {
+                apply(start, line, recordLength);
+                length = end;
+                last[0] = start;
+            });
+            if (last[0] >= 0) {
+                lastLineBytes = (int) (length - last[0]);
+                lastLineChecksum = checksumAt(last[0], lastLineBytes);
+            }
+            writeHeader();
+        }
+
+        /**
+         * Checks the last indexed line against the checksum in the header, to catch a
+         * log that was rewritten rather than appended to.
+         */
+        boolean lastLineMatches() throws IOException {
+            return length == 0 || checksumAt(length - lastLineBytes, lastLineBytes) == lastLineChecksum;
+        }
+
+        long checksumAt(long start, int bytes) throws IOException {
+            ByteBuffer line = ByteBuffer.allocate(bytes);
+            while (line.hasRemaining()) {
+                if (notes.read(line, start + line.position()) < 0) {
+                    return -1;
+                }
+            }
+            return checksum(line.array(), bytes);
+        }
+
+        void remap(long size) throws IOException {
+            int pieces = (int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+            MappedByteBuffer[] mapped = Arrays.copyOf(segments, pieces);
+            for (int piece = (int) (mappedLength / SEGMENT_BYTES); piece < pieces; piece++) {
+                long start = piece * SEGMENT_BYTES;
+                mapped[piece] = notes.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+            }
+            segments = mapped;
+            mappedLength = size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                notes.close();
+            } finally {
+                indexChannel.close();
+            }
+        }
+    }
+
+    /**
+     * What readers see: the current log and how much of it is indexed.
+     * Replaced as a whole after every change.
+     */
+    private static final class View {
+        final Log log;
+        final MappedByteBuffer index;
+        final MappedByteBuffer[] segments;
+        final long mappedLength;
+        final int count;
+        final int live;
+        final int generation;
+        final long length;
+        final long dead;
+        final long compactedFrom;
+        final long compactedTo;
+
+        View(Log log) {
+            this.log = log;
+            this.index = log.index;
+            this.segments = log.segments;
+            this.mappedLength = log.mappedLength;
+            this.count = log.count;
+            this.live = log.live;
+            this.generation = log.generation;
+            this.length = log.length;
+            this.dead = log.dead;
+            this.compactedFrom = log.compactedFrom;
+            this.compactedTo = log.compactedTo;
+        }
+
+        long entry(int number) {
+            return index.getLong(HEADER_BYTES + 8 * (number - 1));
+        }
+    }
+
+    /**
+     * Called with each complete line of a stretch of the log.
+     */
+    private interface LineHandler {
+        void line(long start, byte[] line, int length, long end) throws IOException;
+    }
+
+    /**
+     * Thrown by {@link #append} when a write fails after some of the records were
+     * already written and indexed. Those records are in the store; the rest are not.
+     */
+    static final class PartialWriteException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient int[] numbers;
+        private final int settled;
+
+        PartialWriteException(int[] numbers, int settled, IOException cause) {
+            super(cause.getMessage(), cause);
+            this.numbers = numbers;
+            this.settled = settled;
+        }
+
+        /**
+         * Returns how many records, from the first, were written or left out before the failure.
+         */
+        int getSettled() {
+            return settled;
+        }
+
+        /**
+         * Returns the number each settled record added or changed, or 0 if it was left out.
+         */
+        int getNumber(int record) {
+            return numbers[record];
+        }
+    }
+
+    private final Path file;
+    private final Object compaction = new Object();
+    private Log log;
+    private volatile Log retired; // The log before the last compaction, kept open for readers still using it.
+    private ByteBuffer batch = ByteBuffer.allocateDirect(1 << 16); // Reused for every batched write.
+    private volatile View view;
+    private volatile boolean closed;
+    private boolean torn; // A failed write left bytes past the index that could not be cut off yet.
+
+    private NoteStore(Path file, Log log) {
+        this.file = file;
+        this.log = log;
+    }
+
+    /**
+     * Opens a notes file, creating it if it does not exist, and brings its index up to date.
+     * @param file The notes file.
+     * @return The open store.
+     * @throws IOException if the notes file or its index cannot be read or written.
+     */
+    public static NoteStore open(Path file) throws IOException {
+        NoteStore store = new NoteStore(file, Log.open(file, false));
+        try {
+            store.refresh();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the highest note number handed out, including deleted notes.
+     * @return The number of the newest note, or 0 if there are none.
+     */
+    public int size() {
+        return view.count;
+    }
+
+    /**
+     * Returns how many notes there are, not counting deleted ones.
+     * @return The number of notes.
+     */
+    public int liveCount() {
+        return view.live;
+    }
+
+    /**
+     * Returns the size of the log, old versions and tombstones included.
+     * @return The log's length in bytes.
+     */
+    public long getLogBytes() {
+        return view.length;
+    }
+
+    /**
+     * Checks whether a note exists and has not been deleted.
+     * @param number The note's number.
+     * @return true if there is such a note.
+     */
+    public boolean exists(int number) {
+        View current = view;
+        return number >= 1 && number <= current.count && current.entry(number) != DELETED;
+    }
+
+    /**
+     * Returns one note.
+     * @param number The note's number, counting from 1 in the order the notes were added.
+     * @return The note's current text, or null if it was deleted.
+     * @throws IndexOutOfBoundsException if no note ever had that number.
+     * @throws IOException if the notes file cannot be read.
+     */
+    public String get(int number) throws IOException {
+        while (true) {
+            View current = view;
+            if (number < 1 || number > current.count) {
+                throw new IndexOutOfBoundsException("There is no note #" + number + ".");
+            }
+            try {
+                return read(current, number);
+            } catch (ClosedChannelException e) {
+                retryAfter(current, e);
+            }
+        }
+    }
+
+    /**
+     * Returns a run of consecutive notes, for paging through a large file.
+     * @param first The number of the first note, counting from 1.
+     * @param max How many note numbers to cover.
+     * @return The notes from first on, with null for deleted notes; fewer than max at
+     *         the end of the file, and empty past the end.
+     * @throws IOException if the notes file cannot be read.
+     */
+    public List<String> page(int first, int max) throws IOException {
+        while (true) {
+            View current = view;
+            int from = Math.max(first, 1);
+            int to = (int) Math.min((long) from + Math.max(max, 0) - 1, current.count);
+            List<String> page = new ArrayList<>(Math.max(to - from + 1, 0));
+            try {
+                for (int number = from; number <= to; number++) {
+                    page.add(read(current, number));
+                }
+                return page;
+            } catch (ClosedChannelException e) {
+                retryAfter(current, e);
+            }
+        }
+    }
+
+    /**
+     * A read from a log that was compacted twice while it was being read fails; it is
+     * tried again on the current log unless the store itself was closed.
+     */
+    private void retryAfter(View stale, ClosedChannelException e) throws ClosedChannelException {
+        if (closed || view == stale) {
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a note to the end of the file. The note is handed to the operating
+     * system but not forced to disk; {@link NoteWriter} batches notes from many
+     * threads and can force them.
+     * @param note The note's text, on one line.
+     * @return The new note's number.
+     * @throws IllegalArgumentException if the note is not valid; see {@link #encode}.
+     * @throws IOException if the note cannot be written.
+     */
+    public synchronized int add(String note) throws IOException {
+        return append(Collections.singletonList(encode(note)), FsyncPolicy.NONE)[0];
+    }
+
+    /**
+     * Replaces a note's text by appending its new version.
+     * @param number The note's number.
+     * @param note The new text, on one line.
+     * @throws IllegalArgumentException if there is no such note, or the text is not valid.
+     * @throws IOException if the change cannot be written.
+     */
+    public synchronized void edit(int number, String note) throws IOException {
+        if (append(Collections.singletonList(encodeEdit(number, note)), FsyncPolicy.NONE)[0] == 0) {
+            throw new IllegalArgumentException("There is no note #" + number + ".");
+        }
+    }
+
+    /**
+     * Deletes a note by appending a tombstone for it. Its number is not reused.
+     * @param number The note's number.
+     * @throws IllegalArgumentException if there is no such note.
+     * @throws IOException if the change cannot be written.
+     */
+    public synchronized void delete(int number) throws IOException {
+        if (append(Collections.singletonList(encodeDelete(number)), FsyncPolicy.NONE)[0] == 0) {
+            throw new IllegalArgumentException("There is no note #" + number + ".");
+        }
+    }
+
+    /**
+     * Turns a note into the record that adds it, line break included.
+     * @throws IllegalArgumentException if the note contains a line break, starts with
+     *         U+001E, or is longer than {@value #MAX_NOTE_BYTES} bytes.
+     */
+    static byte[] encode(String note) {
+        return record("", note);
+    }
+
+    static byte[] encodeEdit(int number, String note) {
+        return record((char) MARKER + "E" + number + "\t", note);
+    }
+
+    static byte[] encodeDelete(int number) {
+        return record((char) MARKER + "D" + number, "");
+    }
+
+    private static byte[] record(String prefix, String note) {
+        if (note.indexOf('\n') >= 0 || note.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("A note cannot contain a line break.");
+        }
+        if (!note.isEmpty() && note.charAt(0) == MARKER) {
+            throw new IllegalArgumentException("A note cannot start with the character U+001E.");
+        }
+        byte[] head = prefix.getBytes(StandardCharsets.UTF_8);
+        byte[] text = note.getBytes(StandardCharsets.UTF_8);
+        if (text.length > MAX_NOTE_BYTES) {
+            throw new IllegalArgumentException("A note cannot be longer than " + MAX_NOTE_BYTES + " bytes.");
+        }
+        byte[] line = new byte[head.length + text.length + LINE_BREAK.length];
+        System.arraycopy(head, 0, line, 0, head.length);
+        System.arraycopy(text, 0, line, head.length, text.length);
+        System.arraycopy(LINE_BREAK, 0, line, head.length + text.length, LINE_BREAK.length);
+        return line;
+    }
+
+    /**
+     * Appends encoded records in order. Edits and deletes of notes that do not exist,
+     * counting the records before them in the list, are left out. Unless every record
+     * is forced on its own, the records go out in a single write. If a write fails,
+     * the file is cut back to the last record that was fully written and indexed, so
+     * no part of a failed record is ever read back as a note.
+     * @param records Records from {@link #encode}, {@link #encodeEdit} and {@link #encodeDelete}.
+     * @param policy Whether to force the batch, or each record, to disk before returning.
+     * @return For each record, the number of the note it added or changed, or 0 if it was left out.
+     * @throws PartialWriteException if some records were written before the failure.
+     * @throws IOException if the records cannot be written or forced.
+     */
+    synchronized int[] append(List<byte[]> records, FsyncPolicy policy) throws IOException {
+        checkOpen();
+        if (torn) {
+            cutBack(); // A failed write could not be cut off before; do not index it as someone else's.
+        }
+        if (log.notes.size() != log.length) {
+            refresh(); // Someone else appended, or the file was replaced.
+        }
+        int[] numbers = new int[records.size()];
+        int settled = 0; // Records before this one are written and indexed, or left out.
+        try {
+            if (policy == FsyncPolicy.PER_NOTE) {
+                for (; settled < records.size(); settled++) {
+                    byte[] record = records.get(settled);
+                    if (accepts(record, log.count, Collections.<Integer>emptySet())) {
+                        long start = log.length;
+                        writeFully(log.notes, ByteBuffer.wrap(record), start);
+                        log.notes.force(false);
+                        numbers[settled] = appended(start, record);
+                    }
+                }
+            } else {
+                // Check every record before writing any, so the index never points at unwritten bytes.
+                boolean[] accepted = new boolean[records.size()];
+                int notes = log.count;
+                Set<Integer> deleted = new HashSet<>();
+                int bytes = 0;
+                for (int i = 0; i < records.size(); i++) {
+                    byte[] record = records.get(i);
+                    accepted[i] = accepts(record, notes, deleted);
+                    if (accepted[i]) {
+                        bytes += record.length;
+                        if (record[0] != MARKER) {
+                            notes++;
+                        }
+                    }
+                }
+                if (batch.capacity() < bytes) {
+                    batch = ByteBuffer.allocateDirect(Math.max(bytes, batch.capacity() * 2));
+                }
+                batch.clear();
+                for (int i = 0; i < records.size(); i++) {
+                    if (accepted[i]) {
+                        batch.put(records.get(i));
+                    }
+                }
+                batch.flip();
+                long start = log.length;
+                writeFully(log.notes, batch, start);
+                if (policy == FsyncPolicy.PER_BATCH) {
+                    log.notes.force(false);
+                }
+                for (; settled < records.size(); settled++) {
+                    if (accepted[settled]) {
+                        numbers[settled] = appended(start, records.get(settled));
+                        start += records.get(settled).length;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            try {
+                cutBack();
+            } catch (IOException cut) {
+                e.addSuppressed(cut);
+            }
+            if (settled == 0) {
+                throw e;
+            }
+            // The records before the failure are on disk and indexed: show them, and say so.
+            try {
+                log.writeHeader();
+                publish();
+            } catch (IOException header) {
+                e.addSuppressed(header);
+            }
+            throw new PartialWriteException(numbers, settled, e);
+        }
+        log.writeHeader();
+        publish();
+        return numbers;
+    }
+
+    /**
+     * Cuts the notes file back to the end of the last indexed record, removing what a
+     * failed write left behind. Until that succeeds, appends keep retrying it.
+     */
+    private void cutBack() throws IOException {
+        torn = true;
+        if (log.notes.size() > log.length) {
+            log.notes.truncate(log.length);
+        }
+        torn = false;
+    }
+
+    /**
+     * Checks that an edit or delete names a note that will exist when it is applied,
+     * given how many notes there will be and which the records before it delete.
+     */
+    private boolean accepts(byte[] record, int notes, Set<Integer> deletedBefore) {
+        if (record[0] != MARKER) {
+            return true;
+        }
+        int end = record.length - LINE_BREAK.length;
+        int number = record[1] == 'E'
+                ? parseNumber(record, 2, indexOf(record, (byte) '\t', 2, end))
+                : parseNumber(record, 2, end);
+        boolean exists = number >= 1 && number <= notes && !deletedBefore.contains(number)
+                && (number > log.count || log.exists(number));
+        if (exists && record[1] == 'D') {
+            deletedBefore.add(number);
+        }
+        return exists;
+    }
+
+    private int appended(long start, byte[] record) throws IOException {
+        int number = log.apply(start, record, record.length - LINE_BREAK.length);
+        log.length = start + record.length;
+        log.lastLineBytes = record.length;
+        log.lastLineChecksum = checksum(record, record.length);
+        return number;
+    }
+
+    /**
+     * Indexes lines that were appended to the notes file by someone else since the
+     * index was last updated. Rebuilds the index if the file was otherwise changed.
+     * @throws IOException if the notes file or the index cannot be read or written.
+     */
+    public synchronized void refresh() throws IOException {
+        checkOpen();
+        long size = log.notes.size();
+        if (size < log.length || !log.lastLineMatches()) {
+            log.reset(); // Rewritten, not appended to: index it again from the start.
+        }
+        if (size > 0 && lastByte(size) != '\n') {
+            writeFully(log.notes, ByteBuffer.wrap(LINE_BREAK), size); // Finish a last line written without a line break.
+            size += LINE_BREAK.length;
+        }
+        log.scan(size);
+        log.remap(log.length);
+        publish();
+    }
+
+    /**
+     * Checks whether old versions and tombstones take up most of the log.
+     * @return true if {@link #compact()} would at least halve the log.
+     */
+    public boolean needsCompaction() {
+        View current = view;
+        return current.dead >= COMPACT_MIN_DEAD_BYTES && current.dead * 2 > current.length;
+    }
+
+    /**
+     * Rewrites the log with only the current text of each note, then swaps it in.
+     * The notes are copied to a new log without holding the store's lock, so reads,
+     * adds and changes carry on meanwhile. The lock is then taken just long enough to
+     * copy over the records written in the meantime and rename the new log and its
+     * index over the old ones. Readers still using the old log keep it until the next
+     * compaction.
+     * @throws IOException if the new log cannot be written; the old one is left as it was.
+     */
+    public void compact() throws IOException {
+        synchronized (compaction) {
+            checkOpen();
+            View before = view;
+            Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+            Log next = Log.open(compacted, true);
+            boolean swapped = false;
+            try {
+                ByteBuffer out = ByteBuffer.allocate(1 << 16);
+                copy(next, out, record((char) MARKER + "G" + (before.generation + 1), ""));
+                for (int number = 1; number <= before.count; number++) {
+                    long entry = before.entry(number);
+                    if (entry == DELETED) {
+                        copy(next, out, record((char) MARKER + "X", ""));
+                    } else {
+                        byte[] text = readBytes(before, textStart(entry), textLength(entry));
+                        byte[] line = Arrays.copyOf(text, text.length + LINE_BREAK.length);
+                        System.arraycopy(LINE_BREAK, 0, line, text.length, LINE_BREAK.length);
+                        copy(next, out, line);
+                    }
+                }
+                out.flip();
+                writeFully(next.notes, out, next.length - out.remaining());
+
+                synchronized (this) {
+                    checkOpen();
+                    if (log != before.log || log.generation != before.generation || log.length < before.length) {
+                        throw new IOException(file + " was replaced while it was being compacted.");
+                    }
+                    // Records written since the copy began go over byte for byte.
+                    next.compactedFrom = before.length;
+                    next.compactedTo = next.length;
+                    long tail = log.length - before.length;
+                    for (long copied = 0; copied < tail; ) {
+                        copied += log.notes.transferTo(before.length + copied, tail - copied,
+                                next.notes.position(next.length + copied));
+                    }
+                    next.scan(next.length + tail);
+                    next.notes.force(false);
+                    next.index.force();
+                    Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    Files.move(indexFile(compacted), indexFile(file), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    if (retired != null) {
+                        retired.close();
+                    }
+                    retired = log;
+                    log = next;
+                    swapped = true;
+                    log.remap(log.length);
+                    publish();
+                }
+            } finally {
+                if (!swapped) {
+                    next.close();
+                    Files.deleteIfExists(compacted);
+                    Files.deleteIfExists(indexFile(compacted));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds one record to a log that is being built, buffering the writes.
+     */
+    private static void copy(Log next, ByteBuffer out, byte[] record) throws IOException {
+        long start = next.length;
+        if (out.remaining() < record.length) {
+            out.flip();
+            writeFully(next.notes, out, start - out.remaining());
+            out.clear();
+        }
+        if (record.length > out.capacity()) {
+            writeFully(next.notes, ByteBuffer.wrap(record), start);
+        } else {
+            out.put(record);
+        }
+        next.apply(start, record, record.length - LINE_BREAK.length);
+        next.length = start + record.length;
+        next.lastLineBytes = record.length;
+        next.lastLineChecksum = checksum(record, record.length);
+    }
+
+    /**
+     * Returns where the log stands now, for readers that follow its changes.
+     */
+    Position position() {
+        return new Position(view);
+    }
+
+    /**
+     * Returns a checksum of the bytes just before a point in the log, so a reader that
+     * stopped there can tell whether the log it comes back to is the same one.
+     * @return The checksum, or -1 if the log is no longer that generation.
+     */
+    long checksumBefore(int generation, long offset) throws IOException {
+        View current = view;
+        if (current.generation != generation || offset > current.length) {
+            return -1;
+        }
+        int bytes = (int) Math.min(offset, TAIL_CHECK_BYTES);
+        try {
+            return current.log.checksumAt(offset - bytes, bytes);
+        } catch (ClosedChannelException e) {
+            checkOpen();
+            return -1;
+        }
+    }
+
+    /**
+     * Calls a visitor with each record in a stretch of the current log, or of the log
+     * before the last compaction.
+     * @param generation The generation of the log the offsets refer to.
+     * @param from Where to start, at the start of a record.
+     * @param to Where to stop, at the end of a record.
+     * @return false if that log is gone. If it went while it was being read, some of
+     *         its records may have been visited already.
+     * @throws IOException if the log cannot be read.
+     */
+    boolean replay(int generation, long from, long to, RecordVisitor visitor) throws IOException {
+        checkOpen();
+        View current = view;
+        Log source = current.log;
+        if (current.generation != generation) {
+            source = retired;
+            if (source == null || source.generation != generation || generation != current.generation - 1) {
+                return false;
+            }
+        }
+        if (to > (source == current.log ? current.length : source.length)) {
+            return false;
+        }
+        try {
+            scanLines(source.notes, from, to, (start, line, length, end) -> visit(line, length, visitor));
+        } catch (ClosedChannelException e) {
+            checkOpen();
+            return false; // Compacted again meanwhile.
+        }
+        return true;
+    }
+
+    private static void visit(byte[] line, int length, RecordVisitor visitor) {
+        if (length == 0 || line[0] != MARKER) {
+            visitor.added(new String(line, 0, length, StandardCharsets.UTF_8));
+        } else if (length > 1 && line[1] == 'E') {
+            int tab = indexOf(line, (byte) '\t', 2, length);
+            int number = parseNumber(line, 2, tab);
+            if (number > 0) {
+                visitor.edited(number, new String(line, tab + 1, length - tab - 1, StandardCharsets.UTF_8));
+            }
+        } else if (length > 1 && line[1] == 'D') {
+            int number = parseNumber(line, 2, length);
+            if (number > 0) {
+                visitor.deleted(number);
+            }
+        } else if (length > 1 && line[1] == 'X') {
+            visitor.skipped();
+        }
+    }
+
+    /**
+     * Writes the notes and the index to the storage device.
+     * @throws IOException if either cannot be forced.
+     */
+    public synchronized void force() throws IOException {
+        checkOpen();
+        log.notes.force(false);
+        log.index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (compaction) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    log.close();
+                } finally {
+                    if (retired != null) {
+                        retired.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private static String read(View current, int number) throws IOException {
+        long entry = current.entry(number);
+        if (entry == DELETED) {
+            return null;
+        }
+        return new String(readBytes(current, textStart(entry), textLength(entry)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(View current, long start, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        if (start + length <= current.mappedLength) {
+            for (int copied = 0; copied < length; ) {
+                long position = start + copied;
+                ByteBuffer segment = current.segments[(int) (position / SEGMENT_BYTES)].duplicate();
+                segment.position((int) (position % SEGMENT_BYTES));
+                int chunk = Math.min(length - copied, segment.remaining());
+                segment.get(bytes, copied, chunk);
+                copied += chunk;
+            }
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (current.log.notes.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("The notes file is shorter than its index.");
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Makes the latest notes visible to readers, mapping newly written parts of the
+     * log once enough of them have piled up.
+     */
+    private void publish() throws IOException {
+        if (log.length - log.mappedLength >= REMAP_BYTES) {
+            log.remap(log.length);
+        }
+        view = new View(log);
+    }
+
+    private byte lastByte(long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        log.notes.read(last, size - 1);
+        return last.get(0);
+    }
+
+    /**
+     * Reads the complete lines between two offsets. A line's length excludes its line
+     * break, and a carriage return before it.
+     */
+    private static void scanLines(FileChannel channel, long from, long to, LineHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long lineStart = from;
+        for (long position = from; position < to; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int next = 0; next < read; ) {
+                int end = next;
+                while (end < read && bytes[end] != '\n') {
+                    end++;
+                }
+                if (lineLength + end - next > line.length) {
+                    line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + end - next));
+                }
+                System.arraycopy(bytes, next, line, lineLength, end - next);
+                lineLength += end - next;
+                if (end < read) {
+                    int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                    handler.line(lineStart, line, length, position + end + 1);
+                    lineLength = 0;
+                    lineStart = position + end + 1;
+                }
+                next = end + 1;
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    private static long location(long start, int length) {
+        return start << 24 | length;
+    }
+
+    private static long textStart(long entry) {
+        return entry >>> 24;
+    }
+
+    private static int textLength(long entry) {
+        return (int) (entry & MAX_NOTE_BYTES);
+    }
+
+    private static int indexOf(byte[] line, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a note number.
+     * @return The number, or -1 if the bytes are not one.
+     */
+    private static int parseNumber(byte[] line, int from, int to) {
+        if (from >= to || to - from > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,244 @@
+package Task4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * NoteWriter.java
+ * Adds, edits and deletes notes in a {@link NoteStore} on behalf of any number of
+ * threads. Producers put their notes and changes on a queue; one writer thread takes everything that has queued up
+ * (up to {@value #MAX_BATCH} notes), appends it to the notes file in a single write,
+ * and acknowledges each note once it is as durable as the {@link FsyncPolicy} asks.
+ * A burst of notes therefore costs one write, and at most one fsync, instead of
+ * opening, writing and closing the file once per note.
+ * Closing the writer finishes every note already submitted; it does not close the store.
+ */
+public class NoteWriter implements Closeable {
+    private static final int MAX_BATCH = 4096;
+    private static final Pending STOP = new Pending(new byte[0], 0);
+
+    /**
+     * A record waiting to be written, and the future its producer waits on.
+     */
+    private static final class Pending {
+        final byte[] line;
+        final int number; // The note an edit or delete is for; 0 for a new note.
+        final CompletableFuture<Integer> written = new CompletableFuture<>();
+
+        Pending(byte[] line, int number) {
+            this.line = line;
+            this.number = number;
+        }
+    }
+
+    private final NoteStore store;
+    private final FsyncPolicy policy;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create a writer and start its thread.
+     * @param store The store to add notes to.
+     * @param policy When notes are forced to disk.
+     */
+    public NoteWriter(NoteStore store, FsyncPolicy policy) {
+        this.store = store;
+        this.policy = policy;
+        this.writer = new Thread(this::run, "note-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Queues a note and returns without waiting for it to be written.
+     * @param note The note's text, on one line.
+     * @return A future that completes with the note's number once the note is written
+     *         according to the policy, or with the IOException that stopped it.
+     * @throws IllegalArgumentException if the note is not valid; see {@link NoteStore#add}.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public CompletableFuture<Integer> submit(String note) {
+        return enqueue(new Pending(NoteStore.encode(note), 0));
+    }
+
+    /**
+     * Queues a new version of a note and returns without waiting for it to be written.
+     * @param number The note's number.
+     * @param note The new text, on one line.
+     * @return A future that completes with the note's number once the change is
+     *         written, or with an IllegalArgumentException if there is no such note.
+     * @throws IllegalArgumentException if the text is not a valid note.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public CompletableFuture<Integer> submitEdit(int number, String note) {
+        return enqueue(new Pending(NoteStore.encodeEdit(number, note), number));
+    }
+
+    /**
+     * Queues the deletion of a note and returns without waiting for it to be written.
+     * @param number The note's number.
+     * @return A future that completes with the note's number once the tombstone is
+     *         written, or with an IllegalArgumentException if there is no such note.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public CompletableFuture<Integer> submitDelete(int number) {
+        return enqueue(new Pending(NoteStore.encodeDelete(number), number));
+    }
+
+    private CompletableFuture<Integer> enqueue(Pending pending) {
+        if (closed) {
+            throw new IllegalStateException("The note writer is closed.");
+        }
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            // Closed meanwhile and the writer thread never saw this note.
+            throw new IllegalStateException("The note writer is closed.");
+        }
+        return pending.written;
+    }
+
+    /**
+     * Adds a note and waits until it is written according to the policy.
+     * @param note The note's text, on one line.
+     * @return The new note's number.
+     * @throws IllegalArgumentException if the note is not valid.
+     * @throws IOException if the note cannot be written, or the wait is interrupted.
+     */
+    public int add(String note) throws IOException {
+        return await(submit(note));
+    }
+
+    /**
+     * Replaces a note's text and waits until the change is written according to the policy.
+     * @param number The note's number.
+     * @param note The new text, on one line.
+     * @throws IllegalArgumentException if there is no such note, or the text is not valid.
+     * @throws IOException if the change cannot be written, or the wait is interrupted.
+     */
+    public void edit(int number, String note) throws IOException {
+        await(submitEdit(number, note));
+    }
+
+    /**
+     * Deletes a note and waits until the tombstone is written according to the policy.
+     * @param number The note's number.
+     * @throws IllegalArgumentException if there is no such note.
+     * @throws IOException if the change cannot be written, or the wait is interrupted.
+     */
+    public void delete(int number) throws IOException {
+        await(submitDelete(number));
+    }
+
+    private static int await(CompletableFuture<Integer> written) throws IOException {
+        try {
+            return written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a note to be written.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw new IllegalArgumentException(e.getCause().getMessage(), e.getCause());
+            }
+            throw new IOException("The note could not be written.", e.getCause());
+        }
+    }
+
+    /**
+     * Writes every note submitted so far and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(STOP);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        List<byte[]> lines = new ArrayList<>();
+        boolean stopping = false;
+        while (true) {
+            if (stopping) {
+                // Records queued just before close; stop once none are left.
+                if (queue.drainTo(batch, MAX_BATCH) == 0) {
+                    return;
+                }
+            } else {
+                batch.add(take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                stopping = batch.remove(STOP);
+            }
+            for (Pending pending : batch) {
+                lines.add(pending.line);
+            }
+            try {
+                int[] numbers = lines.isEmpty() ? new int[0] : store.append(lines, policy);
+                for (int i = 0; i < batch.size(); i++) {
+                    complete(batch.get(i), numbers[i]);
+                }
+            } catch (NoteStore.PartialWriteException e) {
+                // The notes before the failure were written and indexed; only the rest failed.
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i < e.getSettled()) {
+                        complete(batch.get(i), e.getNumber(i));
+                    } else {
+                        batch.get(i).written.completeExceptionally(e.getCause());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                for (Pending pending : batch) {
+                    pending.written.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+            lines.clear();
+        }
+    }
+
+    private static void complete(Pending pending, int number) {
+        if (number == 0) {
+            pending.written.completeExceptionally(
+                    new IllegalArgumentException("There is no note #" + pending.number + "."));
+        } else {
+            pending.written.complete(number);
+        }
+    }
+
+    private Pending take() {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // Only close() stops the writer thread.
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package Task4;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * NoteWriterBenchmark.java
+ * Compares adding notes the old way, opening the file in append mode, writing one
+ * line and closing it again for every note, against a long-lived {@link NoteWriter}
+ * under each {@link FsyncPolicy}. Every run adds the same notes from a number of
+ * producer threads to a fresh file and reports notes per second and the latency of
+ * a single add, then checks that the file holds every note.
+ * Usage: java Task4.NoteWriterBenchmark [notesPerThread] [threads]
+ */
+public class NoteWriterBenchmark {
+    private interface Adder {
+        void add(String note) throws IOException;
+    }
+
+    private interface Setup {
+        Adder open(Path file) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int notesPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        System.out.printf("--- Adding notes: %,d per thread ---%n", notesPerThread);
+        System.out.printf("%-26s %8s %12s %10s %10s %10s%n", "Path", "Threads", "Notes/s", "p50 us", "p99 us", "Max ms");
+        int[] threadCounts = maxThreads == 1 ? new int[] {1} : new int[] {1, maxThreads};
+        for (int threads : threadCounts) {
+            run("open per note", threads, notesPerThread, file -> note -> appendOnce(file, note, false));
+            run("open per note + fsync", threads, notesPerThread, file -> note -> appendOnce(file, note, true));
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                run("NoteWriter " + policy, threads, notesPerThread, file -> {
+                    NoteStore store = NoteStore.open(file);
+                    return new Closing(new NoteWriter(store, policy), store);
+                });
+            }
+        }
+    }
+
+    /**
+     * The old addNote path: open in append mode, write one line, close.
+     */
+    private static void appendOnce(Path file, String note, boolean fsync) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), true);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(note);
+            writer.newLine();
+            if (fsync) {
+                writer.flush();
+                out.getFD().sync();
+            }
+        }
+    }
+
+    private static void run(String label, int threads, int notesPerThread, Setup setup) throws Exception {
+        Path directory = Files.createTempDirectory("note-writer-bench");
+        Path file = directory.resolve("notes.txt");
+        long[][] latencies = new long[threads][notesPerThread];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[threads];
+        Adder adder = setup.open(file);
+        long elapsed;
+        try {
+            for (int t = 0; t < threads; t++) {
+                int producer = t;
+                producers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < notesPerThread; i++) {
+                            long began = System.nanoTime();
+                            adder.add("Note " + i + " from producer " + producer + ": remember to buy groceries");
+                            latencies[producer][i] = System.nanoTime() - began;
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                producers[t].start();
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            elapsed = System.nanoTime() - began;
+        } finally {
+            if (adder instanceof Closing) {
+                ((Closing) adder).close();
+            }
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(label + " failed.", failure.get());
+        }
+
+        try (NoteStore check = NoteStore.open(file)) {
+            if (check.size() != threads * notesPerThread) {
+                throw new IllegalStateException(label + " wrote " + check.size() + " notes instead of "
+                        + threads * notesPerThread + ".");
+            }
+        }
+        Files.delete(NoteStore.indexFile(file));
+        Files.delete(file);
+        Files.delete(directory);
+
+        long[] all = new long[threads * notesPerThread];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * notesPerThread, notesPerThread);
+        }
+        Arrays.sort(all);
+        System.out.printf("%-26s %8d %12.0f %10.1f %10.1f %10.2f%n", label, threads,
+                all.length / (elapsed / 1e9), all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3,
+                all[all.length - 1] / 1e6);
+    }
+
+    /**
+     * Adds through a note writer, which has to be closed with its store after the run.
+     */
+    private static final class Closing implements Adder {
+        private final NoteWriter writer;
+        private final NoteStore store;
+
+        Closing(NoteWriter writer, NoteStore store) {
+            this.writer = writer;
+            this.store = store;
+        }
+
+        @Override
+        public void add(String note) throws IOException {
+            writer.add(note);
+        }
+
+        void close() throws IOException {
+            writer.close();
+            store.close();
+        }
+    }
+}
@@ -1,60 +1,90 @@
 package Task4;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
 public class NotesManager {
 
     private static final String FILE_NAME = "notes.txt";
+    private static final int PAGE_SIZE = 20;
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
-        while (true) {
-            System.out.println("\n--- Notes Manager ---");
-            System.out.println("1. Add a new note");
-            System.out.println("2. View all notes");
-            System.out.println("3. Exit");
-            System.out.print("Choose an option: ");
-
-            String choice = scanner.nextLine();
-
-            switch (choice) {
-                case "1":
-                    addNote(scanner);
-                    break;
-                case "2":
-                    viewNotes();
-                    break;
-                case "3":
-                    System.out.println("Exiting the program. Goodbye!");
-                    scanner.close(); // Close the scanner before exiting
-                    return; // Exit the main method, terminating the program
-                default:
-                    System.out.println("Invalid option. Please try again.");
+        // The store keeps notes.txt indexed (in notes.txt.idx) so any note can be read directly.
+        // The search index (notes.txt.search) is saved on exit and caught up on the next start.
+        // The writer keeps the file open and forces each change to disk before confirming it.
+        // Edits and deletes are appended too; the compactor rewrites the file once they pile up.
+        try (NoteStore store = NoteStore.open(Paths.get(FILE_NAME));
+             NoteSearchIndex index = NoteSearchIndex.open(store);
+             NoteWriter writer = new NoteWriter(store, FsyncPolicy.PER_BATCH);
+             NoteCompactor compactor = new NoteCompactor(store)) {
+            while (true) {
+                System.out.println("\n--- Notes Manager ---");
+                System.out.println("1. Add a new note");
+                System.out.println("2. View all notes");
+                System.out.println("3. View a note by number");
+                System.out.println("4. Search notes");
+                System.out.println("5. Edit a note");
+                System.out.println("6. Delete a note");
+                System.out.println("7. Exit");
+                System.out.print("Choose an option: ");
+
+                String choice = scanner.nextLine();
+
+                switch (choice) {
+                    case "1":
+                        addNote(writer, index, scanner);
+                        break;
+                    case "2":
+                        viewNotes(store, scanner);
+                        break;
+                    case "3":
+                        viewNote(store, scanner);
+                        break;
+                    case "4":
+                        searchNotes(store, index, scanner);
+                        break;
+                    case "5":
+                        editNote(store, writer, index, scanner);
+                        break;
+                    case "6":
+                        deleteNote(writer, index, scanner);
+                        break;
+                    case "7":
+                        if (compactor.getFailure() != null) {
+                            System.err.println("Note: " + FILE_NAME + " could not be compacted: "
+                                    + compactor.getFailure().getMessage());
+                        }
+                        System.out.println("Exiting the program. Goodbye!");
+                        scanner.close(); // Close the scanner before exiting
+                        return; // Exit the main method, terminating the program
+                    default:
+                        System.out.println("Invalid option. Please try again.");
+                }
             }
+        } catch (IOException e) {
+            System.err.println("An error occurred while opening " + FILE_NAME + ".");
+            e.printStackTrace();
         }
     }
 
     /**
      * Prompts the user for a note and appends it to the file.
+     * @param writer The writer that appends notes to the store.
+     * @param index The search index to add the note to.
      * @param scanner The scanner to read user input.
      */
-    private static void addNote(Scanner scanner) {
+    private static void addNote(NoteWriter writer, NoteSearchIndex index, Scanner scanner) {
         System.out.print("Enter your note: ");
         String note = scanner.nextLine();
 
-        // Use try-with-resources to ensure the writer is closed automatically.
-        // new FileWriter(FILE_NAME, true) opens the file in append mode.
-        try (FileWriter fw = new FileWriter(FILE_NAME, true);
-             BufferedWriter writer = new BufferedWriter(fw)) {
-            
-            writer.write(note);
-            writer.newLine(); // Adds a new line for the next note
+        try {
+            writer.add(note);
+            index.update();
             System.out.println("Note added successfully!");
-
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (IOException e) {
             System.err.println("An error occurred while writing to the file.");
             e.printStackTrace();
@@ -62,34 +92,152 @@ public class NotesManager {
     }
 
     /**
-     * Reads all notes from the file and displays them.
+     * Displays all notes, one page at a time.
+     * @param store The notes store.
+     * @param scanner The scanner to read user input.
      */
-    private static void viewNotes() {
+    private static void viewNotes(NoteStore store, Scanner scanner) {
         System.out.println("\n--- Your Notes ---");
 
-        // Use try-with-resources to ensure the reader is closed automatically.
-        try (FileReader fr = new FileReader(FILE_NAME);
-             BufferedReader reader = new BufferedReader(fr)) {
+        try {
+            store.refresh(); // Pick up notes added to the file by another program.
+            if (store.liveCount() == 0) {
+                System.out.println("No notes found. Add one first!");
+                System.out.println("--------------------");
+                return;
+            }
+
+            // Read a page of notes at a time instead of the whole file
+            for (int first = 1; first <= store.size(); first += PAGE_SIZE) {
+                List<String> page = store.page(first, PAGE_SIZE);
+                for (int i = 0; i < page.size(); i++) {
+                    if (page.get(i) != null) { // Deleted notes keep their number but are not shown.
+                        System.out.println((first + i) + ". " + page.get(i));
+                    }
+                }
+                if (first + PAGE_SIZE <= store.size()) {
+                    System.out.print("-- Press Enter for more, or q to stop -- ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading the file.");
+            e.printStackTrace();
+        }
+        System.out.println("--------------------");
+    }
+
+    /**
+     * Prompts the user for a note number and displays that note.
+     * @param store The notes store.
+     * @param scanner The scanner to read user input.
+     */
+    private static void viewNote(NoteStore store, Scanner scanner) {
+        System.out.print("Enter the note number: ");
+        String input = scanner.nextLine().trim();
 
-            String line;
-            int noteNumber = 1;
-            boolean notesFound = false;
+        try {
+            int number = Integer.parseInt(input);
+            String note = store.get(number);
+            System.out.println(note == null ? "Note #" + number + " was deleted." : number + ". " + note);
+        } catch (NumberFormatException e) {
+            System.out.println("Please enter a number.");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading the file.");
+            e.printStackTrace();
+        }
+    }
 
-            // Read the file line by line
-            while ((line = reader.readLine()) != null) {
-                System.out.println(noteNumber + ". " + line);
-                noteNumber++;
-                notesFound = true;
+    /**
+     * Prompts the user for search words and displays the newest matching notes.
+     * @param store The notes store.
+     * @param index The search index.
+     * @param scanner The scanner to read user input.
+     */
+    private static void searchNotes(NoteStore store, NoteSearchIndex index, Scanner scanner) {
+        System.out.print("Enter words to search for (put a phrase in \"quotes\"): ");
+        String query = scanner.nextLine();
+
+        try {
+            index.update(); // Pick up notes added to the file by another program.
+            List<Integer> matches = index.search(query, PAGE_SIZE);
+            System.out.println("\n--- Search Results ---");
+            if (matches.isEmpty()) {
+                System.out.println("No notes match your search.");
+            }
+            for (int number : matches) {
+                String note = store.get(number);
+                if (note != null) { // Deleted since the search.
+                    System.out.println(number + ". " + note);
+                }
             }
+            if (matches.size() == PAGE_SIZE) {
+                System.out.println("(Showing the " + PAGE_SIZE + " newest matches.)");
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading the file.");
+            e.printStackTrace();
+        }
+        System.out.println("--------------------");
+    }
 
-            if (!notesFound) {
-                System.out.println("No notes found. Add one first!");
+    /**
+     * Prompts the user for a note number and new text, and replaces the note.
+     * @param store The notes store.
+     * @param writer The writer that appends the change to the store.
+     * @param index The search index to update.
+     * @param scanner The scanner to read user input.
+     */
+    private static void editNote(NoteStore store, NoteWriter writer, NoteSearchIndex index, Scanner scanner) {
+        System.out.print("Enter the number of the note to edit: ");
+        String input = scanner.nextLine().trim();
+
+        try {
+            int number = Integer.parseInt(input);
+            if (!store.exists(number)) {
+                System.out.println("There is no note #" + number + ".");
+                return;
             }
+            System.out.println("Current text: " + store.get(number));
+            System.out.print("Enter the new text: ");
+            writer.edit(number, scanner.nextLine());
+            index.update();
+            System.out.println("Note updated successfully!");
+        } catch (NumberFormatException e) {
+            System.out.println("Please enter a number.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("An error occurred while writing to the file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prompts the user for a note number and deletes that note.
+     * @param writer The writer that appends the tombstone to the store.
+     * @param index The search index to update.
+     * @param scanner The scanner to read user input.
+     */
+    private static void deleteNote(NoteWriter writer, NoteSearchIndex index, Scanner scanner) {
+        System.out.print("Enter the number of the note to delete: ");
+        String input = scanner.nextLine().trim();
 
+        try {
+            writer.delete(Integer.parseInt(input));
+            index.update();
+            System.out.println("Note deleted successfully!");
+        } catch (NumberFormatException e) {
+            System.out.println("Please enter a number.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (IOException e) {
-            // This often means the file doesn't exist yet, which is fine on first run.
-            System.out.println("No notes found. Add one first!");
+            System.err.println("An error occurred while writing to the file.");
+            e.printStackTrace();
         }
-        System.out.println("--------------------");
     }
-}
\ No newline at end of file
+}
@@ -1,35 +1,95 @@
 package Task5;
-import java.util.ArrayList;
-import java.util.List;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
 
 /**
  * Represents a bank account with basic operations like deposit and withdrawal.
  * It maintains the account balance and a history of all transactions.
+ * The balance is kept in whole cents and changed without locks (see {@link Balance}),
+ * so any number of threads may deposit and withdraw at once: no update is lost and
+ * a withdrawal never takes the balance below zero.
+ * The history is a {@link TransactionLog} of primitive records, formatted only when
+ * printed. Each entry holds the balance its own operation produced; when threads
+ * race, entries a few nanoseconds apart may be logged in a different order from
+ * the one in which they changed the balance.
+ * An account opened with {@link #open} is kept in an {@link AccountJournal} instead:
+ * every deposit and withdrawal is on disk before it returns, the journal's writer
+ * makes the changes one at a time in the order they are journaled, and reopening
+ * the account after a crash brings back its balance and history.
  */
-public class Account {
+public class Account implements Closeable {
 
     // Fields to store account data
-    private String accountNumber;
-    private String accountHolderName;
-    private double balance;
-    // A list to store the history of transactions as simple strings
-    private List<String> transactionHistory;
+    private final String accountNumber;
+    private final String accountHolderName;
+    private final Balance balance;
+    // The history of transactions, as compact records
+    private final TransactionLog transactionHistory;
+    // Where transactions are made durable, or null for an account kept only in memory
+    private final AccountJournal journal;
 
     /**
      * Constructor to initialize a new Account object.
      * @param accountNumber The unique number for the account.
      * @param accountHolderName The name of the account holder.
-     * @param initialBalance The starting balance of the account.
+     * @param initialBalance The starting balance of the account, rounded to whole cents.
+     * @throws IllegalArgumentException if the starting balance is negative.
      */
     public Account(String accountNumber, String accountHolderName, double initialBalance) {
+        this(accountNumber, accountHolderName, new Balance(Money.toCents(initialBalance)));
+    }
+
+    /**
+     * Creates an account with a starting balance given exactly, in cents.
+     * @param accountNumber The unique number for the account.
+     * @param accountHolderName The name of the account holder.
+     * @param initialCents The starting balance of the account in cents.
+     * @return The new account.
+     * @throws IllegalArgumentException if the starting balance is negative.
+     */
+    public static Account withCents(String accountNumber, String accountHolderName, long initialCents) {
+        return new Account(accountNumber, accountHolderName, new Balance(initialCents));
+    }
+
+    /**
+     * Opens an account kept in a journal on disk, creating the journal if it does not
+     * exist yet and otherwise replaying it. Close the account to stop its journal.
+     * @param journalFile The journal file.
+     * @param accountNumber The unique number for the account; must match the journal's.
+     * @param accountHolderName The name of the account holder, for a new journal.
+     * @param initialCents The starting balance in cents, for a new journal.
+     * @param policy When transactions are forced to disk.
+     * @return The account, with the balance and history the journal holds.
+     * @throws IllegalArgumentException if a new account's starting balance is negative.
+     * @throws IOException if the journal cannot be read or created, or belongs to another account.
+     */
+    public static Account open(Path journalFile, String accountNumber, String accountHolderName, long initialCents,
+                               FsyncPolicy policy) throws IOException {
+        AccountJournal journal = AccountJournal.open(journalFile, accountNumber, accountHolderName, initialCents,
+                policy);
+        return new Account(journal.getAccountNumber(), journal.getAccountHolderName(), journal.getBalance(),
+                journal.getHistory(), journal);
+    }
+
+    private Account(String accountNumber, String accountHolderName, Balance balance) {
+        this(accountNumber, accountHolderName, balance, new TransactionLog(), null);
+        // Record the initial account creation
+        this.transactionHistory.append(TransactionType.OPENED, balance.get(), balance.get());
+    }
+
+    private Account(String accountNumber, String accountHolderName, Balance balance, TransactionLog history,
+                    AccountJournal journal) {
         this.accountNumber = accountNumber;
         this.accountHolderName = accountHolderName;
-        this.balance = initialBalance;
-        this.transactionHistory = new ArrayList<>();
-        // Record the initial account creation
-        addTransaction("Account created with initial balance: $" + String.format("%.2f", initialBalance));
+        this.balance = balance;
+        this.transactionHistory = history;
+        this.journal = journal;
     }
 
     /**
@@ -37,14 +97,12 @@ public class Account {
      * @param amount The amount to deposit. Must be positive.
      */
     public void deposit(double amount) {
-        if (amount <= 0) {
+        long cents = Money.toCents(amount);
+        if (tryDeposit(cents) == TransactionStatus.INVALID_AMOUNT) {
             System.out.println("Deposit amount must be positive.");
             return;
         }
-        this.balance += amount;
-        String transactionDetails = "Deposited: $" + String.format("%.2f", amount);
-        addTransaction(transactionDetails);
-        System.out.println(transactionDetails);
+        System.out.println("Deposited: " + Money.format(cents));
     }
 
     /**
@@ -53,29 +111,89 @@ public class Account {
      * @param amount The amount to withdraw.
      */
     public void withdraw(double amount) {
-        if (amount <= 0) {
-            System.out.println("Withdrawal amount must be positive.");
-            return;
+        long cents = Money.toCents(amount);
+        switch (tryWithdraw(cents)) {
+            case INVALID_AMOUNT:
+                System.out.println("Withdrawal amount must be positive.");
+                break;
+            case INSUFFICIENT_FUNDS:
+                System.out.println("Insufficient funds. Withdrawal failed.");
+                break;
+            default:
+                System.out.println("Withdrew: " + Money.format(cents));
         }
-        if (amount > this.balance) {
-            System.out.println("Insufficient funds. Withdrawal failed.");
-            return;
+    }
+
+    /**
+     * Deposits an amount in cents, without printing anything. Safe to call from many
+     * threads at once. On a journaled account, returns once the deposit is journaled.
+     * @param cents The amount to deposit.
+     * @return COMPLETED, or INVALID_AMOUNT if the amount is not positive.
+     * @throws UncheckedIOException if the deposit cannot be journaled.
+     */
+    public TransactionStatus tryDeposit(long cents) {
+        if (cents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
         }
-        this.balance -= amount;
-        String transactionDetails = "Withdrew: $" + String.format("%.2f", amount);
-        addTransaction(transactionDetails);
-        System.out.println(transactionDetails);
+        if (journal != null) {
+            return journaled(TransactionType.DEPOSIT, cents);
+        }
+        long after = balance.deposit(cents);
+        transactionHistory.append(TransactionType.DEPOSIT, cents, after);
+        return TransactionStatus.COMPLETED;
     }
 
     /**
-     * Adds a formatted transaction record to the history.
-     * @param details A string describing the transaction.
+     * Withdraws an amount in cents if the balance covers it, without printing
+     * anything. The check and the withdrawal happen as one atomic step, so two
+     * threads can never both withdraw the same money. Safe to call from many threads at once.
+     * On a journaled account, returns once the withdrawal is journaled.
+     * @param cents The amount to withdraw.
+     * @return COMPLETED, INVALID_AMOUNT if the amount is not positive, or
+     *         INSUFFICIENT_FUNDS if the balance does not cover it.
+     * @throws UncheckedIOException if the withdrawal cannot be journaled.
      */
-    private void addTransaction(String details) {
-        // Get current timestamp
-        String timeStamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-        // Add timestamp to the transaction details
-        this.transactionHistory.add("[" + timeStamp + "] " + details);
+    public TransactionStatus tryWithdraw(long cents) {
+        if (cents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+        if (journal != null) {
+            return journaled(TransactionType.WITHDRAWAL, cents);
+        }
+        long after = balance.withdraw(cents);
+        if (after < 0) {
+            return TransactionStatus.INSUFFICIENT_FUNDS;
+        }
+        transactionHistory.append(TransactionType.WITHDRAWAL, cents, after);
+        return TransactionStatus.COMPLETED;
+    }
+
+    private TransactionStatus journaled(TransactionType type, long cents) {
+        try {
+            return journal.apply(type, cents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops the account's journal, if it has one, after journaling every transaction
+     * already submitted. Does nothing for an account kept only in memory.
+     * @throws IOException if the journal failed or cannot be checkpointed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Returns the account's journal.
+     * @return The journal, or null if the account is kept only in memory.
+     */
+    AccountJournal getJournal() {
+        return journal;
     }
 
     /**
@@ -83,18 +201,81 @@ public class Account {
      */
     public void printTransactionHistory() {
         System.out.println("\n--- Transaction History for Account " + this.accountNumber + " ---");
-        for (String transaction : this.transactionHistory) {
-            System.out.println(transaction);
-        }
+        this.transactionHistory.print(System.out, 0, this.transactionHistory.size());
+        System.out.println("-------------------------------------------------");
+    }
+
+    /**
+     * Returns the transactions recorded from one instant up to, but not including, another.
+     * Found by binary search, however long the history.
+     * @param from The first instant to include.
+     * @param to The first instant to leave out.
+     * @return The transactions, in time order.
+     */
+    public HistoryRange getTransactionsBetween(Instant from, Instant to) {
+        return this.transactionHistory.between(from, to);
+    }
+
+    /**
+     * Returns the latest transactions.
+     * @param count How many transactions at most.
+     * @return The last count transactions, or all of them if there are fewer.
+     * @throws IllegalArgumentException if count is negative.
+     */
+    public HistoryRange getRecentTransactions(int count) {
+        return this.transactionHistory.last(count);
+    }
+
+    /**
+     * Returns the statement for a calendar month in this computer's time zone, the
+     * zone the history is printed in.
+     * @param month The month.
+     * @return The statement.
+     */
+    public Statement getStatement(YearMonth month) {
+        return this.transactionHistory.statement(month, ZoneId.systemDefault());
+    }
+
+    /**
+     * Prints the statement for a calendar month.
+     * @param month The month.
+     */
+    public void printStatement(YearMonth month) {
+        System.out.println("\n--- Statement for Account " + this.accountNumber + ", " + month + " ---");
+        getStatement(month).print(System.out);
         System.out.println("-------------------------------------------------");
     }
 
+    /**
+     * Returns the number of entries in the transaction history, account creation included.
+     * @return The number of transactions recorded.
+     */
+    public int getTransactionCount() {
+        return this.transactionHistory.size();
+    }
+
+    /**
+     * Returns the transaction history, to read entries from without formatting them.
+     * @return The account's transaction log.
+     */
+    public TransactionLog getTransactionHistory() {
+        return this.transactionHistory;
+    }
+
     /**
      * Returns the current balance of the account.
-     * @return The current balance.
+     * @return The current balance in dollars.
      */
     public double getBalance() {
-        return this.balance;
+        return this.balance.get() / 100.0;
+    }
+
+    /**
+     * Returns the current balance of the account in cents, exactly.
+     * @return The current balance in cents.
+     */
+    public long getBalanceCents() {
+        return this.balance.get();
     }
 
     /**
@@ -117,6 +298,6 @@ public class Account {
      * Prints the current account balance in a formatted way.
      */
     public void printBalance() {
-        System.out.printf("\nCurrent Balance for %s: $%.2f%n", this.accountHolderName, this.balance);
+        System.out.printf("\nCurrent Balance for %s: %s%n", this.accountHolderName, Money.format(this.balance.get()));
     }
-}
\ No newline at end of file
+}
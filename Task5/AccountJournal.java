@@ -0,0 +1,640 @@
+package Task5;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * AccountJournal.java
+ * Keeps an account's transactions on disk, so an acknowledged deposit or withdrawal
+ * survives a crash. The journal is an append-only binary file: a header naming the
+ * account, then one {@value #RECORD_BYTES}-byte record per transaction holding the
+ * timestamp, the amount, the balance after it, the type and a CRC-32 of the rest.
+ * <p>
+ * Threads put their transactions on a queue. One writer thread takes everything that
+ * has queued up (up to {@value #MAX_BATCH} transactions), checks each withdrawal
+ * against the balance in queue order, writes the batch's records in a single write
+ * through a {@link FileChannel}, forces them as the {@link FsyncPolicy} asks, and only
+ * then applies them to the account's balance and history and acknowledges them. The
+ * writer is the only thread that changes the balance, so the journal holds the
+ * transactions in exactly the order they changed it, and nobody ever sees a balance
+ * that a crash could take back (with NONE, a crash of the machine still can).
+ * <p>
+ * Every {@value #CHECKPOINT_INTERVAL} transactions, and on close, the writer forces
+ * the journal and records how far it is known to be good in a small checkpoint file,
+ * replaced atomically. Reopening replays the journal into the balance and history,
+ * verifying checksums and balances only for records after the checkpoint, and cuts
+ * off a torn or corrupt tail left by a crash. Those transactions were never
+ * acknowledged. If a write or fsync fails, what reached the disk is unknown, so the
+ * journal refuses further transactions; reopen it to recover. A checkpoint file that
+ * cannot be written only makes the next reopen verify more records: the failure is
+ * logged and the checkpoint tried again later.
+ */
+public class AccountJournal implements Closeable {
+    static final int RECORD_BYTES = 32;
+    private static final int MAX_BATCH = 4096;
+    static final int CHECKPOINT_INTERVAL = 1 << 16;
+    // After a failed checkpoint, how many more transactions to journal before trying again.
+    private static final int CHECKPOINT_RETRY = 4096;
+    private static final long MAGIC = 0x4143_4354_4A4E_4C31L; // "ACCTJNL1"
+    private static final long CHECKPOINT_MAGIC = 0x4143_4354_434B_5031L; // "ACCTCKP1"
+    private static final int VERSION = 1;
+    private static final int CHECKPOINT_BYTES = 36;
+    private static final int REPLAY_BUFFER_RECORDS = 1 << 15;
+    private static final Pending STOP = new Pending(null, 0);
+
+    /**
+     * A transaction waiting to be written, and the future its caller waits on.
+     */
+    private static final class Pending {
+        final TransactionType type;
+        final long amount;
+        final CompletableFuture<TransactionStatus> done = new CompletableFuture<>();
+
+        Pending(TransactionType type, long amount) {
+            this.type = type;
+            this.amount = amount;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final String accountNumber;
+    private final String accountHolderName;
+    private final Balance balance;
+    private final TransactionLog history;
+    private final long discardedBytes;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final CRC32 crc = new CRC32(); // Writer thread only.
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile IOException checkpointFailure;
+    // Writer thread only, after open.
+    private long end;
+    private long lastTime;
+    private int sinceCheckpoint;
+
+    private AccountJournal(Path file, FileChannel channel, FsyncPolicy policy, String accountNumber,
+                           String accountHolderName, Balance balance, TransactionLog history, long end,
+                           long discardedBytes) {
+        this.file = file;
+        this.channel = channel;
+        this.policy = policy;
+        this.accountNumber = accountNumber;
+        this.accountHolderName = accountHolderName;
+        this.balance = balance;
+        this.history = history;
+        this.end = end;
+        this.discardedBytes = discardedBytes;
+        this.lastTime = history.getTimeNanos(history.size() - 1);
+        this.writer = new Thread(this::run, "account-journal-" + accountNumber);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens an account's journal, creating it if the file does not exist yet, and
+     * replays it into a balance and history.
+     * @param file The journal file. The checkpoint goes next to it, with ".ckpt" added.
+     * @param accountNumber The account's number; must match the journal's if it exists.
+     * @param accountHolderName The holder's name, used only when creating the journal.
+     * @param initialCents The starting balance, used only when creating the journal.
+     * @param policy When transactions are forced to disk.
+     * @return The journal, with its writer thread running.
+     * @throws IllegalArgumentException if a new account's starting balance is negative.
+     * @throws IOException if the journal cannot be read or created, belongs to another
+     *                     account, or contradicts its checkpoint.
+     */
+    public static AccountJournal open(Path file, String accountNumber, String accountHolderName,
+                                      long initialCents, FsyncPolicy policy) throws IOException {
+        if (!Files.exists(file)) {
+            create(file, accountNumber, accountHolderName, new Balance(initialCents).get());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return replay(file, channel, accountNumber, policy);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".ckpt");
+    }
+
+    /**
+     * Writes a new journal with its header and the opening record under a temporary
+     * name, forces it and renames it into place, so a crash never leaves half a journal.
+     */
+    private static void create(Path file, String accountNumber, String accountHolderName, long initialCents)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeLong(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(0); // The header's length, filled in below.
+        header.writeUTF(accountNumber);
+        header.writeUTF(accountHolderName);
+        header.flush();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.size() + RECORD_BYTES);
+        buffer.put(bytes.toByteArray());
+        buffer.putInt(12, bytes.size());
+        long now = TransactionLog.now();
+        encode(buffer, new CRC32(), TransactionType.OPENED, initialCents, now, initialCents);
+        buffer.flip();
+
+        // A checkpoint left from an earlier journal of the same name would not match this one.
+        Files.deleteIfExists(checkpointFile(file));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file);
+    }
+
+    private static AccountJournal replay(Path file, FileChannel channel, String accountNumber, FsyncPolicy policy)
+            throws IOException {
+        long size = channel.size();
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, 1 << 17));
+        readFully(channel, head, 0);
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(head.array(), 0, head.limit()));
+        String number;
+        String holder;
+        int headerBytes;
+        try {
+            if (header.readLong() != MAGIC || header.readInt() != VERSION) {
+                throw new IOException(file + " is not an account journal.");
+            }
+            headerBytes = header.readInt();
+            if (headerBytes < 16 || headerBytes > size) {
+                throw new IOException(file + " is not an account journal.");
+            }
+            number = header.readUTF();
+            holder = header.readUTF();
+        } catch (EOFException e) {
+            throw new IOException(file + " is not an account journal.", e);
+        }
+        if (!number.equals(accountNumber)) {
+            throw new IOException(file + " is the journal of account " + number + ", not " + accountNumber + ".");
+        }
+
+        // Records up to the checkpoint were forced and checked when it was written.
+        long[] checkpoint = readCheckpoint(checkpointFile(file));
+        long trusted = headerBytes;
+        if (checkpoint != null && checkpoint[0] > headerBytes && checkpoint[0] <= size
+                && (checkpoint[0] - headerBytes) % RECORD_BYTES == 0) {
+            trusted = checkpoint[0];
+        } else {
+            checkpoint = null;
+        }
+
+        TransactionLog history = new TransactionLog();
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_RECORDS * RECORD_BYTES);
+        long position = headerBytes;
+        long last = -1;
+        long lastTime = Long.MIN_VALUE;
+        boolean torn = false;
+        while (!torn && size - position >= RECORD_BYTES) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (size - position) / RECORD_BYTES * RECORD_BYTES));
+            readFully(channel, buffer, position);
+            byte[] records = buffer.array();
+            for (int at = 0; at < buffer.limit(); at += RECORD_BYTES, position += RECORD_BYTES) {
+                if (position == trusted && checkpoint != null
+                        && (history.size() != checkpoint[1] || last != checkpoint[2])) {
+                    throw new IOException(file + " does not match its checkpoint.");
+                }
+                long time = buffer.getLong(at);
+                long amount = buffer.getLong(at + 8);
+                long after = buffer.getLong(at + 16);
+                int type = buffer.get(at + 24);
+                if (position >= trusted) {
+                    crc.reset();
+                    crc.update(records, at, RECORD_BYTES - 4);
+                    if ((int) crc.getValue() != buffer.getInt(at + 28)
+                            || !follows(last, type, amount, after) || time < lastTime) {
+                        torn = true;
+                        break;
+                    }
+                }
+                history.append(TransactionType.of(type), amount, time, after);
+                last = after;
+                lastTime = time;
+            }
+        }
+        if (history.size() == 0) {
+            throw new IOException(file + " has no opening record.");
+        }
+        if (position == trusted && checkpoint != null
+                && (history.size() != checkpoint[1] || last != checkpoint[2])) {
+            throw new IOException(file + " does not match its checkpoint.");
+        }
+        long discarded = size - position;
+        if (discarded > 0) {
+            // A batch that was being written when the process died; none of it was acknowledged.
+            channel.truncate(position);
+            channel.force(false);
+        }
+        return new AccountJournal(file, channel, policy, number, holder, new Balance(last), history, position,
+                discarded);
+    }
+
+    /**
+     * Checks that a record can follow a balance: the opening record comes first and
+     * only first, and every other record moves the balance by its amount.
+     */
+    private static boolean follows(long before, int type, long amount, long after) {
+        if (before < 0) {
+            return type == TransactionType.OPENED.ordinal() && amount == after && after >= 0;
+        }
+        if (amount <= 0) {
+            return false;
+        }
+        if (type == TransactionType.DEPOSIT.ordinal()) {
+            return before + amount == after && after > before;
+        }
+        return type == TransactionType.WITHDRAWAL.ordinal() && before - amount == after && after >= 0;
+    }
+
+    /**
+     * Reads the checkpoint, if there is a valid one.
+     * @return The journal offset it vouches for, the number of records before it and
+     *         the balance there; or null.
+     */
+    private static long[] readCheckpoint(Path checkpointFile) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(checkpointFile);
+        if (bytes.length != CHECKPOINT_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, CHECKPOINT_BYTES - 4);
+        if (buffer.getLong(0) != CHECKPOINT_MAGIC || (int) crc.getValue() != buffer.getInt(CHECKPOINT_BYTES - 4)) {
+            return null;
+        }
+        return new long[] {buffer.getLong(8), buffer.getLong(16), buffer.getLong(24)};
+    }
+
+    private static void encode(ByteBuffer buffer, CRC32 crc, TransactionType type, long amount, long time,
+                               long after) {
+        int start = buffer.position();
+        buffer.putLong(time).putLong(amount).putLong(after).put((byte) type.ordinal()).put((byte) 0).putShort((short) 0);
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, RECORD_BYTES - 4);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("The journal ended early.");
+            }
+        }
+        buffer.flip();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            end += channel.write(buffer, end);
+        }
+    }
+
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getAccountHolderName() {
+        return accountHolderName;
+    }
+
+    /**
+     * Returns the balance the journal keeps; only the journal's writer changes it.
+     * @return The balance.
+     */
+    Balance getBalance() {
+        return balance;
+    }
+
+    /**
+     * Returns the history the journal keeps; only the journal's writer adds to it.
+     * @return The history, replayed from the journal and kept up to date.
+     */
+    TransactionLog getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns how many bytes of torn or corrupt records were cut off the end of the
+     * journal when it was opened.
+     * @return The number of bytes discarded.
+     */
+    long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * Queues a deposit or withdrawal and returns without waiting for it.
+     * @param type DEPOSIT or WITHDRAWAL.
+     * @param cents The amount; must be positive.
+     * @return A future that completes with COMPLETED once the transaction is written
+     *         according to the policy, with INSUFFICIENT_FUNDS if a withdrawal was
+     *         refused (nothing is written), with an ArithmeticException if a deposit
+     *         would overflow the balance, or with the IOException that stopped it.
+     * @throws IllegalArgumentException if the type or amount is not valid.
+     * @throws IllegalStateException if the journal is closed.
+     */
+    public CompletableFuture<TransactionStatus> submit(TransactionType type, long cents) {
+        if (type == TransactionType.OPENED || cents <= 0) {
+            throw new IllegalArgumentException("Only positive deposits and withdrawals can be journaled.");
+        }
+        Pending pending = new Pending(type, cents);
+        if (closed) {
+            throw new IllegalStateException("The account journal is closed.");
+        }
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            // Closed meanwhile and the writer thread never saw this transaction.
+            throw new IllegalStateException("The account journal is closed.");
+        }
+        return pending.done;
+    }
+
+    /**
+     * Deposits or withdraws and waits until the transaction is written according to the policy.
+     * @param type DEPOSIT or WITHDRAWAL.
+     * @param cents The amount; must be positive.
+     * @return COMPLETED, or INSUFFICIENT_FUNDS if a withdrawal was refused.
+     * @throws ArithmeticException if a deposit would overflow the balance.
+     * @throws IOException if the transaction cannot be written, or the wait is interrupted.
+     */
+    public TransactionStatus apply(TransactionType type, long cents) throws IOException {
+        try {
+            return submit(type, cents).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a transaction to be journaled.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof ArithmeticException) {
+                throw new ArithmeticException(e.getCause().getMessage());
+            }
+            throw new IOException("The transaction could not be journaled.", e.getCause());
+        }
+    }
+
+    /**
+     * Journals every transaction submitted so far, writes a checkpoint and closes the
+     * file. A checkpoint that cannot be written is logged; the next open just verifies
+     * more of the journal.
+     * @throws IOException if the journal failed or cannot be forced.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(STOP);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (failure == null) {
+                tryCheckpoint();
+            }
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_BATCH * RECORD_BYTES);
+        TransactionStatus[] statuses = new TransactionStatus[MAX_BATCH];
+        long[] times = new long[MAX_BATCH];
+        long[] afters = new long[MAX_BATCH];
+        boolean stopping = false;
+        while (true) {
+            if (stopping) {
+                // Transactions queued just before close; stop once none are left.
+                if (queue.drainTo(batch, MAX_BATCH) == 0) {
+                    return;
+                }
+            } else {
+                batch.add(take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                stopping = batch.remove(STOP);
+            }
+            if (failure != null) {
+                for (Pending pending : batch) {
+                    pending.done.completeExceptionally(
+                            new IOException("The account journal failed earlier; reopen it to recover.", failure));
+                }
+                batch.clear();
+                continue;
+            }
+
+            // Decide every transaction in queue order against the balance as it will be.
+            long current = balance.get();
+            long time = lastTime;
+            int written = 0;
+            buffer.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                if (pending.type == TransactionType.WITHDRAWAL && current < pending.amount) {
+                    statuses[i] = TransactionStatus.INSUFFICIENT_FUNDS;
+                    continue;
+                }
+                long after = pending.type == TransactionType.DEPOSIT
+                        ? current + pending.amount : current - pending.amount;
+                if (after < 0) { // A deposit that would overflow the balance.
+                    statuses[i] = null;
+                    continue;
+                }
+                time = Math.max(time, TransactionLog.now());
+                encode(buffer, crc, pending.type, pending.amount, time, after);
+                statuses[i] = TransactionStatus.COMPLETED;
+                times[i] = time;
+                afters[i] = after;
+                current = after;
+                written++;
+            }
+
+            try {
+                buffer.flip();
+                if (policy == FsyncPolicy.PER_TRANSACTION) {
+                    for (int at = 0; at < buffer.limit(); at += RECORD_BYTES) {
+                        buffer.limit(at + RECORD_BYTES).position(at);
+                        writeFully(buffer);
+                        channel.force(false);
+                        buffer.limit(written * RECORD_BYTES);
+                    }
+                } else {
+                    writeFully(buffer);
+                    if (policy == FsyncPolicy.PER_BATCH && written > 0) {
+                        channel.force(false);
+                    }
+                }
+                lastTime = time;
+                // Durable as the policy asks: now the balance and history may show it.
+                for (int i = 0; i < batch.size(); i++) {
+                    Pending pending = batch.get(i);
+                    if (statuses[i] == TransactionStatus.COMPLETED) {
+                        if (pending.type == TransactionType.DEPOSIT) {
+                            balance.deposit(pending.amount);
+                        } else {
+                            balance.withdraw(pending.amount);
+                        }
+                        history.append(pending.type, pending.amount, times[i], afters[i]);
+                    }
+                }
+                sinceCheckpoint += written;
+                for (int i = 0; i < batch.size(); i++) {
+                    if (statuses[i] == null) {
+                        batch.get(i).done.completeExceptionally(new ArithmeticException("The balance would overflow."));
+                    } else {
+                        batch.get(i).done.complete(statuses[i]);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e instanceof IOException ? (IOException) e
+                        : new IOException("The account journal could not be written.", e);
+                for (Pending pending : batch) {
+                    pending.done.completeExceptionally(failure);
+                }
+            }
+            batch.clear();
+            // After the batch is acknowledged, so a failed checkpoint is never reported against it.
+            if (failure == null && sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                tryCheckpoint();
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint, if the journal can still be forced. A journal that cannot be
+     * forced has failed like any other write. A checkpoint file that cannot be written
+     * is logged and tried again after {@value #CHECKPOINT_RETRY} more transactions.
+     */
+    private void tryCheckpoint() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Account journal " + file + " could not be forced: " + e.getMessage());
+            return;
+        }
+        try {
+            checkpoint();
+            checkpointFailure = null;
+        } catch (IOException e) {
+            checkpointFailure = e;
+            sinceCheckpoint = CHECKPOINT_INTERVAL - CHECKPOINT_RETRY;
+            System.err.println("Checkpoint of account journal " + file + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns why the last checkpoint could not be written.
+     * @return The error, or null if the last checkpoint succeeded or none has been tried.
+     */
+    IOException getCheckpointFailure() {
+        return checkpointFailure;
+    }
+
+    /**
+     * Records that everything written and forced so far is good. The new
+     * checkpoint is written under a temporary name and renamed over the old one, so a
+     * crash leaves one or the other.
+     */
+    private void checkpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_BYTES);
+        buffer.putLong(CHECKPOINT_MAGIC).putLong(end).putLong(history.size()).putLong(balance.get());
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, CHECKPOINT_BYTES - 4);
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        Path target = checkpointFile(file);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(target);
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * Forces a rename to disk by forcing the directory it happened in. Not every
+     * platform can open a directory; there the rename is left to the file system.
+     */
+    private static void forceDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows, for one, cannot open a directory as a file.
+        }
+    }
+
+    private Pending take() {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // Only close() stops the writer thread.
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package Task5;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AccountStressTest.java
+ * Checks that an account's books balance under concurrent deposits and withdrawals.
+ * <ul>
+ *   <li>Mixed: threads deposit and withdraw random amounts and keep their own tally of
+ *   what went through. The final balance must equal the starting balance plus every
+ *   tallied deposit minus every tallied withdrawal, the balance must never be seen
+ *   below zero, and every transaction must be in the history, which must add up to
+ *   the final balance with its timestamps in order.</li>
+ *   <li>Drain: threads withdraw one cent at a time until the account is empty. They
+ *   must get exactly the starting balance between them, not a cent more.</li>
+ * </ul>
+ * For comparison, the mixed run is repeated on a plain double balance updated with
+ * += and -=, as the account used to be, and the money it lost is reported.
+ * Usage: java Task5.AccountStressTest [threads] [operationsPerThread]
+ * Exits with status 1 if any check fails.
+ */
+public class AccountStressTest {
+    private static final long INITIAL_CENTS = 1_000_000;
+    private static final int MAX_AMOUNT_CENTS = 10_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        long violations = mixed(threads, operations) + drain(threads, (long) threads * operations / 4);
+        racyDouble(threads, operations);
+
+        if (violations != 0) {
+            System.out.println("FAILED: the books do not balance.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: every cent is accounted for.");
+    }
+
+    private static long mixed(int threads, int operations) throws InterruptedException {
+        Account account = Account.withCents("1", "Stress Test", INITIAL_CENTS);
+        long[] deposited = new long[threads];
+        long[] withdrawn = new long[threads];
+        long[] completed = new long[threads];
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong lowest = new AtomicLong(Long.MAX_VALUE);
+        Thread watcher = new Thread(() -> {
+            while (running.get()) {
+                long balance = account.getBalanceCents();
+                if (balance < lowest.get()) {
+                    lowest.set(balance);
+                }
+            }
+        });
+        long elapsed = run(threads, watcher, running, t -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                long amount = 1 + random.nextInt(MAX_AMOUNT_CENTS);
+                // Withdraw a little more often than deposit, so withdrawals keep running into an empty account.
+                if (random.nextInt(100) < 45) {
+                    if (account.tryDeposit(amount) == TransactionStatus.COMPLETED) {
+                        deposited[t] += amount;
+                        completed[t]++;
+                    }
+                } else if (account.tryWithdraw(amount) == TransactionStatus.COMPLETED) {
+                    withdrawn[t] += amount;
+                    completed[t]++;
+                }
+            }
+        });
+
+        long expected = INITIAL_CENTS;
+        long transactions = 1; // Account creation.
+        for (int t = 0; t < threads; t++) {
+            expected += deposited[t] - withdrawn[t];
+            transactions += completed[t];
+        }
+        long violations = 0;
+        if (account.getBalanceCents() != expected) {
+            violations++;
+        }
+        if (lowest.get() < 0) {
+            violations++;
+        }
+        if (account.getTransactionCount() != transactions) {
+            violations++;
+        }
+        // The history on its own must add up to the balance, in time order.
+        TransactionLog history = account.getTransactionHistory();
+        long fromHistory = history.getAmount(0);
+        for (int i = 1; i < history.size(); i++) {
+            long amount = history.getAmount(i);
+            fromHistory += history.getType(i) == TransactionType.DEPOSIT ? amount : -amount;
+            if (history.getTimeNanos(i) < history.getTimeNanos(i - 1) || history.getBalanceAfter(i) < 0) {
+                violations++;
+            }
+        }
+        if (fromHistory != account.getBalanceCents()) {
+            violations++;
+        }
+        System.out.printf("Mixed: %d threads x %,d operations in %.2f s: %,d completed, balance %s, expected %s, "
+                + "lowest seen %s, %d violations%n", threads, operations, elapsed / 1e9, transactions - 1,
+                Money.format(account.getBalanceCents()), Money.format(expected), Money.format(lowest.get()),
+                violations);
+        return violations;
+    }
+
+    private static long drain(int threads, long cents) throws InterruptedException {
+        Account account = Account.withCents("2", "Stress Test", cents);
+        long[] taken = new long[threads];
+        long elapsed = run(threads, null, null, t -> {
+            while (account.tryWithdraw(1) == TransactionStatus.COMPLETED) {
+                taken[t]++;
+            }
+        });
+        long total = 0;
+        for (long thread : taken) {
+            total += thread;
+        }
+        long violations = total != cents || account.getBalanceCents() != 0 ? 1 : 0;
+        System.out.printf("Drain: %d threads withdrew %,d of %,d cents one at a time in %.2f s, balance left %s, "
+                + "%d violations%n", threads, total, cents, elapsed / 1e9, Money.format(account.getBalanceCents()),
+                violations);
+        return violations;
+    }
+
+    /**
+     * The old way: an unsynchronized double with += and -=. Reported, not checked.
+     */
+    private static void racyDouble(int threads, int operations) throws InterruptedException {
+        double[] balance = {INITIAL_CENTS / 100.0};
+        long[] net = new long[threads];
+        run(threads, null, null, t -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                long amount = 1 + random.nextInt(MAX_AMOUNT_CENTS);
+                if (random.nextInt(100) < 45) {
+                    balance[0] += amount / 100.0;
+                    net[t] += amount;
+                } else if (amount / 100.0 <= balance[0]) {
+                    balance[0] -= amount / 100.0;
+                    net[t] -= amount;
+                }
+            }
+        });
+        long expected = INITIAL_CENTS;
+        for (long thread : net) {
+            expected += thread;
+        }
+        System.out.printf("For comparison, a double balance updated with += and -=: ended at $%.2f, expected %s%n",
+                balance[0], Money.format(expected));
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static long run(int threads, Thread watcher, AtomicBoolean running, Worker worker)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                worker.run(thread);
+            });
+            workers[t].start();
+        }
+        if (watcher != null) {
+            watcher.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        if (watcher != null) {
+            running.set(false);
+            watcher.join();
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,82 @@
+package Task5;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balance.java
+ * An account balance in cents that any number of threads can change at once without
+ * locks. A withdrawal reads the balance, checks it covers the amount and swaps in the
+ * new balance in one compare-and-set, retrying if another thread changed the balance
+ * in between, so no update is lost and the balance can never go below zero.
+ * Cents are whole numbers, so sums are exact, unlike adding up doubles.
+ */
+public class Balance {
+    private final AtomicLong cents;
+
+    /**
+     * Constructor to create a balance.
+     * @param initialCents The starting balance in cents.
+     * @throws IllegalArgumentException if the starting balance is negative.
+     */
+    public Balance(long initialCents) {
+        if (initialCents < 0) {
+            throw new IllegalArgumentException("A balance cannot start below zero.");
+        }
+        this.cents = new AtomicLong(initialCents);
+    }
+
+    /**
+     * Returns the balance.
+     * @return The balance in cents.
+     */
+    public long get() {
+        return cents.get();
+    }
+
+    /**
+     * Adds an amount to the balance.
+     * @param amount The amount in cents; must be positive.
+     * @return The balance just after this deposit.
+     * @throws IllegalArgumentException if the amount is not positive.
+     * @throws ArithmeticException if the balance would overflow.
+     */
+    public long deposit(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Deposit amount must be positive.");
+        }
+        while (true) {
+            long current = cents.get();
+            long next = Math.addExact(current, amount);
+            if (cents.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Takes an amount from the balance if the balance covers it.
+     * @param amount The amount in cents; must be positive.
+     * @return The balance just after this withdrawal, or -1 if the funds were insufficient
+     *         and the balance was left alone.
+     * @throws IllegalArgumentException if the amount is not positive.
+     */
+    public long withdraw(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive.");
+        }
+        while (true) {
+            long current = cents.get();
+            if (current < amount) {
+                return -1;
+            }
+            if (cents.compareAndSet(current, current - amount)) {
+                return current - amount;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Money.format(get());
+    }
+}
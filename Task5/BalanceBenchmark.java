@@ -0,0 +1,119 @@
+package Task5;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BalanceBenchmark.java
+ * Measures deposit and withdrawal throughput on one shared balance at increasing
+ * thread counts, comparing the lock-free {@link Balance} against the same cents
+ * balance guarded by synchronized methods. Every thread hammers the same balance,
+ * which is the worst case for both.
+ * Usage: java Task5.BalanceBenchmark [secondsPerRun] [maxThreads]
+ */
+public class BalanceBenchmark {
+    private static final long INITIAL_CENTS = 1_000_000_000L;
+
+    /**
+     * The baseline: the same checks, under the balance's monitor.
+     */
+    private static final class SynchronizedBalance {
+        private long cents = INITIAL_CENTS;
+
+        synchronized long deposit(long amount) {
+            cents = Math.addExact(cents, amount);
+            return cents;
+        }
+
+        synchronized long withdraw(long amount) {
+            if (cents < amount) {
+                return -1;
+            }
+            cents -= amount;
+            return cents;
+        }
+    }
+
+    private interface Operations {
+        void deposit(long amount);
+
+        void withdraw(long amount);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        System.out.println("--- Balance throughput on one shared account (operations/s) ---");
+        System.out.printf("%-8s %16s %16s%n", "Threads", "Synchronized", "Lock-free");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            SynchronizedBalance locked = new SynchronizedBalance();
+            long synced = run(threads, seconds, new Operations() {
+                @Override
+                public void deposit(long amount) {
+                    locked.deposit(amount);
+                }
+
+                @Override
+                public void withdraw(long amount) {
+                    locked.withdraw(amount);
+                }
+            });
+            Balance balance = new Balance(INITIAL_CENTS);
+            long lockFree = run(threads, seconds, new Operations() {
+                @Override
+                public void deposit(long amount) {
+                    balance.deposit(amount);
+                }
+
+                @Override
+                public void withdraw(long amount) {
+                    balance.withdraw(amount);
+                }
+            });
+            System.out.printf("%-8d %,16d %,16d%n", threads, synced / seconds, lockFree / seconds);
+        }
+    }
+
+    private static long run(int threads, int seconds, Operations operations) throws InterruptedException {
+        AtomicLong completed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long warmup = System.nanoTime() + 200_000_000L;
+        long deadline = warmup + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    for (int i = 0; i < 64; i++) {
+                        long amount = 1 + random.nextInt(10_000);
+                        if ((i & 1) == 0) {
+                            operations.deposit(amount);
+                        } else {
+                            operations.withdraw(amount);
+                        }
+                    }
+                    if (now >= warmup) {
+                        done += 64;
+                    }
+                }
+                completed.addAndGet(done);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.get();
+    }
+}
@@ -0,0 +1,14 @@
+package Task5;
+
+/**
+ * FsyncPolicy.java
+ * How hard an {@link AccountJournal} pushes transactions to disk before it acknowledges them.
+ */
+public enum FsyncPolicy {
+    /** Transactions are handed to the operating system in batches but never forced to disk. */
+    NONE,
+    /** Each batch of transactions is written and then forced to disk with one fsync (group commit). */
+    PER_BATCH,
+    /** Every transaction is written and forced to disk on its own. */
+    PER_TRANSACTION
+}
@@ -0,0 +1,168 @@
+package Task5;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * HistoryBenchmark.java
+ * Measures what recording a transaction costs: time, bytes allocated per operation,
+ * garbage collections, and heap kept per history entry. It compares the old history,
+ * which formatted every transaction into a timestamped String in an ArrayList as it
+ * happened, with the {@link TransactionLog} that {@link Account} now uses.
+ * Both sides run the same alternating deposits and withdrawals on a lock-free
+ * {@link Balance}. Allocation is read from the JVM's per-thread allocation counter,
+ * which HotSpot-based JVMs provide.
+ * Usage: java Task5.HistoryBenchmark [operations] [rounds]
+ */
+public class HistoryBenchmark {
+    private interface Recorder {
+        void deposit(long cents);
+
+        void withdraw(long cents);
+
+        int size();
+    }
+
+    /**
+     * The old Account.addTransaction, over a lock-free balance.
+     */
+    private static final class StringHistory implements Recorder {
+        final Balance balance = new Balance(1_000_000);
+        final List<String> transactionHistory = new ArrayList<>();
+
+        @Override
+        public void deposit(long cents) {
+            balance.deposit(cents);
+            addTransaction("Deposited: $" + String.format("%.2f", cents / 100.0));
+        }
+
+        @Override
+        public void withdraw(long cents) {
+            if (balance.withdraw(cents) >= 0) {
+                addTransaction("Withdrew: $" + String.format("%.2f", cents / 100.0));
+            }
+        }
+
+        private void addTransaction(String details) {
+            String timeStamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+            this.transactionHistory.add("[" + timeStamp + "] " + details);
+        }
+
+        @Override
+        public int size() {
+            return transactionHistory.size();
+        }
+    }
+
+    /**
+     * The account as it is now.
+     */
+    private static final class LogHistory implements Recorder {
+        final Account account = Account.withCents("1", "Benchmark", 1_000_000);
+
+        @Override
+        public void deposit(long cents) {
+            account.tryDeposit(cents);
+        }
+
+        @Override
+        public void withdraw(long cents) {
+            account.tryWithdraw(cents);
+        }
+
+        @Override
+        public int size() {
+            return account.getTransactionCount();
+        }
+    }
+
+    private interface Factory {
+        Recorder create();
+    }
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.printf("--- Recording %,d transactions, best of %d rounds ---%n", operations, rounds);
+        System.out.printf("%-16s %10s %14s %8s %10s %14s%n",
+                "History", "ns/op", "Alloc B/op", "GCs", "GC ms", "Kept B/entry");
+        run("String history", operations, rounds, StringHistory::new);
+        run("TransactionLog", operations, rounds, LogHistory::new);
+    }
+
+    private static void run(String label, int operations, int rounds, Factory factory) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double bestNanos = Double.MAX_VALUE;
+        double allocated = 0;
+        long collections = 0;
+        long collectionMillis = 0;
+        double kept = 0;
+        for (int round = 0; round < rounds; round++) {
+            long heapBefore = usedHeap();
+            long gcsBefore = collections();
+            long gcMillisBefore = collectionMillis();
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long began = System.nanoTime();
+            Recorder recorder = factory.create();
+            for (int i = 0; i < operations; i++) {
+                long cents = 1 + (i * 7919L) % 10_000;
+                if ((i & 1) == 0) {
+                    recorder.deposit(cents);
+                } else {
+                    recorder.withdraw(cents);
+                }
+            }
+            long elapsed = System.nanoTime() - began;
+            long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            long gcs = collections() - gcsBefore;
+            long gcMillis = collectionMillis() - gcMillisBefore;
+            long heapAfter = usedHeap();
+            if (elapsed / (double) operations < bestNanos) {
+                bestNanos = elapsed / (double) operations;
+                allocated = bytes / (double) operations;
+                collections = gcs;
+                collectionMillis = gcMillis;
+                kept = (heapAfter - heapBefore) / (double) recorder.size();
+            }
+            if (recorder.size() == 0) {
+                throw new IllegalStateException("Nothing was recorded.");
+            }
+        }
+        System.out.printf("%-16s %10.1f %14.1f %8d %10d %14.1f%n",
+                label, bestNanos, allocated, collections, collectionMillis, kept);
+    }
+
+    /**
+     * The heap in use after a full collection, so only live objects count.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(collector.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(collector.getCollectionTime(), 0);
+        }
+        return total;
+    }
+}
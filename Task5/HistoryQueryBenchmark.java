@@ -0,0 +1,194 @@
+package Task5;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+/**
+ * HistoryQueryBenchmark.java
+ * Times queries on a long transaction history: the entries in a day, a monthly
+ * statement and the totals over the whole history. Each is answered by the
+ * {@link TransactionLog}'s binary search and per-chunk totals, and by a plain scan of
+ * every entry for comparison, and the two answers must agree.
+ * Entries are a few seconds apart, so twenty million cover about two years.
+ * Usage: java Task5.HistoryQueryBenchmark [entries] [queries]
+ */
+public class HistoryQueryBenchmark {
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static volatile long sink; // Keeps the timed answers from being optimized away.
+    private static final long START_NANOS = TransactionLog.toNanos(Instant.parse("2024-01-01T00:00:00Z"));
+
+    private interface Query {
+        long run(Random random);
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        long began = System.nanoTime();
+        TransactionLog log = build(entries);
+        long last = log.getTimeNanos(log.size() - 1);
+        System.out.printf("--- %,d entries from %s to %s, built in %.1f s ---%n", entries,
+                Instant.ofEpochSecond(0, START_NANOS), Instant.ofEpochSecond(0, last),
+                (System.nanoTime() - began) / 1e9);
+        checkRanges(log, new Random(1));
+
+        long days = (last - START_NANOS) / 86_400_000_000_000L;
+        YearMonth first = YearMonth.from(Instant.ofEpochSecond(0, START_NANOS).atZone(ZONE));
+        int months = (int) (days / 31);
+
+        System.out.printf("%-26s %14s %14s%n", "Query", "Indexed us", "Scan us");
+        compare("entries in one day", queries, random -> {
+            Instant from = Instant.ofEpochSecond(0, START_NANOS + random.nextInt((int) days) * 86_400_000_000_000L);
+            HistoryRange day = log.between(from, from.plusSeconds(86_400));
+            return day.getFrom() * 31L + day.getTo();
+        }, random -> {
+            long from = START_NANOS + random.nextInt((int) days) * 86_400_000_000_000L;
+            long to = from + 86_400_000_000_000L;
+            int start = log.size();
+            int end = log.size();
+            for (int i = 0; i < log.size(); i++) {
+                long time = log.getTimeNanos(i);
+                if (time >= from && start == log.size()) {
+                    start = i;
+                }
+                if (time >= to) {
+                    end = i;
+                    break;
+                }
+            }
+            return start * 31L + Math.max(start, end);
+        });
+        compare("monthly statement", queries, random -> {
+            Statement statement = log.statement(first.plusMonths(random.nextInt(months)), ZONE);
+            return statement.getOpeningCents() * 31 + statement.getClosingCents()
+                    + statement.getEntries().getTotal(TransactionType.DEPOSIT);
+        }, random -> {
+            YearMonth month = first.plusMonths(random.nextInt(months));
+            long from = TransactionLog.toNanos(month.atDay(1).atStartOfDay(ZONE).toInstant());
+            long to = TransactionLog.toNanos(month.plusMonths(1).atDay(1).atStartOfDay(ZONE).toInstant());
+            long opening = 0;
+            long closing = 0;
+            long deposits = 0;
+            for (int i = 0; i < log.size(); i++) {
+                long time = log.getTimeNanos(i);
+                if (time >= to) {
+                    break;
+                }
+                long amount = log.getAmount(i);
+                TransactionType type = log.getType(i);
+                long change = type == TransactionType.WITHDRAWAL ? -amount : amount;
+                if (time < from) {
+                    opening += change;
+                } else if (type == TransactionType.DEPOSIT) {
+                    deposits += amount;
+                }
+                closing += change;
+            }
+            return opening * 31 + closing + deposits;
+        });
+        compare("totals, whole history", queries, random -> {
+            HistoryRange all = log.range(0, log.size());
+            return all.getTotal(TransactionType.DEPOSIT) * 31 + all.getCount(TransactionType.WITHDRAWAL);
+        }, random -> {
+            long deposits = 0;
+            long withdrawals = 0;
+            for (int i = 0; i < log.size(); i++) {
+                TransactionType type = log.getType(i);
+                if (type == TransactionType.DEPOSIT) {
+                    deposits += log.getAmount(i);
+                } else if (type == TransactionType.WITHDRAWAL) {
+                    withdrawals++;
+                }
+            }
+            return deposits * 31 + withdrawals;
+        });
+    }
+
+    private static TransactionLog build(int entries) {
+        TransactionLog log = new TransactionLog();
+        Random random = new Random(42);
+        long balance = 100_000;
+        long time = START_NANOS;
+        log.append(TransactionType.OPENED, balance, time, balance);
+        for (int i = 1; i < entries; i++) {
+            time += random.nextInt(6_000) * 1_000_000L; // 0 to 6 s apart, sometimes equal.
+            long amount = 1 + random.nextInt(10_000);
+            if (random.nextInt(100) < 52 || balance < amount) {
+                balance += amount;
+                log.append(TransactionType.DEPOSIT, amount, time, balance);
+            } else {
+                balance -= amount;
+                log.append(TransactionType.WITHDRAWAL, amount, time, balance);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Checks counts and totals over random runs, including ones that start and end
+     * inside chunks and ones that span several, against adding up entry by entry.
+     */
+    private static void checkRanges(TransactionLog log, Random random) {
+        for (int check = 0; check < 2_000; check++) {
+            int length = random.nextInt(Math.min(check % 2 == 0 ? 20_000 : 3 * TransactionLog.CHUNK_SIZE,
+                    log.size()));
+            int from = random.nextInt(log.size() - length);
+            HistoryRange range = log.range(from, from + length);
+            for (TransactionType type : TransactionType.values()) {
+                long total = 0;
+                int count = 0;
+                for (int i = from; i < from + length; i++) {
+                    if (log.getType(i) == type) {
+                        total += log.getAmount(i);
+                        count++;
+                    }
+                }
+                if (range.getTotal(type) != total || range.getCount(type) != count) {
+                    throw new IllegalStateException("Wrong " + type + " totals for entries " + from + " to "
+                            + (from + length) + ".");
+                }
+            }
+        }
+        for (int check = 0; check < 2_000; check++) {
+            long time = START_NANOS + (long) (random.nextDouble() * (log.getTimeNanos(log.size() - 1) - START_NANOS));
+            int index = log.firstAtOrAfter(time);
+            if ((index < log.size() && log.getTimeNanos(index) < time)
+                    || (index > 0 && log.getTimeNanos(index - 1) >= time)) {
+                throw new IllegalStateException("Binary search missed " + time + ".");
+            }
+        }
+    }
+
+    private static void compare(String label, int queries, Query indexed, Query scan) {
+        long indexedNanos = time(indexed, Math.max(queries, 1_000));
+        long scanNanos = time(scan, queries);
+        // Same seeds, same questions: the answers must match.
+        for (int seed = 0; seed < queries; seed++) {
+            if (indexed.run(new Random(seed)) != scan.run(new Random(seed))) {
+                throw new IllegalStateException(label + ": the indexed answer differs from the scan.");
+            }
+        }
+        System.out.printf("%-26s %14.1f %14.1f%n", label, indexedNanos / 1e3, scanNanos / 1e3);
+    }
+
+    /**
+     * Average nanoseconds per query, after one untimed pass to warm up.
+     */
+    private static long time(Query query, int queries) {
+        long answers = 0;
+        for (int i = 0; i < queries; i++) {
+            answers += query.run(new Random(i));
+        }
+        long began = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            answers += query.run(new Random(i));
+        }
+        long elapsed = System.nanoTime() - began;
+        sink = answers;
+        return elapsed / queries;
+    }
+}
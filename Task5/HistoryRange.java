@@ -0,0 +1,75 @@
+package Task5;
+
+import java.io.PrintStream;
+
+/**
+ * HistoryRange.java
+ * A run of consecutive entries in a {@link TransactionLog}, such as the entries
+ * between two instants or the last few. A range is a view: it holds two indexes, not
+ * copies of the entries, so finding one is as cheap as the search that found it.
+ */
+public final class HistoryRange {
+    private final TransactionLog log;
+    private final int from;
+    private final int to;
+
+    HistoryRange(TransactionLog log, int from, int to) {
+        this.log = log;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the log index of the first entry in the range.
+     * @return The index.
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the log index just after the last entry in the range.
+     * @return The index.
+     */
+    public int getTo() {
+        return to;
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    public TransactionLog getLog() {
+        return log;
+    }
+
+    /**
+     * Returns how many entries of a type are in the range.
+     * @param type The type.
+     * @return The number of entries.
+     */
+    public int getCount(TransactionType type) {
+        return log.count(type, from, to);
+    }
+
+    /**
+     * Returns the total amount of the entries of a type in the range.
+     * @param type The type.
+     * @return The total in cents.
+     */
+    public long getTotal(TransactionType type) {
+        return log.total(type, from, to);
+    }
+
+    /**
+     * Prints the entries, one per line, as the history is printed.
+     * @param out Where to print.
+     */
+    public void print(PrintStream out) {
+        log.print(out, from, to);
+    }
+}
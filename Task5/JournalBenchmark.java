@@ -0,0 +1,164 @@
+package Task5;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JournalBenchmark.java
+ * Measures how many deposits and withdrawals a journaled {@link Account} acknowledges
+ * per second under each {@link FsyncPolicy}, against an account kept only in memory,
+ * with one thread and with many. Every thread waits for each transaction before
+ * starting the next, so more threads means bigger batches. Reports throughput and
+ * the latency of a single transaction, and checks the journal replays to the same
+ * balance. Then times reopening a long journal, with its checkpoint and without.
+ * Usage: java Task5.JournalBenchmark [transactionsPerThread] [threads] [replayTransactions]
+ */
+public class JournalBenchmark {
+    private interface Setup {
+        Account open(Path file) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int replayTransactions = args.length > 2 ? Integer.parseInt(args[2]) : 2_000_000;
+
+        System.out.printf("--- Acknowledged transactions: %,d per thread ---%n", perThread);
+        System.out.printf("%-26s %8s %12s %10s %10s %10s%n", "Account", "Threads", "Tx/s", "p50 us", "p99 us",
+                "Max ms");
+        int[] threadCounts = maxThreads == 1 ? new int[] {1} : new int[] {1, maxThreads};
+        for (int threads : threadCounts) {
+            run("in memory", threads, perThread, file -> Account.withCents("1", "Benchmark", 1_000_000));
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                run("journaled " + policy, threads, perThread,
+                        file -> Account.open(file, "1", "Benchmark", 1_000_000, policy));
+            }
+        }
+        replay(replayTransactions);
+    }
+
+    private static void run(String label, int threads, int perThread, Setup setup) throws Exception {
+        Path directory = Files.createTempDirectory("account-journal-bench");
+        Path file = directory.resolve("account.journal");
+        long[][] latencies = new long[threads][perThread];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long elapsed;
+        long balance;
+        try (Account account = setup.open(file)) {
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            long amount = 1 + (i * 7919L + worker) % 10_000;
+                            long began = System.nanoTime();
+                            if ((i & 1) == 0) {
+                                account.tryDeposit(amount);
+                            } else {
+                                account.tryWithdraw(amount);
+                            }
+                            latencies[worker][i] = System.nanoTime() - began;
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                workers[t].start();
+            }
+            long began = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            elapsed = System.nanoTime() - began;
+            balance = account.getBalanceCents();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException(label + " failed.", failure.get());
+        }
+        if (Files.exists(file)) {
+            try (Account check = Account.open(file, "1", "Benchmark", 0, FsyncPolicy.NONE)) {
+                if (check.getBalanceCents() != balance) {
+                    throw new IllegalStateException(label + " replayed to " + check.getBalanceCents()
+                            + " cents instead of " + balance + ".");
+                }
+            }
+        }
+        delete(directory);
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        System.out.printf("%-26s %8d %12.0f %10.1f %10.1f %10.2f%n", label, threads,
+                all.length / (elapsed / 1e9), all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3,
+                all[all.length - 1] / 1e6);
+    }
+
+    /**
+     * Writes a long journal quickly, from many threads without forcing, then reopens it
+     * with its checkpoint and again after deleting the checkpoint, so every record's
+     * checksum and balance is verified.
+     */
+    private static void replay(int transactions) throws Exception {
+        Path directory = Files.createTempDirectory("account-journal-replay");
+        Path file = directory.resolve("account.journal");
+        int threads = 64;
+        try (Account account = Account.open(file, "1", "Benchmark", 1_000_000, FsyncPolicy.NONE)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < transactions / threads; i++) {
+                        if ((i & 1) == 0) {
+                            account.tryDeposit(1 + i % 10_000);
+                        } else {
+                            account.tryWithdraw(1 + i % 10_000);
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        System.out.printf("--- Reopening a journal of %,d transactions (%,d bytes) ---%n", transactions,
+                Files.size(file));
+        for (int round = 0; round < 3; round++) {
+            long withCheckpoint = reopen(file);
+            Path checkpoint = AccountJournal.checkpointFile(file);
+            byte[] saved = Files.readAllBytes(checkpoint);
+            Files.delete(checkpoint);
+            long withoutCheckpoint = reopen(file);
+            Files.write(checkpoint, saved);
+            if (round == 2) {
+                System.out.printf("%-26s %10.1f ms%n", "with checkpoint", withCheckpoint / 1e6);
+                System.out.printf("%-26s %10.1f ms%n", "verifying every record", withoutCheckpoint / 1e6);
+            }
+        }
+        delete(directory);
+    }
+
+    private static long reopen(Path file) throws IOException {
+        long began = System.nanoTime();
+        Account account = Account.open(file, "1", "Benchmark", 0, FsyncPolicy.NONE);
+        long elapsed = System.nanoTime() - began;
+        // Closing writes a fresh checkpoint; the copy saved by the caller is put back after.
+        account.close();
+        return elapsed;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve("account.journal"));
+        Files.deleteIfExists(AccountJournal.checkpointFile(directory.resolve("account.journal")));
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,170 @@
+package Task5;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JournalCrashTest.java
+ * Kills a process while it is journaling transactions and checks that reopening the
+ * account loses nothing that was acknowledged. Each round starts a child JVM in which
+ * many threads deposit into and withdraw from one journaled account. Every amount is
+ * unique to its thread and step, and the child prints it once the transaction is
+ * acknowledged. The parent kills the child with SIGKILL partway through a stream of
+ * batches, then appends a few random bytes to the journal, as a write cut short would
+ * leave. It then reopens the account and checks that:
+ * <ul>
+ *   <li>every acknowledged transaction is in the history;</li>
+ *   <li>the history adds up to the balance, which is never negative;</li>
+ *   <li>the account takes new transactions, and they survive another reopen.</li>
+ * </ul>
+ * A killed process loses nothing the operating system has accepted, so the check
+ * holds under every policy; surviving the machine losing power needs PER_BATCH or
+ * PER_TRANSACTION, which a process kill cannot show.
+ * Usage: java Task5.JournalCrashTest [rounds] [policy]
+ * Exits with status 1 if any check fails.
+ */
+public class JournalCrashTest {
+    private static final int CHILD_THREADS = 8;
+    private static final long INITIAL_CENTS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child(Paths.get(args[1]), FsyncPolicy.valueOf(args[2]));
+            return;
+        }
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        FsyncPolicy policy = args.length > 1 ? FsyncPolicy.valueOf(args[1]) : FsyncPolicy.PER_BATCH;
+
+        Path directory = Files.createTempDirectory("account-journal-crash");
+        Path file = directory.resolve("account.journal");
+        long violations = 0;
+        for (int round = 1; round <= rounds; round++) {
+            violations += round(round, file, policy);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path leftover : files.collect(Collectors.toList())) {
+                Files.delete(leftover);
+            }
+        }
+        Files.delete(directory);
+
+        if (violations != 0) {
+            System.out.println("FAILED: acknowledged transactions were lost.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: every acknowledged transaction survived.");
+    }
+
+    private static long round(int round, Path file, FsyncPolicy policy) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                JournalCrashTest.class.getName(), "child", file.toString(), policy.name())
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        // Kill it somewhere among the first few thousand acknowledgements of this round.
+        int killAfter = 500 + ThreadLocalRandom.current().nextInt(5_000);
+        Set<Long> acknowledged = new HashSet<>();
+        try (BufferedReader acks = new BufferedReader(
+                new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = acks.readLine()) != null) {
+                acknowledged.add(Long.parseLong(line));
+                if (acknowledged.size() == killAfter) {
+                    child.destroyForcibly();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // Killing the child closes the pipe; the acknowledgements read so far are the ones checked.
+        }
+        child.waitFor();
+
+        // A batch the dead process was halfway through writing.
+        byte[] torn = new byte[1 + ThreadLocalRandom.current().nextInt(AccountJournal.RECORD_BYTES * 3)];
+        ThreadLocalRandom.current().nextBytes(torn);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(torn));
+        }
+
+        long violations = 0;
+        long started = System.nanoTime();
+        long balance;
+        int entries;
+        long discarded;
+        try (Account account = Account.open(file, "1", "Crash Test", INITIAL_CENTS, policy)) {
+            long replayed = System.nanoTime() - started;
+            TransactionLog history = account.getTransactionHistory();
+            entries = history.size();
+            discarded = account.getJournal().getDiscardedBytes();
+            Set<Long> found = new HashSet<>();
+            long sum = history.getAmount(0);
+            for (int i = 1; i < entries; i++) {
+                long amount = history.getAmount(i);
+                sum += history.getType(i) == TransactionType.DEPOSIT ? amount : -amount;
+                found.add(amount);
+            }
+            for (long amount : acknowledged) {
+                if (!found.contains(amount)) {
+                    violations++;
+                }
+            }
+            balance = account.getBalanceCents();
+            if (sum != balance || balance < 0) {
+                violations++;
+            }
+            System.out.printf("Round %d: killed after %,d acknowledgements; reopened in %.1f ms with %,d entries, "
+                    + "%d torn bytes cut off, %d violations%n", round, acknowledged.size(), replayed / 1e6,
+                    entries, discarded, violations);
+            if (account.tryDeposit(1) != TransactionStatus.COMPLETED) {
+                violations++;
+            }
+        }
+        try (Account again = Account.open(file, "1", "Crash Test", INITIAL_CENTS, policy)) {
+            if (again.getBalanceCents() != balance + 1 || again.getTransactionCount() != entries + 1) {
+                System.out.println("The deposit after recovery did not survive reopening.");
+                violations++;
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Runs in the child JVM: journals transactions until killed, printing each amount
+     * once it is acknowledged. Amounts encode thread and step, so each is unique.
+     */
+    private static void child(Path file, FsyncPolicy policy) throws IOException {
+        Account account = Account.open(file, "1", "Crash Test", INITIAL_CENTS, policy);
+        PrintStream out = new PrintStream(System.out, true, "US-ASCII");
+        long base = 2 + account.getTransactionCount() * 1_000L; // Unique across rounds too.
+        for (int t = 0; t < CHILD_THREADS; t++) {
+            int thread = t;
+            new Thread(() -> {
+                for (long step = 0; ; step++) {
+                    long amount = (base + step) * CHILD_THREADS * 1_000L + thread;
+                    boolean deposit = (step & 3) != 3;
+                    TransactionStatus status = deposit ? account.tryDeposit(amount) : account.tryWithdraw(amount);
+                    if (status == TransactionStatus.COMPLETED) {
+                        synchronized (out) {
+                            out.println(amount);
+                        }
+                    }
+                }
+            }).start();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package Task5;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ledger.java
+ * Many accounts, looked up by account number, with transfers between them.
+ * Each account is a slot: its balance in cents sits in chunks of
+ * {@value #CHUNK_SIZE} longs and its holder's name in a matching chunk of names, so
+ * an account costs a few dozen bytes besides its number and millions fit in memory.
+ * Unlike {@link Account}, a ledger keeps no per-account transaction history.
+ * <p>
+ * Balances are guarded by a fixed set of lock stripes; an account's stripe is picked
+ * by its slot. A transfer locks the stripes of both accounts, always the
+ * lower-numbered stripe first, so two transfers in opposite directions can never
+ * each hold the lock the other is waiting for. Transfers between accounts on
+ * different stripes never wait for each other, so throughput grows with threads as
+ * long as they touch different accounts. Reading one balance takes no lock; summing
+ * every balance takes all stripes, so it never sees money in flight.
+ */
+public class Ledger {
+    static final int CHUNK_SIZE = 4096;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final int DEFAULT_STRIPES = 1024;
+
+    private final ConcurrentHashMap<String, Integer> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    // Chunks never move once created, so an update under a stripe lock can never be lost to a resize.
+    private volatile AtomicLongArray[] balances = new AtomicLongArray[16];
+    private volatile String[][] holders = new String[16][];
+    private volatile int size;
+
+    /**
+     * Creates an empty ledger with {@value #DEFAULT_STRIPES} lock stripes.
+     */
+    public Ledger() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty ledger.
+     * @param lockStripes How many locks to spread the accounts over, rounded up to a
+     *                    power of two. One lock serializes every transfer.
+     * @throws IllegalArgumentException if lockStripes is not positive.
+     */
+    public Ledger(int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("A ledger needs at least one lock.");
+        }
+        int count = Integer.highestOneBit(lockStripes);
+        if (count < lockStripes) {
+            count <<= 1;
+        }
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * Opens a new account.
+     * @param accountNumber The unique number for the account.
+     * @param accountHolderName The name of the account holder.
+     * @param initialCents The starting balance of the account in cents.
+     * @throws IllegalArgumentException if the number is already taken or the starting
+     *                                  balance is negative.
+     */
+    public synchronized void open(String accountNumber, String accountHolderName, long initialCents) {
+        if (initialCents < 0) {
+            throw new IllegalArgumentException("A balance cannot start below zero.");
+        }
+        if (slots.containsKey(accountNumber)) {
+            throw new IllegalArgumentException("Account " + accountNumber + " already exists.");
+        }
+        int slot = size;
+        int chunkIndex = slot >>> CHUNK_SHIFT;
+        AtomicLongArray[] balanceChunks = balances;
+        String[][] holderChunks = holders;
+        if (chunkIndex == balanceChunks.length) {
+            balanceChunks = Arrays.copyOf(balanceChunks, balanceChunks.length * 2);
+            holderChunks = Arrays.copyOf(holderChunks, holderChunks.length * 2);
+        }
+        if (balanceChunks[chunkIndex] == null) {
+            balanceChunks[chunkIndex] = new AtomicLongArray(CHUNK_SIZE);
+            holderChunks[chunkIndex] = new String[CHUNK_SIZE];
+        }
+        balanceChunks[chunkIndex].set(slot & CHUNK_MASK, initialCents);
+        holderChunks[chunkIndex][slot & CHUNK_MASK] = accountHolderName;
+        holders = holderChunks;
+        balances = balanceChunks;
+        size = slot + 1;
+        // Publishes the account: whoever finds the slot also sees its chunks.
+        slots.put(accountNumber, slot);
+    }
+
+    /**
+     * Returns how many accounts there are.
+     * @return The number of accounts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether an account exists.
+     * @param accountNumber The account number.
+     * @return true if the ledger has the account.
+     */
+    public boolean exists(String accountNumber) {
+        return slots.containsKey(accountNumber);
+    }
+
+    /**
+     * Returns an account's balance. Takes no lock.
+     * @param accountNumber The account number.
+     * @return The balance in cents.
+     * @throws IllegalArgumentException if there is no such account.
+     */
+    public long getBalanceCents(String accountNumber) {
+        int slot = slotOf(accountNumber);
+        return balances[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    /**
+     * Returns the name of an account's holder.
+     * @param accountNumber The account number.
+     * @return The account holder name.
+     * @throws IllegalArgumentException if there is no such account.
+     */
+    public String getAccountHolderName(String accountNumber) {
+        int slot = slotOf(accountNumber);
+        return holders[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    private int slotOf(String accountNumber) {
+        Integer slot = slots.get(accountNumber);
+        if (slot == null) {
+            throw new IllegalArgumentException("There is no account " + accountNumber + ".");
+        }
+        return slot;
+    }
+
+    /**
+     * Deposits an amount into an account.
+     * @param accountNumber The account number.
+     * @param cents The amount to deposit.
+     * @return COMPLETED, INVALID_AMOUNT if the amount is not positive, or
+     *         UNKNOWN_ACCOUNT if there is no such account.
+     * @throws ArithmeticException if the balance would overflow.
+     */
+    public TransactionStatus deposit(String accountNumber, long cents) {
+        if (cents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+        Integer slot = slots.get(accountNumber);
+        if (slot == null) {
+            return TransactionStatus.UNKNOWN_ACCOUNT;
+        }
+        AtomicLongArray chunk = balances[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        ReentrantLock lock = stripes[slot & stripeMask];
+        lock.lock();
+        try {
+            chunk.lazySet(index, Math.addExact(chunk.get(index), cents));
+            return TransactionStatus.COMPLETED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Withdraws an amount from an account if its balance covers it.
+     * @param accountNumber The account number.
+     * @param cents The amount to withdraw.
+     * @return COMPLETED, INVALID_AMOUNT if the amount is not positive,
+     *         UNKNOWN_ACCOUNT if there is no such account, or INSUFFICIENT_FUNDS if
+     *         the balance does not cover it.
+     */
+    public TransactionStatus withdraw(String accountNumber, long cents) {
+        if (cents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+        Integer slot = slots.get(accountNumber);
+        if (slot == null) {
+            return TransactionStatus.UNKNOWN_ACCOUNT;
+        }
+        AtomicLongArray chunk = balances[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        ReentrantLock lock = stripes[slot & stripeMask];
+        lock.lock();
+        try {
+            long available = chunk.get(index);
+            if (available < cents) {
+                return TransactionStatus.INSUFFICIENT_FUNDS;
+            }
+            chunk.lazySet(index, available - cents);
+            return TransactionStatus.COMPLETED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves an amount from one account to another if the first account's balance
+     * covers it. Both balances change together: nobody summing the ledger sees the
+     * money leave one account without arriving in the other. Never deadlocks, however
+     * many transfers run at once and in whichever directions.
+     * @param from The number of the account to take the money from.
+     * @param to The number of the account to put it in.
+     * @param cents The amount to transfer.
+     * @return COMPLETED, INVALID_AMOUNT if the amount is not positive,
+     *         UNKNOWN_ACCOUNT if either account does not exist, SAME_ACCOUNT if both
+     *         numbers are the same account, or INSUFFICIENT_FUNDS if the balance of
+     *         the first account does not cover it.
+     * @throws ArithmeticException if the second balance would overflow; neither
+     *                             balance changes.
+     */
+    public TransactionStatus transfer(String from, String to, long cents) {
+        if (cents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+        Integer source = slots.get(from);
+        Integer target = slots.get(to);
+        if (source == null || target == null) {
+            return TransactionStatus.UNKNOWN_ACCOUNT;
+        }
+        int sourceSlot = source;
+        int targetSlot = target;
+        if (sourceSlot == targetSlot) {
+            return TransactionStatus.SAME_ACCOUNT;
+        }
+        AtomicLongArray[] chunks = balances;
+        AtomicLongArray sourceChunk = chunks[sourceSlot >>> CHUNK_SHIFT];
+        AtomicLongArray targetChunk = chunks[targetSlot >>> CHUNK_SHIFT];
+        int sourceIndex = sourceSlot & CHUNK_MASK;
+        int targetIndex = targetSlot & CHUNK_MASK;
+
+        // Always lock the lower stripe first, so no two transfers wait on each other in a cycle.
+        int sourceStripe = sourceSlot & stripeMask;
+        int targetStripe = targetSlot & stripeMask;
+        ReentrantLock first = stripes[Math.min(sourceStripe, targetStripe)];
+        ReentrantLock second = stripes[Math.max(sourceStripe, targetStripe)];
+        first.lock();
+        try {
+            if (second != first) {
+                second.lock();
+            }
+            try {
+                long available = sourceChunk.get(sourceIndex);
+                if (available < cents) {
+                    return TransactionStatus.INSUFFICIENT_FUNDS;
+                }
+                long credited = Math.addExact(targetChunk.get(targetIndex), cents);
+                sourceChunk.lazySet(sourceIndex, available - cents);
+                targetChunk.lazySet(targetIndex, credited);
+                return TransactionStatus.COMPLETED;
+            } finally {
+                if (second != first) {
+                    second.unlock();
+                }
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+
+    /**
+     * Adds up every balance in the ledger at one instant. Holds every stripe while it
+     * sums, so it waits for transfers in progress and holds up new ones; meant for
+     * audits, not for a hot path.
+     * @return The total in cents.
+     */
+    public long getTotalCents() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            AtomicLongArray[] chunks = balances;
+            int accounts = size;
+            long total = 0;
+            for (int slot = 0; slot < accounts; slot++) {
+                total = Math.addExact(total, chunks[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK));
+            }
+            return total;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package Task5;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LedgerBenchmark.java
+ * Measures transfer throughput on a large ledger as transfers crowd onto fewer
+ * accounts. Accounts are picked from a Zipfian distribution: with skew 0 every
+ * account is equally likely and threads rarely touch the same one; as the skew
+ * grows, more and more transfers go to the same few hot accounts. Each skew runs
+ * twice, on a ledger with a single lock (every transfer waits its turn) and on one
+ * with the default lock stripes. The hot accounts are spread at random over the
+ * ledger, as they would be in practice.
+ * Usage: java Task5.LedgerBenchmark [secondsPerRun] [threads] [accounts]
+ */
+public class LedgerBenchmark {
+    private static final double[] SKEWS = {0.0, 0.5, 0.9, 0.99, 1.2};
+    private static final long INITIAL_CENTS = 1_000_000_000L;
+    // Transfers each thread cycles through; drawn before the clock starts.
+    private static final int PAIRS_PER_THREAD = 1 << 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = String.valueOf(100_000_000 + i);
+        }
+        // rank -> account, so the hottest accounts are not neighbours.
+        int[] accountOfRank = new int[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountOfRank[i] = i;
+        }
+        Random shuffle = new Random(42);
+        for (int i = accounts - 1; i > 0; i--) {
+            int j = shuffle.nextInt(i + 1);
+            int swap = accountOfRank[i];
+            accountOfRank[i] = accountOfRank[j];
+            accountOfRank[j] = swap;
+        }
+
+        System.out.printf("--- Transfers/s among %,d accounts, %d threads ---%n", accounts, threads);
+        System.out.printf("%-6s %12s %16s %16s%n", "Skew", "Hottest", "One lock", "Striped");
+        for (double skew : SKEWS) {
+            Zipf zipf = new Zipf(accounts, skew);
+            int[][] pairs = new int[threads][];
+            for (int t = 0; t < threads; t++) {
+                pairs[t] = draw(zipf, accountOfRank, new Random(t * 31L + 7));
+            }
+            long global = run(new Ledger(1), numbers, pairs, seconds);
+            long striped = run(new Ledger(), numbers, pairs, seconds);
+            System.out.printf("%-6.2f %11.2f%% %,16d %,16d%n", skew, zipf.probability(0) * 100,
+                    global / seconds, striped / seconds);
+        }
+    }
+
+    /**
+     * Draws source and destination accounts for one thread's transfers, as
+     * alternating entries: from, to, from, to...
+     */
+    private static int[] draw(Zipf zipf, int[] accountOfRank, Random random) {
+        int[] pairs = new int[PAIRS_PER_THREAD * 2];
+        for (int i = 0; i < pairs.length; i += 2) {
+            int from = accountOfRank[zipf.next(random)];
+            int to;
+            do {
+                to = accountOfRank[zipf.next(random)];
+            } while (to == from);
+            pairs[i] = from;
+            pairs[i + 1] = to;
+        }
+        return pairs;
+    }
+
+    private static long run(Ledger ledger, String[] numbers, int[][] pairs, int seconds)
+            throws InterruptedException {
+        for (int i = 0; i < numbers.length; i++) {
+            ledger.open(numbers[i], "Benchmark", INITIAL_CENTS);
+        }
+        long totalBefore = ledger.getTotalCents();
+        AtomicLong completed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long warmup = System.nanoTime() + 500_000_000L;
+        long deadline = warmup + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[pairs.length];
+        for (int t = 0; t < pairs.length; t++) {
+            int[] mine = pairs[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                int next = 0;
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    for (int i = 0; i < 64; i++) {
+                        long amount = 1 + (next & 1023);
+                        ledger.transfer(numbers[mine[next]], numbers[mine[next + 1]], amount);
+                        next += 2;
+                        if (next == mine.length) {
+                            next = 0;
+                        }
+                    }
+                    if (now >= warmup) {
+                        done += 64;
+                    }
+                }
+                completed.addAndGet(done);
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (ledger.getTotalCents() != totalBefore) {
+            throw new IllegalStateException("The ledger lost money.");
+        }
+        return completed.get();
+    }
+
+    /**
+     * Ranks 0 to n - 1, rank k drawn with probability proportional to 1 / (k + 1)^skew,
+     * by binary search over the cumulative distribution.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int next(Random random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < u) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        double probability(int rank) {
+            return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package Task5;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LedgerStressTest.java
+ * Runs random transfers between a few accounts from many threads at once, on a
+ * ledger with only a few lock stripes, so that transfers constantly run in opposite
+ * directions between accounts sharing or crossing stripes. Checks that:
+ * <ul>
+ *   <li>every thread finishes, i.e. no transfers deadlock;</li>
+ *   <li>the ledger's total never changes, even while transfers are in progress;</li>
+ *   <li>each account ends at its starting balance plus everything the threads tallied
+ *   as transferred into it, minus everything transferred out;</li>
+ *   <li>no balance is ever seen below zero.</li>
+ * </ul>
+ * Usage: java Task5.LedgerStressTest [threads] [transfersPerThread] [accounts] [lockStripes]
+ * Exits with status 1 if any check fails.
+ */
+public class LedgerStressTest {
+    private static final long INITIAL_CENTS = 10_000;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int transfers = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        int lockStripes = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        Ledger ledger = new Ledger(lockStripes);
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = String.valueOf(100_000 + i);
+            ledger.open(numbers[i], "Holder " + i, INITIAL_CENTS);
+        }
+        long expectedTotal = INITIAL_CENTS * accounts;
+
+        long[][] net = new long[threads][accounts];
+        long[] completed = new long[threads];
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong badTotals = new AtomicLong();
+        AtomicLong negatives = new AtomicLong();
+        AtomicLong audits = new AtomicLong();
+        Thread auditor = new Thread(() -> {
+            while (running.get()) {
+                if (ledger.getTotalCents() != expectedTotal) {
+                    badTotals.incrementAndGet();
+                }
+                for (String number : numbers) {
+                    if (ledger.getBalanceCents(number) < 0) {
+                        negatives.incrementAndGet();
+                    }
+                }
+                audits.incrementAndGet();
+            }
+        });
+        auditor.setDaemon(true);
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transfers; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = random.nextInt(accounts - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    long amount = 1 + random.nextInt((int) INITIAL_CENTS / 4);
+                    if (ledger.transfer(numbers[from], numbers[to], amount) == TransactionStatus.COMPLETED) {
+                        net[thread][from] -= amount;
+                        net[thread][to] += amount;
+                        completed[thread]++;
+                    }
+                }
+            });
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+        auditor.start();
+        long began = System.nanoTime();
+        start.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long stuck = 0;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (worker.isAlive()) {
+                stuck++;
+            }
+        }
+        long elapsed = System.nanoTime() - began;
+        running.set(false);
+
+        long violations = badTotals.get() + negatives.get();
+        if (stuck > 0) {
+            long[] deadlocked = ManagementFactory.getThreadMXBean().findDeadlockedThreads();
+            System.out.printf("%d threads did not finish within %d s; %d deadlocked.%n", stuck,
+                    TIMEOUT_MILLIS / 1000, deadlocked == null ? 0 : deadlocked.length);
+            violations += stuck;
+        } else {
+            auditor.join();
+            for (int a = 0; a < accounts; a++) {
+                long expected = INITIAL_CENTS;
+                for (int t = 0; t < threads; t++) {
+                    expected += net[t][a];
+                }
+                if (ledger.getBalanceCents(numbers[a]) != expected) {
+                    violations++;
+                }
+            }
+            if (ledger.getTotalCents() != expectedTotal) {
+                violations++;
+            }
+        }
+        long total = 0;
+        for (long thread : completed) {
+            total += thread;
+        }
+        System.out.printf("%d threads x %,d transfers between %d accounts on %d lock stripes in %.2f s: "
+                + "%,d completed, %,d audits, %d violations%n", threads, transfers, accounts, lockStripes,
+                elapsed / 1e9, total, audits.get(), violations);
+
+        if (violations != 0) {
+            System.out.println("FAILED: the ledger does not balance.");
+            System.exit(1);
+        }
+        System.out.println("PASSED: every transfer finished and every cent is accounted for.");
+    }
+}
@@ -1,4 +1,7 @@
 package Task5;
+
+import java.time.YearMonth;
+
 public class Main {
 
     public static void main(String[] args) {
@@ -26,6 +29,24 @@ public class Main {
         // 4. Print the full transaction history
         myAccount.printTransactionHistory();
 
+        // 5. Print this month's statement and the last two transactions
+        myAccount.printStatement(YearMonth.now());
+        System.out.println("\n--- Last 2 Transactions ---");
+        myAccount.getRecentTransactions(2).print(System.out);
+
+        // 6. Move money between accounts held in a ledger
+        System.out.println("\n--- Transfers Between Accounts ---");
+        Ledger ledger = new Ledger();
+        ledger.open("111111111", "Jane Roe", 100000);
+        ledger.open("222222222", "Richard Roe", 2500);
+        System.out.println("Transfer $300.00: " + ledger.transfer("111111111", "222222222", 30000));
+        System.out.println("Transfer $50.00 back: " + ledger.transfer("222222222", "111111111", 5000));
+        System.out.println("Transfer $1000.00: " + ledger.transfer("222222222", "111111111", 100000));
+        System.out.println("Transfer to 333333333: " + ledger.transfer("111111111", "333333333", 100));
+        System.out.println(ledger.getAccountHolderName("111111111") + ": " + Money.format(ledger.getBalanceCents("111111111")));
+        System.out.println(ledger.getAccountHolderName("222222222") + ": " + Money.format(ledger.getBalanceCents("222222222")));
+        System.out.println("Ledger total: " + Money.format(ledger.getTotalCents()));
+
         System.out.println("\n--- Simulation Finished ---");
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package Task5;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money.java
+ * Converts between dollar amounts and the whole cents that balances are kept in.
+ */
+final class Money {
+    private Money() {
+    }
+
+    /**
+     * Rounds a dollar amount to whole cents, half a cent rounding up. The amount is
+     * taken as written in decimal, so 1.005 is 101 cents even though the nearest
+     * double is a little below it.
+     * @param amount The amount in dollars.
+     * @return The amount in cents.
+     * @throws IllegalArgumentException if the amount is not a finite number.
+     * @throws ArithmeticException if the amount is too large to hold in cents.
+     */
+    static long toCents(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Not an amount of money: " + amount);
+        }
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Formats cents as dollars, e.g. 60025 as "$600.25".
+     * @param cents The amount in cents.
+     * @return The amount with a dollar sign and two decimals.
+     */
+    static String format(long cents) {
+        return appendTo(new StringBuilder(16), cents).toString();
+    }
+
+    /**
+     * Appends cents formatted as dollars, as {@link #format} does, without building a String.
+     * @param out Where to append.
+     * @param cents The amount in cents.
+     * @return out.
+     */
+    static StringBuilder appendTo(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        long dollars = Math.abs(cents / 100);
+        long remainder = Math.abs(cents % 100);
+        out.append('$').append(dollars).append('.');
+        if (remainder < 10) {
+            out.append('0');
+        }
+        return out.append(remainder);
+    }
+}
@@ -0,0 +1,64 @@
+package Task5;
+
+import java.io.PrintStream;
+import java.time.YearMonth;
+
+/**
+ * Statement.java
+ * An account's statement for one calendar month: the balance at the start of the
+ * month, every entry recorded in it, the count and total of each type of entry, and
+ * the balance at the end. Balances are worked out from the amounts, not read from
+ * the entries, so they add up even when racing threads logged their entries out of
+ * order.
+ */
+public final class Statement {
+    private final YearMonth month;
+    private final HistoryRange entries;
+    private final long openingCents;
+    private final long closingCents;
+
+    Statement(YearMonth month, HistoryRange entries, long openingCents, long closingCents) {
+        this.month = month;
+        this.entries = entries;
+        this.openingCents = openingCents;
+        this.closingCents = closingCents;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public HistoryRange getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the balance before the first entry of the month.
+     * @return The balance in cents; 0 if the account was opened during or after the month.
+     */
+    public long getOpeningCents() {
+        return openingCents;
+    }
+
+    /**
+     * Returns the balance after the last entry of the month.
+     * @return The balance in cents.
+     */
+    public long getClosingCents() {
+        return closingCents;
+    }
+
+    /**
+     * Prints the statement: balances, entries and totals.
+     * @param out Where to print.
+     */
+    public void print(PrintStream out) {
+        out.println("Opening balance: " + Money.format(openingCents));
+        entries.print(out);
+        out.println("Deposits: " + entries.getCount(TransactionType.DEPOSIT) + " totalling "
+                + Money.format(entries.getTotal(TransactionType.DEPOSIT)));
+        out.println("Withdrawals: " + entries.getCount(TransactionType.WITHDRAWAL) + " totalling "
+                + Money.format(entries.getTotal(TransactionType.WITHDRAWAL)));
+        out.println("Closing balance: " + Money.format(closingCents));
+    }
+}
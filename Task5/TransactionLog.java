@@ -0,0 +1,326 @@
+package Task5;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * TransactionLog.java
+ * An account's transaction history, kept as primitive records rather than strings:
+ * each entry is a type, an amount in cents, a timestamp in nanoseconds since the
+ * epoch and the balance in cents just after it. Entries go into chunks of parallel
+ * arrays, so recording one allocates nothing (a new chunk is allocated once every
+ * {@value #CHUNK_SIZE} entries) and an entry takes 25 bytes, against well over a
+ * hundred for a formatted string. Entries are formatted only when the history is
+ * printed or asked for. Timestamps never go backwards, so the log is sorted by time
+ * and the entries between two instants are found by binary search. Each chunk also
+ * keeps the count and total of each type of entry in it, so totals over a range only
+ * look at the entries in the partial chunks at either end.
+ * Entries are added under the log's lock; reading never locks, and a reader sees
+ * every entry added before it read {@link #size()}.
+ */
+public class TransactionLog {
+    static final int CHUNK_SIZE = 4096;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int FIRST_CHUNK_SIZE = 8;
+    private static final int TYPES = TransactionType.values().length;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    // System.nanoTime() has no fixed origin; this makes it nanoseconds since the epoch.
+    private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    /**
+     * One chunk of entries, each field in its own array, with the count and total of
+     * each type of entry. Only the first chunk starts smaller than {@value #CHUNK_SIZE},
+     * so a short history stays small. A chunk's counts and totals are read only once
+     * it is full, and then never change.
+     */
+    private static final class Chunk {
+        final byte[] types;
+        final long[] amounts;
+        final long[] times;
+        final long[] balances;
+        final int[] counts = new int[TYPES];
+        final long[] totals = new long[TYPES];
+
+        Chunk(int capacity) {
+            types = new byte[capacity];
+            amounts = new long[capacity];
+            times = new long[capacity];
+            balances = new long[capacity];
+        }
+
+        Chunk grow(int entries) {
+            Chunk grown = new Chunk(types.length * 2);
+            System.arraycopy(types, 0, grown.types, 0, entries);
+            System.arraycopy(amounts, 0, grown.amounts, 0, entries);
+            System.arraycopy(times, 0, grown.times, 0, entries);
+            System.arraycopy(balances, 0, grown.balances, 0, entries);
+            System.arraycopy(counts, 0, grown.counts, 0, TYPES);
+            System.arraycopy(totals, 0, grown.totals, 0, TYPES);
+            return grown;
+        }
+    }
+
+    private volatile Chunk[] chunks = new Chunk[4];
+    private volatile int size;
+    private long lastTime;
+
+    /**
+     * Returns the current time in nanoseconds since the epoch, from the monotonic clock.
+     * @return The time.
+     */
+    static long now() {
+        return EPOCH_OFFSET_NANOS + System.nanoTime();
+    }
+
+    /**
+     * Records an entry, timestamped now.
+     * @param type What happened.
+     * @param amount The amount in cents.
+     * @param balanceAfter The balance in cents just after it happened.
+     * @return The entry's index.
+     */
+    synchronized int append(TransactionType type, long amount, long balanceAfter) {
+        return append(type, amount, now(), balanceAfter);
+    }
+
+    /**
+     * Records an entry with a given timestamp. A timestamp before the previous entry's
+     * is moved up to it, to keep the log in time order.
+     * @return The entry's index.
+     */
+    synchronized int append(TransactionType type, long amount, long timeNanos, long balanceAfter) {
+        int index = size;
+        Chunk[] directory = chunks;
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        if (chunkIndex == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        Chunk chunk = directory[chunkIndex];
+        int slot = index & CHUNK_MASK;
+        if (chunk == null || slot == chunk.types.length) {
+            chunk = chunk == null ? new Chunk(index == 0 ? FIRST_CHUNK_SIZE : CHUNK_SIZE) : chunk.grow(slot);
+            directory[chunkIndex] = chunk;
+            chunks = directory;
+        }
+        lastTime = Math.max(lastTime, timeNanos);
+        chunk.types[slot] = (byte) type.ordinal();
+        chunk.amounts[slot] = amount;
+        chunk.times[slot] = lastTime;
+        chunk.balances[slot] = balanceAfter;
+        chunk.counts[type.ordinal()]++;
+        chunk.totals[type.ordinal()] += amount;
+        size = index + 1; // Publishes the entry to readers.
+        return index;
+    }
+
+    /**
+     * Returns how many entries there are.
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    public TransactionType getType(int index) {
+        return TransactionType.of(chunk(index).types[index & CHUNK_MASK]);
+    }
+
+    public long getAmount(int index) {
+        return chunk(index).amounts[index & CHUNK_MASK];
+    }
+
+    /**
+     * Returns when an entry was recorded.
+     * @param index The entry's index.
+     * @return Nanoseconds since the epoch.
+     */
+    public long getTimeNanos(int index) {
+        return chunk(index).times[index & CHUNK_MASK];
+    }
+
+    public long getBalanceAfter(int index) {
+        return chunk(index).balances[index & CHUNK_MASK];
+    }
+
+    private Chunk chunk(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("There is no transaction #" + index + ".");
+        }
+        return chunks[index >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Finds the first entry recorded at or after a time, by binary search.
+     * @param timeNanos Nanoseconds since the epoch.
+     * @return The entry's index, or {@link #size()} if every entry is earlier.
+     */
+    public int firstAtOrAfter(long timeNanos) {
+        int low = 0;
+        int high = size;
+        Chunk[] directory = chunks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (directory[middle >>> CHUNK_SHIFT].times[middle & CHUNK_MASK] < timeNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the entries recorded from one instant up to, but not including, another.
+     * @param from The first instant to include.
+     * @param to The first instant to leave out.
+     * @return The entries, in time order.
+     */
+    public HistoryRange between(Instant from, Instant to) {
+        int start = firstAtOrAfter(toNanos(from));
+        return new HistoryRange(this, start, Math.max(start, firstAtOrAfter(toNanos(to))));
+    }
+
+    /**
+     * Returns the latest entries.
+     * @param count How many entries at most.
+     * @return The last count entries, or all of them if there are fewer.
+     * @throws IllegalArgumentException if count is negative.
+     */
+    public HistoryRange last(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Cannot take " + count + " entries.");
+        }
+        int end = size;
+        return new HistoryRange(this, Math.max(0, end - count), end);
+    }
+
+    /**
+     * Returns the entries from one index up to, but not including, another.
+     * @param from The index of the first entry.
+     * @param to The index after the last entry.
+     * @return The entries.
+     * @throws IndexOutOfBoundsException if the indexes are not a run of entries.
+     */
+    public HistoryRange range(int from, int to) {
+        if (from < 0 || from > to || to > size) {
+            throw new IndexOutOfBoundsException("There are no transactions #" + from + " to #" + to + ".");
+        }
+        return new HistoryRange(this, from, to);
+    }
+
+    /**
+     * Builds the statement for a calendar month: the entries in it, and the balance
+     * before and after them.
+     * @param month The month.
+     * @param zone The time zone the month's days start and end in.
+     * @return The statement.
+     */
+    public Statement statement(YearMonth month, ZoneId zone) {
+        HistoryRange entries = between(month.atDay(1).atStartOfDay(zone).toInstant(),
+                month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant());
+        long opening = net(0, entries.getFrom());
+        return new Statement(month, entries, opening, opening + net(entries.getFrom(), entries.getTo()));
+    }
+
+    /**
+     * Returns how many entries of a type there are in a run of entries.
+     */
+    int count(TransactionType type, int from, int to) {
+        return (int) sum(type, from, to, true);
+    }
+
+    /**
+     * Returns the total amount of the entries of a type in a run of entries.
+     */
+    long total(TransactionType type, int from, int to) {
+        return sum(type, from, to, false);
+    }
+
+    /**
+     * What a run of entries did to the balance: money in, less money out.
+     */
+    private long net(int from, int to) {
+        return total(TransactionType.OPENED, from, to) + total(TransactionType.DEPOSIT, from, to)
+                - total(TransactionType.WITHDRAWAL, from, to);
+    }
+
+    /**
+     * Counts or adds up the entries of a type: one by one in the partial chunks at
+     * either end, and from each full chunk's own count or total in between.
+     */
+    private long sum(TransactionType type, int from, int to, boolean count) {
+        Chunk[] directory = chunks;
+        byte wanted = (byte) type.ordinal();
+        long sum = 0;
+        int index = from;
+        while (index < to) {
+            Chunk chunk = directory[index >>> CHUNK_SHIFT];
+            int slot = index & CHUNK_MASK;
+            if (slot == 0 && to - index >= CHUNK_SIZE) {
+                sum += count ? chunk.counts[wanted] : chunk.totals[wanted];
+                index += CHUNK_SIZE;
+                continue;
+            }
+            int stop = Math.min(to - index + slot, CHUNK_SIZE);
+            for (; slot < stop; slot++) {
+                if (chunk.types[slot] == wanted) {
+                    sum += count ? 1 : chunk.amounts[slot];
+                }
+            }
+            index = (index & ~CHUNK_MASK) + stop;
+        }
+        return sum;
+    }
+
+    /**
+     * Converts an instant to nanoseconds since the epoch, saturating far in the past or future.
+     */
+    static long toNanos(Instant instant) {
+        long seconds = instant.getEpochSecond();
+        if (seconds >= Long.MAX_VALUE / 1_000_000_000L) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / 1_000_000_000L) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Formats an entry the way the history is printed, e.g.
+     * "[2025-08-11 21:44:41] Deposited: $250.50".
+     * @param index The entry's index.
+     * @return The formatted entry.
+     */
+    public String format(int index) {
+        return formatTo(new StringBuilder(64), index).toString();
+    }
+
+    private StringBuilder formatTo(StringBuilder out, int index) {
+        long time = getTimeNanos(index);
+        out.append('[');
+        TIME_FORMAT.formatTo(Instant.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L)), out);
+        out.append("] ").append(getType(index).getLabel());
+        return Money.appendTo(out, getAmount(index));
+    }
+
+    /**
+     * Prints a run of entries, one per line.
+     * @param out Where to print.
+     * @param from The index of the first entry.
+     * @param to The index after the last entry.
+     */
+    public void print(PrintStream out, int from, int to) {
+        StringBuilder line = new StringBuilder(64);
+        for (int index = from; index < to; index++) {
+            line.setLength(0);
+            out.println(formatTo(line, index));
+        }
+    }
+}
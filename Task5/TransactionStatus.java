@@ -0,0 +1,14 @@
+package Task5;
+
+/**
+ * TransactionStatus.java
+ * The outcome of a deposit or withdrawal through {@link Account#tryDeposit} or
+ * {@link Account#tryWithdraw}, or of an operation on a {@link Ledger}.
+ */
+public enum TransactionStatus {
+    COMPLETED,           // The balance has changed.
+    INVALID_AMOUNT,      // The amount was zero or negative.
+    INSUFFICIENT_FUNDS,  // The balance did not cover the withdrawal.
+    UNKNOWN_ACCOUNT,     // The ledger has no account with that number.
+    SAME_ACCOUNT         // A transfer named the same account twice.
+}
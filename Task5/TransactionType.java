@@ -0,0 +1,31 @@
+package Task5;
+
+/**
+ * TransactionType.java
+ * The kinds of entry in an account's {@link TransactionLog}.
+ */
+public enum TransactionType {
+    OPENED("Account created with initial balance: "),
+    DEPOSIT("Deposited: "),
+    WITHDRAWAL("Withdrew: ");
+
+    private static final TransactionType[] VALUES = values();
+
+    private final String label;
+
+    TransactionType(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the text that comes before the amount in the printed history.
+     * @return The label, ending with a space.
+     */
+    String getLabel() {
+        return label;
+    }
+
+    static TransactionType of(int ordinal) {
+        return VALUES[ordinal];
+    }
+}